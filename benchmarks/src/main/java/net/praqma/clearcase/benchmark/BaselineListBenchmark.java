@@ -0,0 +1,84 @@
+package net.praqma.clearcase.benchmark;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
+import net.praqma.clearcase.ucm.entities.Baseline;
+import net.praqma.clearcase.ucm.utils.BaselineList;
+import net.praqma.clearcase.ucm.utils.filters.AfterDate;
+import net.praqma.clearcase.ucm.utils.filters.BeforeDate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sorting and date filtering of a {@link BaselineList} of 1000 baselines read from <code>lsbl</code> output.
+ * The baselines are loaded in the setup, so no cleartool is needed.
+ *
+ * @author cwolfgang
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class BaselineListBenchmark {
+
+    private List<Baseline> baselines;
+    private Date median;
+
+    @Setup
+    public void setup() throws IOException, UnableToInitializeEntityException, ParseException {
+        baselines = new ArrayList<Baseline>();
+        for( String line : Fixtures.lines( "lsbl.txt" ) ) {
+            String[] s = line.split( "::" );
+            Baseline baseline = Baseline.get( s[0] );
+            baseline.setDate( s[1] );
+            baseline.setLabelStatusFromString( s[2] );
+            baselines.add( baseline );
+        }
+
+        List<Baseline> sorted = new ArrayList<Baseline>( baselines );
+        Collections.sort( sorted, new BaselineList.AscendingDateSort() );
+        median = sorted.get( sorted.size() / 2 ).getDate();
+    }
+
+    @Benchmark
+    public BaselineList sortAscending() {
+        BaselineList list = new BaselineList( baselines );
+        Collections.sort( list, new BaselineList.AscendingDateSort() );
+        return list;
+    }
+
+    @Benchmark
+    public BaselineList sortDescending() {
+        BaselineList list = new BaselineList( baselines );
+        Collections.sort( list, new BaselineList.DescendingDateSort() );
+        return list;
+    }
+
+    @Benchmark
+    public BaselineList filterAfterDate() {
+        return new BaselineList( baselines ).applyFilter( new AfterDate( median ) );
+    }
+
+    @Benchmark
+    public BaselineList filterBeforeDate() {
+        return new BaselineList( baselines ).applyFilter( new BeforeDate( median ) );
+    }
+}
@@ -0,0 +1,51 @@
+package net.praqma.clearcase.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.praqma.clearcase.Deliver;
+import net.praqma.clearcase.exceptions.ClearCaseException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing of <code>deliver -status</code> output with {@link Deliver.Status#getStatus(String)}, with and without a deliver in progress.
+ *
+ * @author cwolfgang
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class DeliverBenchmark {
+
+    private String inProgress;
+    private String idle;
+
+    @Setup
+    public void setup() throws IOException {
+        inProgress = Fixtures.content( "deliverStatus01.txt" );
+        idle = Fixtures.content( "deliverStatus02.txt" );
+    }
+
+    @Benchmark
+    public Deliver.Status inProgress() throws ClearCaseException {
+        return Deliver.Status.getStatus( inProgress );
+    }
+
+    @Benchmark
+    public Deliver.Status idle() throws ClearCaseException {
+        return Deliver.Status.getStatus( idle );
+    }
+}
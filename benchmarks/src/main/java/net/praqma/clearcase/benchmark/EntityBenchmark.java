@@ -0,0 +1,48 @@
+package net.praqma.clearcase.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.praqma.clearcase.exceptions.ClearCaseException;
+import net.praqma.clearcase.ucm.entities.UCMEntity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Parsing of fully qualified names into entities with {@link UCMEntity#getEntity(String)}, 500 mixed names per operation.
+ *
+ * @author cwolfgang
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class EntityBenchmark {
+
+    private List<String> fqnames;
+
+    @Setup
+    public void setup() throws IOException {
+        fqnames = Fixtures.lines( "fqnames.txt" );
+    }
+
+    @Benchmark
+    public void getEntity( Blackhole bh ) throws ClearCaseException {
+        for( String fqname : fqnames ) {
+            bh.consume( UCMEntity.getEntity( fqname ) );
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package net.praqma.clearcase.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Recorded cleartool output used as input for the benchmarks. The files are in the resources next to this class.
+ *
+ * @author cwolfgang
+ */
+public class Fixtures {
+
+    /* Keep the loggers of COOL quiet, so the console is not part of the measurements */
+    private static final Logger cool = Logger.getLogger( "net.praqma" );
+
+    static {
+        cool.setLevel( Level.WARNING );
+    }
+
+    private Fixtures() {}
+
+    /**
+     * Read a fixture line by line, empty lines are skipped
+     */
+    public static List<String> lines( String name ) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader( new InputStreamReader( open( name ), "UTF-8" ) );
+        try {
+            String line;
+            while( ( line = reader.readLine() ) != null ) {
+                if( line.length() > 0 ) {
+                    lines.add( line );
+                }
+            }
+        } finally {
+            reader.close();
+        }
+
+        return lines;
+    }
+
+    /**
+     * Read a fixture as it would be in {@link net.praqma.util.execute.CmdResult#stdoutBuffer}
+     */
+    public static String content( String name ) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for( String line : lines( name ) ) {
+            if( sb.length() > 0 ) {
+                sb.append( "\n" );
+            }
+            sb.append( line );
+        }
+
+        return sb.toString();
+    }
+
+    private static InputStream open( String name ) throws IOException {
+        InputStream in = Fixtures.class.getResourceAsStream( name );
+        if( in == null ) {
+            throw new IOException( "No fixture named " + name );
+        }
+
+        return in;
+    }
+}
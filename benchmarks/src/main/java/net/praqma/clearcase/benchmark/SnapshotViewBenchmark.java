@@ -0,0 +1,45 @@
+package net.praqma.clearcase.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import net.praqma.clearcase.ucm.view.SnapshotView;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Extraction of the load rules from a UCM config spec with {@link SnapshotView#getAllLoadStrings(List)}.
+ *
+ * @author cwolfgang
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class SnapshotViewBenchmark {
+
+    private List<String> catcs;
+
+    @Setup
+    public void setup() throws IOException {
+        catcs = Fixtures.lines( "catcs.txt" );
+    }
+
+    @Benchmark
+    public Map<String, Boolean> getAllLoadStrings() {
+        return SnapshotView.getAllLoadStrings( catcs );
+    }
+}
@@ -0,0 +1,65 @@
+package net.praqma.clearcase.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
+import net.praqma.clearcase.ucm.entities.Version;
+import net.praqma.clearcase.ucm.utils.VersionList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link Version} initialization, that is creating a version from its extended name and reading its file, branches and revision, and {@link VersionList#getLatest()}.
+ * The extended name is parsed on first use, so {@link #initialize(Blackhole)} reads the parsed parts to measure the parsing too.
+ * The fixture has 400 versions of which some are directory versions of newly added elements.
+ *
+ * @author cwolfgang
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class VersionBenchmark {
+
+    private List<String> names;
+    private VersionList versions;
+
+    @Setup
+    public void setup() throws IOException, UnableToInitializeEntityException {
+        names = Fixtures.lines( "versions.txt" );
+
+        versions = new VersionList();
+        for( String name : names ) {
+            versions.add( Version.get( name ) );
+        }
+    }
+
+    @Benchmark
+    public void initialize( Blackhole bh ) throws UnableToInitializeEntityException {
+        for( String name : names ) {
+            Version version = Version.get( name );
+            bh.consume( version.getFile() );
+            bh.consume( version.getBranches() );
+            bh.consume( version.getRevision() );
+        }
+    }
+
+    @Benchmark
+    public VersionList getLatest() {
+        return versions.getLatest();
+    }
+}
@@ -0,0 +1,76 @@
+package net.praqma.clearcase.ucm.entities;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.praqma.clearcase.benchmark.Fixtures;
+import net.praqma.clearcase.ucm.utils.TagQuery;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * {@link Tag#CGIToHash(String)} and {@link Tag#queryTag(TagQuery)} over 200 tags.<br>
+ * Tags can only be created through cleartool, so this benchmark lives in the package of {@link Tag} to use its package private constructor.
+ *
+ * @author cwolfgang
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 2 )
+public class TagBenchmark {
+
+    private List<String> cgis;
+    private List<Tag> tags;
+    private TagQuery query;
+
+    @Setup
+    public void setup() throws IOException {
+        cgis = Fixtures.lines( "tags.txt" );
+
+        tags = new ArrayList<Tag>();
+        for( String cgi : cgis ) {
+            Tag tag = new Tag();
+            tag.setKeyValue( cgi );
+            tags.add( tag );
+        }
+
+        query = new TagQuery();
+        query.AddCondition( "buildstatus", "^(SUCCESS|UNSTABLE)$" );
+        query.AddCondition( "host", "^build[0-3]\\." );
+        query.AddCondition( "stable", "true" );
+    }
+
+    @Benchmark
+    public void cgiToHash( Blackhole bh ) {
+        for( String cgi : cgis ) {
+            bh.consume( Tag.CGIToHash( cgi ) );
+        }
+    }
+
+    @Benchmark
+    public int queryTag() {
+        int matches = 0;
+        for( Tag tag : tags ) {
+            if( tag.queryTag( query ) ) {
+                matches++;
+            }
+        }
+
+        return matches;
+    }
+}
@@ -48,6 +48,7 @@ public class ConfigSpec {
     }
 
     public ConfigSpec addLoadRule( List<Baseline> baselines ) throws CleartoolException, UnableToInitializeEntityException {
+        Baseline.loadComponentRootDirs( baselines );
         for( Baseline b : baselines ) {
             addLoadRule( b );
         }
@@ -12,6 +12,7 @@ import net.praqma.clearcase.exceptions.*;
 import net.praqma.clearcase.exceptions.DeliverException.Type;
 import net.praqma.clearcase.ucm.entities.Activity;
 import net.praqma.clearcase.ucm.entities.Baseline;
+import net.praqma.clearcase.ucm.entities.EntityCache;
 import net.praqma.clearcase.ucm.entities.Stream;
 import net.praqma.clearcase.ucm.view.SnapshotView;
 import net.praqma.util.execute.AbnormalProcessTerminationException;
@@ -110,10 +111,17 @@ public class Deliver {
 		
 		try {
 			Cleartool.run( cmd, context );
-			return this;
 		} catch( Exception e ) {
 			throw new DeliverException( this, Type.UNABLE_TO_COMPLETE, e );
+		} finally {
+			DeliverSnapshot.clear();
 		}
+
+		/* The source and target streams have changed */
+		EntityCache.invalidate( stream );
+		EntityCache.invalidate( target );
+
+		return this;
 	}
 	
 	private static final Pattern rx_rebase_in_progress = Pattern.compile( "which is currently involved in an\\s+active deliver or rebase operation", Pattern.MULTILINE | Pattern.CASE_INSENSITIVE );
@@ -176,6 +184,9 @@ public class Deliver {
 			else {
 				throw new DeliverException( this, Type.UNKNOWN, e );
 			}
+		} finally {
+			/* The deliver status has changed */
+			DeliverSnapshot.clear();
 		}
 
 		/* Test for baseline == true */
@@ -211,6 +222,7 @@ public class Deliver {
 		} catch( Exception e ) {
 			throw new CleartoolException( "Could not regenerate view to force deliver: " + oldViewTag, e );
 		} finally {
+			DeliverSnapshot.clear();
 			if( context.exists() && oldViewTag != null ) {
                 FileUtils.deleteDirectory( context );
 			}
@@ -229,6 +241,8 @@ public class Deliver {
 			Cleartool.run( cmd, context );
 		} catch( AbnormalProcessTerminationException e ) {
 			throw new CancelDeliverException( stream, e );
+		} finally {
+			DeliverSnapshot.clear();
 		}
 	}
 
@@ -243,6 +257,8 @@ public class Deliver {
                 Cleartool.run( cmd );
             } catch( AbnormalProcessTerminationException e ) {
                 throw new CancelDeliverException( targetStream, e );
+            } finally {
+                DeliverSnapshot.clear();
             }
         } else {
             throw new CancelDeliverException( targetStream, "Could not find source stream for deliver" );
@@ -293,12 +309,15 @@ public class Deliver {
     public static final Pattern rxFindStream   = Pattern.compile( "^Deliver operation in progress on stream \"(.*?)\"$", Pattern.MULTILINE );
     public static final Pattern rxFindActivity = Pattern.compile( "^\\s*Using integration activity \"(.*?)\"\\.$", Pattern.MULTILINE );
     public static final Pattern rxFindViewTag  = Pattern.compile( "^\\s*Using view \"(.*?)\"\\.$", Pattern.MULTILINE );
+    public static final Pattern rxFindTarget   = Pattern.compile( "^\\s*Baselines will be delivered to the .*?target stream \"(.*?)\"", Pattern.MULTILINE );
 
     public static class Status {
         private DeliverStatus status;
         private Stream sourceStream;
         private Activity activity;
         private String viewTag;
+        private Stream targetStream;
+        private boolean posted;
 
         private Status() {}
 
@@ -317,6 +336,7 @@ public class Deliver {
             Status s = new Status();
 
             s.status = stringToStatus( statusString );
+            s.posted = statusString.contains( "Operation posted from" );
             if( s.status.equals( DeliverStatus.DELIVER_IN_PROGRESS ) ) {
 
                 Matcher streamName   = rxFindStream.matcher( statusString );
@@ -327,6 +347,16 @@ public class Deliver {
                     s.sourceStream = Stream.get( streamName.group( 1 ) );
                     s.activity = Activity.get( activityName.group( 1 ), s.sourceStream.getPVob() );
                     s.viewTag = viewTag.group( 1 );
+
+                    Matcher target = rxFindTarget.matcher( statusString );
+                    if( target.find() ) {
+                        s.targetStream = Stream.get( target.group( 1 ) );
+                    }
+                } else if( s.posted ) {
+                    /* A delivery posted from another replica does not use a view here */
+                    if( streamName.reset().find() ) {
+                        s.sourceStream = Stream.get( streamName.group( 1 ) );
+                    }
                 } else {
                     throw new CleartoolException( "Unable to find deliver elements" );
                 }
@@ -347,6 +377,20 @@ public class Deliver {
             return sourceStream;
         }
 
+        /**
+         * @return The stream delivered to, or null if the status does not tell
+         */
+        public Stream getTargetStream() {
+            return targetStream;
+        }
+
+        /**
+         * @return True if the delivery was posted from another replica
+         */
+        public boolean isPosted() {
+            return posted;
+        }
+
         public boolean isInProgress() {
             return status.equals( DeliverStatus.DELIVER_IN_PROGRESS );
         }
@@ -0,0 +1,259 @@
+package net.praqma.clearcase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.logging.Logger;
+
+import net.praqma.clearcase.cleartool.CleartoolExecutor;
+import net.praqma.clearcase.exceptions.ClearCaseException;
+import net.praqma.clearcase.ucm.entities.Project;
+import net.praqma.clearcase.ucm.entities.Stream;
+
+/**
+ * The deliver status of a set of streams, read with concurrent <code>deliver -status</code> commands.<br>
+ * A snapshot does not change. {@link #get(Project, DeliverSnapshot)} can reuse the snapshot of a project for a time to live, so the
+ * lookups of one poll cycle share one sweep of the project's streams.
+ *
+ * The time to live is read from the system property <code>cool.deliver.snapshot.ttl</code> in milliseconds, default is 0, taking
+ * a new snapshot every time. The number of concurrent commands is read from <code>cool.deliver.snapshot.parallelism</code>, default is 8.
+ *
+ * @author cwolfgang
+ */
+public class DeliverSnapshot {
+
+    private static final Logger logger = Logger.getLogger( DeliverSnapshot.class.getName() );
+
+    private static volatile long ttl = Long.getLong( "cool.deliver.snapshot.ttl", 0 );
+    private static volatile int parallelism = Math.max( 1, Integer.getInteger( "cool.deliver.snapshot.parallelism", 8 ) );
+
+    private static final Map<Project, DeliverSnapshot> snapshots = new HashMap<Project, DeliverSnapshot>();
+
+    /* The status of every stream, in the order of the streams */
+    private final Map<Stream, Deliver.Status> statuses;
+
+    /* The deliveries in progress, by source stream */
+    private final Map<Stream, Deliver.Status> deliveries;
+
+    private final long created;
+
+    private DeliverSnapshot( Map<Stream, Deliver.Status> statuses ) {
+        this.statuses = Collections.unmodifiableMap( statuses );
+        this.created = System.currentTimeMillis();
+
+        Map<Stream, Deliver.Status> deliveries = new LinkedHashMap<Stream, Deliver.Status>();
+        for( Map.Entry<Stream, Deliver.Status> entry : statuses.entrySet() ) {
+            if( isDelivering( entry.getKey(), entry.getValue() ) ) {
+                deliveries.put( entry.getKey(), entry.getValue() );
+            }
+        }
+        this.deliveries = Collections.unmodifiableMap( deliveries );
+    }
+
+    /* The status is about a delivery from the stream itself */
+    private static boolean isDelivering( Stream stream, Deliver.Status status ) {
+        return status.isInProgress() && stream.equals( status.getSourceStream() );
+    }
+
+    /**
+     * Get the snapshot of the streams of a project, reusing a snapshot younger than the time to live
+     * @param project The {@link Project}
+     * @return The {@link DeliverSnapshot}
+     * @throws ClearCaseException If the streams could not be listed or a deliver status could not be read
+     */
+    public static DeliverSnapshot get( Project project ) throws ClearCaseException {
+        return get( project, null );
+    }
+
+    /**
+     * Get the snapshot of the streams of a project, reusing a snapshot younger than the time to live.
+     * A new snapshot does not read the status of the streams already in <code>known</code> again.
+     * @param project The {@link Project}
+     * @param known A snapshot of some of the streams, or null
+     * @return The {@link DeliverSnapshot}
+     * @throws ClearCaseException If the streams could not be listed or a deliver status could not be read
+     */
+    public static DeliverSnapshot get( Project project, DeliverSnapshot known ) throws ClearCaseException {
+        if( ttl > 0 ) {
+            synchronized( snapshots ) {
+                evict();
+                DeliverSnapshot snapshot = snapshots.get( project );
+                if( snapshot != null ) {
+                    logger.fine( "Reusing the deliver status of " + project + " from " + snapshot.getAge() + " ms ago" );
+                    return snapshot;
+                }
+            }
+        }
+
+        DeliverSnapshot snapshot = take( project.getStreams(), parallelism, known );
+        if( ttl > 0 ) {
+            synchronized( snapshots ) {
+                snapshots.put( project, snapshot );
+            }
+        }
+
+        return snapshot;
+    }
+
+    /* Remove the snapshots older than the time to live */
+    private static void evict() {
+        for( Iterator<DeliverSnapshot> it = snapshots.values().iterator() ; it.hasNext() ; ) {
+            if( it.next().getAge() >= ttl ) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Forget the snapshot of the project, for example after starting or completing a delivery
+     */
+    public static void invalidate( Project project ) {
+        synchronized( snapshots ) {
+            snapshots.remove( project );
+        }
+    }
+
+    /**
+     * Forget all snapshots
+     */
+    public static void clear() {
+        synchronized( snapshots ) {
+            snapshots.clear();
+        }
+    }
+
+    public static void setTimeToLive( long millis ) {
+        ttl = Math.max( 0, millis );
+        if( ttl == 0 ) {
+            clear();
+        }
+    }
+
+    public static long getTimeToLive() {
+        return ttl;
+    }
+
+    public static void setParallelism( int threads ) {
+        parallelism = Math.max( 1, threads );
+    }
+
+    public static int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Read the deliver status of the streams with at most <code>parallelism</code> concurrent commands
+     * @param streams The streams
+     * @param parallelism The maximum number of concurrent deliver -status commands
+     * @return A new {@link DeliverSnapshot}
+     * @throws ClearCaseException The failure of the first stream, in the order of the streams, whose status could not be read
+     */
+    public static DeliverSnapshot take( List<Stream> streams, int parallelism ) throws ClearCaseException {
+        return take( streams, parallelism, null );
+    }
+
+    /**
+     * Read the deliver status of the streams not in <code>known</code> with at most <code>parallelism</code> concurrent commands
+     * @param streams The streams
+     * @param parallelism The maximum number of concurrent deliver -status commands
+     * @param known A snapshot of some of the streams, or null
+     * @return A new {@link DeliverSnapshot}
+     * @throws ClearCaseException The failure of the first stream, in the order of the streams, whose status could not be read
+     */
+    public static DeliverSnapshot take( List<Stream> streams, int parallelism, DeliverSnapshot known ) throws ClearCaseException {
+        List<Stream> unknown = new ArrayList<Stream>( streams.size() );
+        List<Callable<Deliver.Status>> tasks = new ArrayList<Callable<Deliver.Status>>( streams.size() );
+        for( final Stream stream : streams ) {
+            if( known == null || known.getStatus( stream ) == null ) {
+                unknown.add( stream );
+                tasks.add( new Callable<Deliver.Status>() {
+                    @Override
+                    public Deliver.Status call() throws Exception {
+                        return stream.getDeliverStatus();
+                    }
+                } );
+            }
+        }
+
+        logger.fine( "Reading the deliver status of " + unknown.size() + " of " + streams.size() + " streams" );
+        List<Deliver.Status> results = CleartoolExecutor.invokeAll( tasks, parallelism );
+        Map<Stream, Deliver.Status> read = new HashMap<Stream, Deliver.Status>( unknown.size() );
+        for( int i = 0 ; i < unknown.size() ; ++i ) {
+            read.put( unknown.get( i ), results.get( i ) );
+        }
+
+        Map<Stream, Deliver.Status> statuses = new LinkedHashMap<Stream, Deliver.Status>( streams.size() );
+        for( Stream stream : streams ) {
+            Deliver.Status status = read.get( stream );
+            statuses.put( stream, status != null ? status : known.getStatus( stream ) );
+        }
+
+        return new DeliverSnapshot( statuses );
+    }
+
+    /**
+     * @return The deliveries in progress, by source stream, in the order of the streams
+     */
+    public Map<Stream, Deliver.Status> getDeliveries() {
+        return deliveries;
+    }
+
+    /**
+     * @return The status of the stream, or null if it is not part of the snapshot
+     */
+    public Deliver.Status getStatus( Stream stream ) {
+        return statuses.get( stream );
+    }
+
+    /**
+     * @return The first stream delivering, or null if none are
+     */
+    public Stream getDeliveringStream() {
+        return deliveries.isEmpty() ? null : deliveries.keySet().iterator().next();
+    }
+
+    /**
+     * Find the first of the streams delivering. The status of a stream not part of the snapshot is read.
+     * @param streams The streams
+     * @return The first stream delivering, or null if none are
+     * @throws ClearCaseException If the status of a stream could not be read
+     */
+    public Stream getDeliveringStream( List<Stream> streams ) throws ClearCaseException {
+        for( Stream stream : streams ) {
+            Deliver.Status status = statuses.get( stream );
+            if( status == null ) {
+                status = stream.getDeliverStatus();
+            }
+
+            if( isDelivering( stream, status ) ) {
+                return stream;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The streams in the snapshot
+     */
+    public List<Stream> getStreams() {
+        return new ArrayList<Stream>( statuses.keySet() );
+    }
+
+    /**
+     * @return The number of milliseconds since the snapshot was taken
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - created;
+    }
+
+    @Override
+    public String toString() {
+        return "DeliverSnapshot[" + statuses.size() + " streams, " + deliveries.size() + " delivering, " + getAge() + " ms old]";
+    }
+}
@@ -1,6 +1,8 @@
 package net.praqma.clearcase;
 
 import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.CleartoolIterator;
+import net.praqma.clearcase.cleartool.LineHandler;
 import net.praqma.clearcase.exceptions.CleartoolException;
 import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
 import net.praqma.clearcase.ucm.entities.Version;
@@ -177,6 +179,31 @@ public class Find {
         return versions;
     }
 
+    /**
+     * Find the objects and hand each line of output to the handler as soon as cleartool prints it
+     * @param handler The {@link LineHandler}, returning false stops the find
+     * @return False if the handler stopped the find early
+     */
+    public boolean find( LineHandler handler ) throws CleartoolException {
+        logger.fine( "Streaming objects from ClearCase" );
+        String cmd = getCommandLine();
+
+        try {
+            return Cleartool.stream( cmd, viewRoot, acceptErrors, handler );
+        } catch( AbnormalProcessTerminationException e ) {
+            throw new CleartoolException( "Error while finding", e );
+        }
+    }
+
+    /**
+     * Find the objects and iterate the lines of output as cleartool prints them.
+     * A failure is thrown while iterating, as an {@link AbnormalProcessTerminationException}.
+     * @return The {@link CleartoolIterator}, which must be closed unless it is iterated to the end
+     */
+    public CleartoolIterator iterate() {
+        return Cleartool.iterate( getCommandLine(), viewRoot, acceptErrors );
+    }
+
     public String getCommandLine() {
         StringBuilder sb = new StringBuilder();
         sb.append( "find" );
@@ -178,7 +178,11 @@ public class Rebase {
                 throw new RebaseException(String.format("Conflicts found in configuration. Unable to rebase %s. Make sure your configuration do not contain baselines with different versions of the same component.", stream),this,e) ;
             }
             throw new RebaseException("Unable to rebase "+this.stream, this, e );
-		}
+		} finally {
+            if( complete && stream != null ) {
+                stream.resetRecommendedBaselines();
+            }
+        }
     }
 
 	public boolean rebase( boolean complete ) throws RebaseException {
@@ -225,6 +229,8 @@ public class Rebase {
             Cleartool.run( cmd );
         } catch (AbnormalProcessTerminationException ex) {
             throw new CleartoolException( "Unable to complete rebase of " + stream, ex );
+        } finally {
+            stream.resetRecommendedBaselines();
         }
     }
 
@@ -1,11 +1,19 @@
 package net.praqma.clearcase.api;
 
 import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.CleartoolExecutor;
+import net.praqma.clearcase.cleartool.CleartoolIterator;
+import net.praqma.clearcase.cleartool.LineHandler;
 import net.praqma.clearcase.exceptions.CleartoolException;
 import net.praqma.util.execute.AbnormalProcessTerminationException;
 import net.praqma.util.execute.CmdResult;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -28,8 +36,57 @@ public abstract class Command<RT extends Object> {
         }
     }
 
+    /**
+     * Run the command and hand the output to the {@link LineHandler} as it is produced
+     * @return False if the handler stopped the command early
+     */
+    protected boolean streamCommand( LineHandler handler ) throws CleartoolException {
+        String cmd = getCommandLine();
+
+        try {
+            return Cleartool.stream( cmd, root, handler );
+        } catch( AbnormalProcessTerminationException e ) {
+            throw new CleartoolException( "Unable to run " + getCommand(), e );
+        }
+    }
+
+    /**
+     * Run the command and iterate the output as it is produced. A failure is thrown while iterating, as an {@link AbnormalProcessTerminationException}.
+     * @return The {@link CleartoolIterator}, which must be closed unless it is iterated to the end
+     */
+    protected CleartoolIterator iterateCommand() {
+        return Cleartool.iterate( getCommandLine(), root );
+    }
+
     public abstract RT execute() throws CleartoolException;
 
+    /**
+     * Execute the command in the {@link CleartoolExecutor}. The command must not be changed until it has finished.
+     * @return The {@link Future} result of {@link #execute()}, {@link CleartoolExecutor#get(Future)} unwraps a failure
+     */
+    public Future<RT> executeAsync() {
+        return CleartoolExecutor.submit( new Callable<RT>() {
+            @Override
+            public RT call() throws CleartoolException {
+                return execute();
+            }
+        } );
+    }
+
+    /**
+     * Execute the commands concurrently and wait for all of them
+     * @return The results in the order of the commands
+     * @throws CleartoolException The first failure, the remaining commands are cancelled
+     */
+    public static <T> List<T> executeAll( Collection<? extends Command<T>> commands ) throws CleartoolException {
+        List<Future<T>> futures = new ArrayList<Future<T>>( commands.size() );
+        for( Command<T> command : commands ) {
+            futures.add( command.executeAsync() );
+        }
+
+        return CleartoolExecutor.getAll( futures );
+    }
+
     public abstract String getCommandLine();
 
     public abstract String getCommand();
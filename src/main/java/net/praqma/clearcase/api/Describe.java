@@ -1,16 +1,20 @@
 package net.praqma.clearcase.api;
 
+import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.RetryPolicy;
 import net.praqma.clearcase.exceptions.CleartoolException;
 import net.praqma.clearcase.ucm.entities.UCMEntity;
 import net.praqma.util.execute.CmdResult;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 /**
  * @author cwolfgang
@@ -21,6 +25,12 @@ public class Describe extends Command<List<String>> {
 
     private String itemSeparator = "\n";
 
+    /**
+     * Terminates the output of each object when describing several objects with a format
+     */
+    public static final String recordSeparator = "{-eor-}";
+    private static final Pattern rx_recordSeparator = Pattern.compile( Pattern.quote( recordSeparator ) );
+
     private boolean acceptEmpty = false;
 
     public enum Type {
@@ -81,6 +91,10 @@ public class Describe extends Command<List<String>> {
             return this;
         }
 
+        public String getName() {
+            return name;
+        }
+
         public boolean isCommaSeparated() {
             return commaSeparated;
         }
@@ -126,14 +140,47 @@ public class Describe extends Command<List<String>> {
 
     private List<Property> properties = new ArrayList<Property>(  );
 
-    private String objectSelector;
+    /**
+     * A raw format string, used instead of the properties
+     */
+    private String format;
+
+    private List<String> objectSelectors = new ArrayList<String>(  );
 
     public Describe( String objectSelector ) {
-        this.objectSelector = objectSelector;
+        this.objectSelectors.add( objectSelector );
     }
 
     public Describe( UCMEntity entity ) {
-        this.objectSelector = entity.getFullyQualifiedName();
+        this.objectSelectors.add( entity.getFullyQualifiedName() );
+    }
+
+    /**
+     * Describe several entities in one invocation. Use {@link #executeRecords()} to get the output per entity.
+     * @param entities The entities to describe
+     */
+    public Describe( Collection<? extends UCMEntity> entities ) {
+        for( UCMEntity entity : entities ) {
+            this.objectSelectors.add( entity.getFullyQualifiedName() );
+        }
+    }
+
+    public Describe addObjectSelector( String objectSelector ) {
+        this.objectSelectors.add( objectSelector );
+
+        return this;
+    }
+
+    /**
+     * Use a raw -fmt string. When given, the properties are ignored.
+     * @param format The format
+     * @return Current {@link net.praqma.clearcase.api.Describe} command
+     */
+    public Describe setFormat( String format ) {
+        this.format = format;
+        type = Type.FMT;
+
+        return this;
     }
 
     public Describe addModifier( Property property ) {
@@ -182,11 +229,40 @@ public class Describe extends Command<List<String>> {
         return result.stdoutList;
     }
     
+    /**
+     * Execute the describe and split the output into one record per object selector, in the order they were given.
+     * Requires a format, see {@link #setFormat(String)}.
+     * @return A list of records, one per object
+     * @throws net.praqma.clearcase.exceptions.CleartoolException Thrown when ClearCase reports errors or the number of records does not match
+     */
+    public List<String> executeRecords() throws CleartoolException {
+        if( format == null ) {
+            throw new IllegalStateException( "Records require a format" );
+        }
+
+        CmdResult result = runCommand();
+        String[] rs = rx_recordSeparator.split( result.stdoutBuffer.toString(), -1 );
+
+        /* The output ends with a separator, the last element is what follows it */
+        List<String> records = new ArrayList<String>( rs.length );
+        for( int i = 0 ; i < rs.length - 1 ; ++i ) {
+            records.add( rs[i] );
+        }
+
+        if( records.size() != objectSelectors.size() ) {
+            throw new CleartoolException( "Expected " + objectSelectors.size() + " records, got " + records.size() );
+        }
+
+        return records;
+    }
+
+    /**
+     * Get the first line of the output
+     * @param robust Retry an empty result with the {@link RetryPolicy} of {@link Cleartool}
+     * @return The first line, or null if the result is empty and empty results are accepted
+     * @throws CleartoolException If the command failed, or the result is empty and empty results are not accepted
+     */
     public String executeGetFirstLine(boolean robust) throws CleartoolException {
-        int retryCnt = 3;
-        long retryInterval = 30*1000;
-        String res = null;
-        
         if (!robust) {
             CmdResult result = runCommand();
 
@@ -199,29 +275,16 @@ public class Describe extends Command<List<String>> {
                     throw new CleartoolException( "No results found" );
                 }
             }
-        } else {            
-            for (int i = 0; i<retryCnt; i++) {
-                try {
-                    return executeGetFirstLine(false);
-                } catch (CleartoolException ex) {
-                    if (ex.getMessage().contains("No results found")) {
-                        logger.log(Level.WARNING, String.format("Failed to describe revision. Attempt number %s. Retrying in 30 seconds", i+1 ));
-                    } else {
-                        throw ex;
-                    }
-                }                
-                try {
-                    Thread.sleep(retryInterval);
-                } catch (InterruptedException ex) {
-                   throw new CleartoolException("Thread sleep failed.");
+        } else {
+            /* The object may not be visible yet, try at least three times 30 seconds apart. Transient errors are already retried by Cleartool.run */
+            RetryPolicy policy = Cleartool.getRetryPolicy().copy().clearRetryable().addRetryable( "No results found" );
+            policy.setAttempts( Math.max( 3, policy.getAttempts() ) ).setInitialDelay( 30000 ).setMaxDelay( 30000 );
+            return policy.execute( getCommandLine(), new RetryPolicy.Attempt<String, CleartoolException>() {
+                @Override
+                public String run() throws CleartoolException {
+                    return executeGetFirstLine( false );
                 }
-            }
-            
-            if(acceptEmpty) {
-                return null;
-            } else {
-                throw new CleartoolException( "No results found" );
-            } 
+            } );
         }
     }
  
@@ -251,6 +314,11 @@ public class Describe extends Command<List<String>> {
 
         switch( type ) {
             case FMT:
+                if( format != null ) {
+                    b.append( format ).append( recordSeparator );
+                    break;
+                }
+
                 if( properties.size() > 0 ) {
                     int i = 0;
                     for( ; i < properties.size() - 1 ; ++i ) {
@@ -269,10 +337,12 @@ public class Describe extends Command<List<String>> {
                 break;
         }
 
-        if( hasWhiteSpaces( objectSelector ) || hasSpecialCharacters( objectSelector ) ) {
-            b.append( " \"" ).append( objectSelector ).append( "\"" );
-        } else {
-            b.append( " " ).append( objectSelector );
+        for( String objectSelector : objectSelectors ) {
+            if( hasWhiteSpaces( objectSelector ) || hasSpecialCharacters( objectSelector ) ) {
+                b.append( " \"" ).append( objectSelector ).append( "\"" );
+            } else {
+                b.append( " " ).append( objectSelector );
+            }
         }
 
         return b.toString();
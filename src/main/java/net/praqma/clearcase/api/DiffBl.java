@@ -1,5 +1,7 @@
 package net.praqma.clearcase.api;
 
+import net.praqma.clearcase.cleartool.CleartoolIterator;
+import net.praqma.clearcase.cleartool.LineHandler;
 import net.praqma.clearcase.exceptions.CleartoolException;
 import net.praqma.clearcase.interfaces.Diffable;
 import net.praqma.util.execute.CmdResult;
@@ -63,6 +65,22 @@ public class DiffBl extends Command<List<String>> {
         return result.stdoutList;
     }
 
+    /**
+     * Execute the diff without buffering the output
+     * @param handler Receives the lines of the diff
+     * @return False if the handler stopped the diff early
+     */
+    public boolean execute( LineHandler handler ) throws CleartoolException {
+        return streamCommand( handler );
+    }
+
+    /**
+     * @return The lines of the output as they are produced, the {@link CleartoolIterator} must be closed unless it is iterated to the end
+     */
+    public CleartoolIterator iterate() {
+        return iterateCommand();
+    }
+
     @Override
     public String getCommandLine() {
         StringBuilder sb = new StringBuilder();
@@ -1,6 +1,8 @@
 package net.praqma.clearcase.api;
 
 import net.praqma.clearcase.Branch;
+import net.praqma.clearcase.cleartool.CleartoolIterator;
+import net.praqma.clearcase.cleartool.LineHandler;
 import net.praqma.clearcase.exceptions.CleartoolException;
 import net.praqma.util.execute.CmdResult;
 
@@ -70,6 +72,22 @@ public class ListVersionTree extends Command<List<String>> {
         return result.stdoutList;
     }
 
+    /**
+     * Execute the listing without buffering the output
+     * @param handler Receives the lines of the output
+     * @return False if the handler stopped the listing early
+     */
+    public boolean execute( LineHandler handler ) throws CleartoolException {
+        return streamCommand( handler );
+    }
+
+    /**
+     * @return The lines of the output as they are produced, the {@link CleartoolIterator} must be closed unless it is iterated to the end
+     */
+    public CleartoolIterator iterate() {
+        return iterateCommand();
+    }
+
     @Override
     public String getCommand() {
         return "lsvtree";
@@ -1,5 +1,7 @@
 package net.praqma.clearcase.api;
 
+import net.praqma.clearcase.cleartool.CleartoolIterator;
+import net.praqma.clearcase.cleartool.LineHandler;
 import net.praqma.clearcase.exceptions.CleartoolException;
 import net.praqma.util.execute.CmdResult;
 
@@ -129,6 +131,22 @@ public class ListVob extends Command<List<String>> {
 
     }
 
+    /**
+     * Execute the listing without buffering the output
+     * @param handler Receives the lines of the output
+     * @return False if the handler stopped the listing early
+     */
+    public boolean execute( LineHandler handler ) throws CleartoolException {
+        return streamCommand( handler );
+    }
+
+    /**
+     * @return The lines of the output as they are produced, the {@link CleartoolIterator} must be closed unless it is iterated to the end
+     */
+    public CleartoolIterator iterate() {
+        return iterateCommand();
+    }
+
     @Override
     public String getCommandLine() {
         StringBuilder b = new StringBuilder(  );
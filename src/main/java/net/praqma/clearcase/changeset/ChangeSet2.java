@@ -2,7 +2,10 @@ package net.praqma.clearcase.changeset;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -14,11 +17,14 @@ import net.praqma.clearcase.Cool;
 import net.praqma.clearcase.cleartool.Cleartool;
 import net.praqma.clearcase.exceptions.CleartoolException;
 import net.praqma.clearcase.exceptions.UnableToLoadEntityException;
+import net.praqma.clearcase.ucm.entities.UCMEntity;
 import net.praqma.clearcase.ucm.entities.Version;
 import net.praqma.clearcase.ucm.entities.Version.Status;
 import net.praqma.util.execute.AbnormalProcessTerminationException;
 
 public class ChangeSet2 extends Cool {
+
+	private static final Logger logger = Logger.getLogger( ChangeSet2.class.getName() );
 	
 	private static final Pattern rx_diffAction = Pattern.compile( "^-{5}\\[\\s*(.+)\\s*\\]-{5}$" );
 	private static final Pattern rx_diffFileName = Pattern.compile( "^..(.*)\\s+--\\d+.*$" );
@@ -126,47 +132,107 @@ public class ChangeSet2 extends Cool {
 		return list;
 	}
 
+	/**
+	 * Find elements that were moved, that is deleted under one name and added under the same name with the same element object id.
+	 * The added element is changed, remembering the old file, and the deleted element is removed.<br>
+	 * The elements are indexed by name and object id, and the previous versions and object ids are found with two describe commands.
+	 */
 	public void checkOverlap() {
-		Set<File> files = elements.keySet();
+		/* Index the elements by name, keeping their order */
+		Map<String, List<File>> byName = new LinkedHashMap<String, List<File>>();
+		for( File file : elements.keySet() ) {
+			List<File> files = byName.get( file.getName() );
+			if( files == null ) {
+				files = new ArrayList<File>( 1 );
+				byName.put( file.getName(), files );
+			}
+			files.add( file );
+		}
+
+		/* Only a deleted element with an added element of the same name can be moved */
+		List<File> deleted = new ArrayList<File>();
+		List<File> added = new ArrayList<File>();
+		for( List<File> files : byName.values() ) {
+			if( files.size() < 2 ) {
+				continue;
+			}
+
+			List<File> d = new ArrayList<File>();
+			List<File> a = new ArrayList<File>();
+			for( File file : files ) {
+				Status status = elements.get( file ).getStatus();
+				if( status.equals( Status.DELETED ) ) {
+					d.add( file );
+				} else if( status.equals( Status.ADDED ) ) {
+					a.add( file );
+				}
+			}
+
+			if( !d.isEmpty() && !a.isEmpty() ) {
+				deleted.addAll( d );
+				added.addAll( a );
+			}
+		}
+
+		if( deleted.isEmpty() ) {
+			return;
+		}
+
+		/* The previous versions of the deleted elements */
+		Set<String> versions = new LinkedHashSet<String>();
+		for( File file : deleted ) {
+			versions.add( elements.get( file ).getOrigin().getFullyQualifiedName() );
+		}
+		Map<String, String> previous = describe( versions, "%PVn" );
+
+		/* The object ids of the deleted elements in their previous versions, and of the added elements */
+		Map<File, String> oldNames = new HashMap<File, String>();
+		for( File file : deleted ) {
+			String oldver = previous.get( elements.get( file ).getOrigin().getFullyQualifiedName() );
+			if( oldver != null ) {
+				oldNames.put( file, elements.get( file ).getOrigin().getFile().getAbsolutePath() + "@@" + oldver + filesep + file.getName() + "@@" );
+			}
+		}
+
+		Map<File, String> newNames = new HashMap<File, String>();
+		for( File file : added ) {
+			newNames.put( file, elements.get( file ).getOrigin().getFullyQualifiedName() + filesep + file.getName() + "@@" );
+		}
+
+		Set<String> names = new LinkedHashSet<String>( oldNames.values() );
+		names.addAll( newNames.values() );
+		Map<String, String> oids = describe( names, "%On" );
+
+		/* Index the added elements by name and object id */
+		Map<String, List<File>> addedByOid = new HashMap<String, List<File>>();
+		for( File file : added ) {
+			String oid = oids.get( newNames.get( file ) );
+			if( oid != null ) {
+				String key = file.getName() + "@" + oid;
+				List<File> files = addedByOid.get( key );
+				if( files == null ) {
+					files = new ArrayList<File>( 1 );
+					addedByOid.put( key, files );
+				}
+				files.add( file );
+			}
+		}
+
 		List<File> deletes = new ArrayList<File>();
+		for( File file : deleted ) {
+			String oid = oldNames.containsKey( file ) ? oids.get( oldNames.get( file ) ) : null;
+			List<File> moved = oid != null ? addedByOid.get( file.getName() + "@" + oid ) : null;
+			if( moved == null ) {
+				continue;
+			}
 
-		for( File file1 : files ) {
-			for( File file2 : files ) {
-				if( !file1.equals( file2 ) ) {
-					/* Naming overlap */
-					if( file1.getName().equals( file2.getName() ) ) {
-						/* Check if one of the is deleted */
-						try {
-							/* file1 is deleted */
-							if( elements.get( file1 ).getStatus().equals( Status.DELETED ) ) {
-								String oldver = getPreviousVersion( elements.get( file1 ).getOrigin().getFullyQualifiedName(), null );
-								String oldoid = getObjectId( elements.get( file1 ).getOrigin().getFile().getAbsolutePath() + "@@" + oldver + filesep + file1.getName() + "@@", null );
-
-								String newoid = getObjectId( elements.get( file2 ).getOrigin().getFullyQualifiedName() + filesep + file2.getName() + "@@", null );
-
-								//System.out.println( "file1: " + oldver + " + " + oldoid );
-								//System.out.println( "file1: " + newoid );
-
-								if( oldoid.equals( newoid ) ) {
-									//System.out.println( "Object id overlap" );
-									if( elements.get( file2 ).getStatus().equals( Status.ADDED ) ) {
-										//System.out.println( "Potential move of dir" );
-
-										elements.get( file2 ).setStatus( Status.CHANGED );
-										elements.get( file2 ).setOldFile( file1 );
-										//elements.remove( file1 );
-										deletes.add( file1 );
-									}
-								}
-								/* None of them were deleted */
-							} else {
-								continue;
-							}
-						} catch( CleartoolException e ) {
-							// TODO Auto-generated catch block
-							e.printStackTrace();
-						}
-					}
+			for( File file2 : moved ) {
+				ChangeSetElement2 element = elements.get( file2 );
+				/* An element can only be moved from one place */
+				if( element.getStatus().equals( Status.ADDED ) ) {
+					element.setStatus( Status.CHANGED );
+					element.setOldFile( file );
+					deletes.add( file );
 				}
 			}
 		}
@@ -176,6 +242,28 @@ public class ChangeSet2 extends Cool {
 		}
 	}
 
+	/**
+	 * Describe several objects with as few commands as possible, see {@link UCMEntity#describeAll(List, String, File)}.
+	 * @param selectors The object selectors
+	 * @param format The -fmt format of a single object
+	 * @return The output per object selector, objects that could not be described are left out
+	 */
+	protected Map<String, String> describe( Collection<String> selectors, String format ) {
+		List<String> batch = new ArrayList<String>( selectors );
+		List<String> records = UCMEntity.describeAll( batch, format, null );
+
+		Map<String, String> results = new HashMap<String, String>( batch.size() );
+		for( int i = 0 ; i < batch.size() ; ++i ) {
+			if( records.get( i ) != null ) {
+				results.put( batch.get( i ), records.get( i ) );
+			} else {
+				logger.warning( "Unable to describe " + batch.get( i ) );
+			}
+		}
+
+		return results;
+	}
+
 	public String getPreviousVersion( String version, File viewContext ) throws CleartoolException {
 		String cmd = "describe -fmt %PVn " + version;
 
@@ -1,6 +1,11 @@
 package net.praqma.clearcase.cleartool;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,8 +35,160 @@ public abstract class Cleartool extends Cool {
     private static final Logger log = Logger.getLogger(Cleartool.class.getName());
     private static String prefix = "["+Cleartool.class.getSimpleName()+"]"; 
 
+	/**
+	 * Pool of interactive cleartool sessions. Null means that every command forks its own process.
+	 * The size is read from the system property <code>cool.cleartool.sessions</code>, default is 0(disabled).
+	 */
+	private static volatile CleartoolSessionPool sessions = null;
+
+	/**
+	 * Receives a measurement of every command, null when disabled.
+	 * {@link CleartoolStatistics} are installed if the system property <code>cool.cleartool.metrics</code> is true.
+	 */
+	private static volatile CleartoolMetrics metrics = null;
+
+	/**
+	 * The cleartool executable, read from the system property <code>cool.cleartool.executable</code>, default is cleartool from the path.
+	 */
+	private static volatile String executable = System.getProperty( "cool.cleartool.executable", "cleartool" );
+
+	/**
+	 * Shares concurrent executions of identical read only commands, null when disabled.
+	 * Enabled if the system property <code>cool.cleartool.coalesce</code> is true.
+	 */
+	private static volatile CleartoolCoalescer coalescer = null;
+
+	/**
+	 * Retries and timeouts of commands, see {@link RetryPolicy#fromSystemProperties()}
+	 */
+	private static volatile RetryPolicy retryPolicy = RetryPolicy.fromSystemProperties();
+
+	/**
+	 * The number of lines a {@link CleartoolIterator} buffers before the process must wait
+	 */
+	public static final int ITERATOR_CAPACITY = 1024;
+
+	/**
+	 * Fails commands immediately while out of licenses, null when disabled, see {@link LicenseCircuitBreaker#fromSystemProperties()}
+	 */
+	private static volatile LicenseCircuitBreaker licenses = LicenseCircuitBreaker.fromSystemProperties();
+
 	static {
 		cli = CommandLine.getInstance();
+		setSessionPoolSize( Integer.getInteger( "cool.cleartool.sessions", 0 ) );
+		if( Boolean.getBoolean( "cool.cleartool.metrics" ) ) {
+			setMetrics( new CleartoolStatistics() );
+		}
+		setCoalescing( Boolean.getBoolean( "cool.cleartool.coalesce" ) );
+	}
+
+	/**
+	 * Set the {@link CleartoolMetrics} receiving a measurement of every cleartool command. Null disables the measurements.
+	 * @param metrics The {@link CleartoolMetrics}
+	 */
+	public static void setMetrics( CleartoolMetrics metrics ) {
+		Cleartool.metrics = metrics;
+	}
+
+	public static CleartoolMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Set the cleartool executable, for example the full path of a specific installation or a fake for testing.
+	 * Sessions already started in the pool keep their executable.
+	 * @param executable The executable, null restores the default
+	 */
+	public static void setExecutable( String executable ) {
+		Cleartool.executable = executable != null ? executable : "cleartool";
+	}
+
+	public static String getExecutable() {
+		return executable;
+	}
+
+	/**
+	 * Enable or disable coalescing of identical read only commands, see {@link CleartoolCoalescer}
+	 * @param coalesce True to let concurrent callers of the same command share one execution
+	 */
+	public static synchronized void setCoalescing( boolean coalesce ) {
+		if( coalesce && coalescer == null ) {
+			log.config( prefix + " Coalescing concurrent read only commands" );
+			coalescer = new CleartoolCoalescer();
+		} else if( !coalesce ) {
+			coalescer = null;
+		}
+	}
+
+	/**
+	 * Set the {@link RetryPolicy} of all commands. Read only commands failing with a transient error are retried, and every command is
+	 * terminated when it exceeds its timeout.
+	 * @param policy The {@link RetryPolicy}, null restores the default
+	 */
+	public static void setRetryPolicy( RetryPolicy policy ) {
+		Cleartool.retryPolicy = policy != null ? policy : RetryPolicy.fromSystemProperties();
+	}
+
+	public static RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Set the {@link LicenseCircuitBreaker} of all commands. Null disables it, and every command runs cleartool.
+	 * @param breaker The {@link LicenseCircuitBreaker}
+	 */
+	public static void setLicenseCircuitBreaker( LicenseCircuitBreaker breaker ) {
+		Cleartool.licenses = breaker;
+	}
+
+	/**
+	 * @return The {@link LicenseCircuitBreaker}, or null when disabled
+	 */
+	public static LicenseCircuitBreaker getLicenseCircuitBreaker() {
+		return licenses;
+	}
+
+	/**
+	 * @return The {@link CleartoolCoalescer}, or null when coalescing is disabled
+	 */
+	public static CleartoolCoalescer getCoalescer() {
+		return coalescer;
+	}
+
+	/**
+	 * Get the sub command of a command line, that is the first word
+	 * @param cmd The cleartool command, without the leading <code>cleartool</code>
+	 * @return The sub command
+	 */
+	public static String getSubCommand( String cmd ) {
+		String c = cmd.trim();
+		int i = 0;
+		while( i < c.length() && !Character.isWhitespace( c.charAt( i ) ) ) {
+			i++;
+		}
+
+		return c.substring( 0, i );
+	}
+
+	/**
+	 * Set the number of interactive cleartool sessions kept alive. 0 disables the pool.
+	 * @param size The maximum number of concurrent cleartool sessions
+	 */
+	public static synchronized void setSessionPoolSize( int size ) {
+		if( sessions != null ) {
+			sessions.close();
+			sessions = null;
+		}
+
+		if( size > 0 ) {
+			log.config( prefix + " Using " + size + " interactive cleartool sessions" );
+			sessions = new CleartoolSessionPool( size );
+		}
+	}
+
+	public static int getSessionPoolSize() {
+		CleartoolSessionPool pool = sessions;
+		return pool != null ? pool.getSize() : 0;
 	}
 
 	public static CmdResult run( String cmd ) throws CommandLineException, AbnormalProcessTerminationException {
@@ -50,23 +207,323 @@ public abstract class Cleartool extends Cool {
 		return _run( cmd, dir, merge, ignore );
 	}
 	
-	private static CmdResult _run( String cmd, File dir, boolean merge, boolean ignore ) throws CommandLineException, AbnormalProcessTerminationException {
+	private static CmdResult _run( final String cmd, final File dir, final boolean merge, final boolean ignore ) throws CommandLineException, AbnormalProcessTerminationException {
+		/* Only read only commands are retried, a failed modification may have been partially done */
+		RetryPolicy policy = retryPolicy;
+		if( policy.getAttempts() > 1 && CleartoolCoalescer.isReadOnly( cmd ) ) {
+			return policy.execute( cmd, new RetryPolicy.Attempt<CmdResult, RuntimeException>() {
+				@Override
+				public CmdResult run() {
+					return attempt( cmd, dir, merge, ignore );
+				}
+			} );
+		}
+
+		return attempt( cmd, dir, merge, ignore );
+	}
+
+	private static CmdResult attempt( String cmd, File dir, boolean merge, boolean ignore ) throws CommandLineException, AbnormalProcessTerminationException {
+		CleartoolCoalescer c = coalescer;
+		if( c != null && c.accepts( cmd ) ) {
+			return c.run( cmd, dir, merge, ignore );
+		}
+
+		return measure( cmd, dir, merge, ignore );
+	}
+
+	static CmdResult measure( String cmd, File dir, boolean merge, boolean ignore ) throws CommandLineException, AbnormalProcessTerminationException {
+		CleartoolMetrics m = metrics;
+		if( m == null ) {
+			return execute( cmd, dir, merge, ignore );
+		}
+
+		long start = System.nanoTime();
+		long output = 0;
+		boolean failed = true;
 		try {
-			return cli.run( "cleartool " + cmd, dir, merge, ignore );
-		} catch( AbnormalProcessTerminationException e ) {			
-			/* Validate exit errors */
-			if( e.getMessage().contains( "cleartool: command not found" ) ) {
-				throw new CleartoolNotInstalledException( "Cleartool not installed", e );
-			} else if( e.getMessage().contains( "FLEXnet Licensing error:-15,570" )) {
-				throw new NoLicenseServerException( "No license server available", e );
-			} else if( e.getMessage().contains( "FLEXnet Licensing error:-18,147" )) {
-				throw new NoLicensesException( "No licenses available", e );
-			} else if( e.getMessage().contains( "There are no valid licenses in the NT registry for ClearCase" )) {
-				throw new NoLicensesException( "No licenses available", e );
-			} else {
-                log.log(Level.SEVERE, "Unspecified cleartool error", e);
-				throw e;
+			CmdResult result = execute( cmd, dir, merge, ignore );
+			if( result.stdoutBuffer != null ) {
+				output = result.stdoutBuffer.length();
 			}
+			failed = false;
+			return result;
+		} finally {
+			m.record( getSubCommand( cmd ), System.nanoTime() - start, output, failed );
+		}
+	}
+
+	private static CmdResult execute( String cmd, File dir, boolean merge, boolean ignore ) throws CommandLineException, AbnormalProcessTerminationException {
+		long timeout = retryPolicy.getTimeout( cmd );
+		LicenseCircuitBreaker breaker = licenses;
+		if( breaker != null ) {
+			breaker.acquire( cmd );
+		}
+
+		AbnormalProcessTerminationException failure = null;
+		try {
+			CleartoolSessionPool pool = sessions;
+			if( pool != null && pool.accepts( cmd ) ) {
+				CmdResult result = pool.run( cmd, dir, merge, ignore, timeout );
+				if( result != null ) {
+					return result;
+				}
+			}
+
+			/* A command with a timeout must run in a process that can be terminated */
+			if( timeout > 0 ) {
+				return collect( cmd, dir, merge, ignore, timeout );
+			}
+
+			return cli.run( executable + " " + cmd, dir, merge, ignore );
+		} catch( AbnormalProcessTerminationException e ) {
+			failure = validate( e );
+			throw failure;
+		} finally {
+			if( breaker != null ) {
+				breaker.release( failure );
+			}
+		}
+	}
+
+	/**
+	 * Run a command as its own process and collect the output
+	 */
+	private static CmdResult collect( String cmd, File dir, boolean merge, boolean ignore, long timeout ) throws AbnormalProcessTerminationException {
+		final CmdResult result = new CmdResult();
+		result.stdoutList = new ArrayList<String>();
+		result.stdoutBuffer = new StringBuffer();
+		Execution execution = spawn( cmd, dir, merge, timeout, new LineHandler() {
+			@Override
+			public boolean handle( String line ) {
+				if( !result.stdoutList.isEmpty() ) {
+					result.stdoutBuffer.append( linesep );
+				}
+				result.stdoutList.add( line );
+				result.stdoutBuffer.append( line );
+				return true;
+			}
+		} );
+
+		if( execution.exitValue != 0 && !ignore ) {
+			throw new AbnormalProcessTerminationException( execution.errors.length() > 0 ? execution.errors : result.stdoutBuffer.toString(), cmd );
+		}
+
+		return result;
+	}
+
+	/**
+	 * Run a cleartool command and hand its output to the handler line by line, as the process produces it.<br>
+	 * The output is never held in memory. If the handler returns false the process is terminated and no further lines are read.
+	 * Error output is not merged and only reported through the exception.
+	 * The timeout of the {@link RetryPolicy} applies, but the command is not retried, since the handler may already have received output.
+	 * @param cmd The cleartool command
+	 * @param dir The working directory, null for the current
+	 * @param handler The {@link LineHandler} receiving the lines
+	 * @return False if the handler stopped the command before all output was read
+	 */
+	public static boolean stream( String cmd, File dir, LineHandler handler ) throws CommandLineException, AbnormalProcessTerminationException {
+		return stream( cmd, dir, false, handler );
+	}
+
+	public static boolean stream( String cmd, File dir, boolean ignore, LineHandler handler ) throws CommandLineException, AbnormalProcessTerminationException {
+		CleartoolMetrics m = metrics;
+		if( m == null ) {
+			return _stream( cmd, dir, ignore, handler );
+		}
+
+		long start = System.nanoTime();
+		CountingLineHandler counter = new CountingLineHandler( handler );
+		boolean failed = true;
+		try {
+			boolean completed = _stream( cmd, dir, ignore, counter );
+			failed = false;
+			return completed;
+		} finally {
+			m.record( getSubCommand( cmd ), System.nanoTime() - start, counter.output, failed );
+		}
+	}
+
+	/**
+	 * Run a cleartool command and iterate its output lines as the process produces them.<br>
+	 * At most {@link #ITERATOR_CAPACITY} lines are buffered. The {@link CleartoolIterator} must be closed, unless it is iterated to the end.
+	 * @param cmd The cleartool command
+	 * @param dir The working directory, null for the current
+	 * @param ignore Do not fail if cleartool exits with an error
+	 * @return The {@link CleartoolIterator} of the lines
+	 */
+	public static CleartoolIterator iterate( String cmd, File dir, boolean ignore ) {
+		return new CleartoolIterator( cmd, dir, ignore, ITERATOR_CAPACITY );
+	}
+
+	public static CleartoolIterator iterate( String cmd, File dir ) {
+		return iterate( cmd, dir, false );
+	}
+
+	private static class CountingLineHandler implements LineHandler {
+		private final LineHandler handler;
+		private long output = 0;
+
+		private CountingLineHandler( LineHandler handler ) {
+			this.handler = handler;
+		}
+
+		@Override
+		public boolean handle( String line ) {
+			output += line.length() + 1;
+			return handler.handle( line );
+		}
+	}
+
+	private static boolean _stream( String cmd, File dir, boolean ignore, LineHandler handler ) throws CommandLineException, AbnormalProcessTerminationException {
+		LicenseCircuitBreaker breaker = licenses;
+		if( breaker != null ) {
+			breaker.acquire( cmd );
+		}
+
+		AbnormalProcessTerminationException failure = null;
+		try {
+			Execution execution = spawn( cmd, dir, false, retryPolicy.getTimeout( cmd ), handler );
+			if( execution.completed && execution.exitValue != 0 && !ignore ) {
+				throw new AbnormalProcessTerminationException( execution.errors, cmd );
+			}
+
+			return execution.completed;
+		} catch( AbnormalProcessTerminationException e ) {
+			failure = validate( e );
+			throw failure;
+		} finally {
+			if( breaker != null ) {
+				breaker.release( failure );
+			}
+		}
+	}
+
+	/**
+	 * The outcome of a spawned process
+	 */
+	private static class Execution {
+		private boolean completed = true;
+		private int exitValue = 0;
+		private String errors = "";
+	}
+
+	/**
+	 * Start cleartool as a process and hand its output to the handler
+	 * @param merge Merge the error output into the output
+	 * @param timeout Terminate the process after this many milliseconds, 0 for no timeout
+	 * @throws AbnormalProcessTerminationException If the process could not be run or timed out
+	 */
+	private static Execution spawn( String cmd, File dir, boolean merge, long timeout, LineHandler handler ) throws AbnormalProcessTerminationException {
+		String cmdline = executable + " " + cmd;
+		ProcessBuilder pb;
+		if( Cool.getOS().equals( CommandLineInterface.OperatingSystem.WINDOWS ) ) {
+			pb = new ProcessBuilder( "cmd.exe", "/C", cmdline );
+		} else if( timeout > 0 && !cmd.matches( ".*[;&|].*" ) ) {
+			/* Let cleartool replace the shell, so the watchdog terminates cleartool and not only the shell */
+			pb = new ProcessBuilder( "sh", "-c", "exec " + cmdline );
+		} else {
+			pb = new ProcessBuilder( "sh", "-c", cmdline );
+		}
+		pb.directory( dir );
+		pb.redirectErrorStream( merge );
+
+		final Process process;
+		try {
+			process = pb.start();
+		} catch( IOException e ) {
+			throw new AbnormalProcessTerminationException( "Unable to start " + cmdline + ": " + e.getMessage(), cmd );
+		}
+
+		Watchdog watchdog = Watchdog.start( cmd, timeout, new Runnable() {
+			@Override
+			public void run() {
+				process.destroy();
+			}
+		} );
+
+		/* Error output is collected concurrently, so the process never blocks on a full pipe */
+		final InputStream stderr = process.getErrorStream();
+		final StringBuilder errors = new StringBuilder();
+		Thread drainer = new Thread( new Runnable() {
+			@Override
+			public void run() {
+				try {
+					BufferedReader reader = new BufferedReader( new InputStreamReader( stderr ) );
+					String line;
+					while( ( line = reader.readLine() ) != null ) {
+						synchronized( errors ) {
+							errors.append( line ).append( linesep );
+						}
+					}
+				} catch( IOException e ) {
+					log.log( Level.FINE, prefix + " Stopped reading error output", e );
+				}
+			}
+		}, "cleartool-stderr" );
+		drainer.setDaemon( true );
+		drainer.start();
+
+		Execution execution = new Execution();
+		try {
+			try {
+				BufferedReader reader = new BufferedReader( new InputStreamReader( process.getInputStream() ) );
+				String line;
+				while( ( line = reader.readLine() ) != null ) {
+					if( !handler.handle( line ) ) {
+						log.fine( prefix + " Output handler stopped " + cmd );
+						execution.completed = false;
+						break;
+					}
+				}
+			} catch( IOException e ) {
+				process.destroy();
+				if( watchdog == null || !watchdog.stop() ) {
+					throw new AbnormalProcessTerminationException( "Unable to read the output of " + cmdline + ": " + e.getMessage(), cmd );
+				}
+			} finally {
+				if( !execution.completed ) {
+					process.destroy();
+				}
+			}
+
+			try {
+				execution.exitValue = process.waitFor();
+				drainer.join();
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				process.destroy();
+				throw new AbnormalProcessTerminationException( "Interrupted while waiting for " + cmdline, cmd );
+			}
+		} finally {
+			if( watchdog != null && watchdog.stop() ) {
+				throw new AbnormalProcessTerminationException( Watchdog.getMessage( cmd, timeout ), cmd );
+			}
+		}
+
+		synchronized( errors ) {
+			execution.errors = errors.toString().trim();
+		}
+
+		return execution;
+	}
+
+	/**
+	 * Map well known failures to specific exceptions
+	 */
+	private static AbnormalProcessTerminationException validate( AbnormalProcessTerminationException e ) {
+		/* Validate exit errors */
+		String message = e.getMessage() != null ? e.getMessage() : "";
+		if( message.contains( "cleartool: command not found" ) ) {
+			return new CleartoolNotInstalledException( "Cleartool not installed", e );
+		} else if( message.contains( "FLEXnet Licensing error:-15,570" )) {
+			return new NoLicenseServerException( "No license server available", e );
+		} else if( message.contains( "FLEXnet Licensing error:-18,147" )) {
+			return new NoLicensesException( "No licenses available", e );
+		} else if( message.contains( "There are no valid licenses in the NT registry for ClearCase" )) {
+			return new NoLicensesException( "No licenses available", e );
+		} else {
+			log.log(Level.SEVERE, "Unspecified cleartool error", e);
+			return e;
 		}
 	}
 }
@@ -0,0 +1,122 @@
+package net.praqma.clearcase.cleartool;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import net.praqma.util.execute.AbnormalProcessTerminationException;
+import net.praqma.util.execute.CmdResult;
+
+/**
+ * Coalesces identical read only cleartool commands running at the same time.<br>
+ * The first caller of a command runs it, callers arriving with the same command and working directory while it runs wait for it and
+ * get the same {@link CmdResult}, or the same exception. Nothing is cached, a command arriving after the execution finished runs again.
+ * The result is shared between the callers, so it must not be modified.
+ *
+ * @author cwolfgang
+ */
+public class CleartoolCoalescer {
+
+    private static final Logger logger = Logger.getLogger( CleartoolCoalescer.class.getName() );
+
+    /**
+     * Sub commands that never modify anything. <code>find</code> is not included, since it can run commands through -exec.
+     */
+    public static final Set<String> readOnly = new HashSet<String>( Arrays.asList( "describe", "desc", "lsbl", "lsbaseline", "lsstream", "lsproject", "lsproj", "lscomp",
+            "lsactivity", "lsact", "lsvob", "lsview", "lsfolder", "lstype", "lshistory", "lsvtree", "lsco", "lscheckout", "ls", "catcs", "pwv", "diffbl" ) );
+
+    /* Sub commands that are read only with -status */
+    private static final Set<String> status = new HashSet<String>( Arrays.asList( "deliver", "rebase" ) );
+
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * Determine whether a command can be shared
+     * @param cmd The cleartool command
+     * @return True if the command can be coalesced
+     */
+    public boolean accepts( String cmd ) {
+        return isReadOnly( cmd );
+    }
+
+    /**
+     * Determine whether a command only reads, and therefore can be shared or retried
+     * @param cmd The cleartool command
+     * @return True if the command does not modify anything
+     */
+    public static boolean isReadOnly( String cmd ) {
+        String sub = Cleartool.getSubCommand( cmd );
+        if( readOnly.contains( sub ) ) {
+            return true;
+        }
+
+        return status.contains( sub ) && cmd.contains( " -status" );
+    }
+
+    /**
+     * @return The number of commands that were answered by another caller's execution
+     */
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    CmdResult run( String cmd, File dir, boolean merge, boolean ignore ) throws AbnormalProcessTerminationException {
+        String key = getKey( cmd, dir, merge, ignore );
+
+        Flight flight = new Flight();
+        Flight running = flights.putIfAbsent( key, flight );
+        if( running != null ) {
+            coalesced.incrementAndGet();
+            logger.finest( "Waiting for running " + cmd );
+            return running.await( cmd );
+        }
+
+        try {
+            flight.result = Cleartool.measure( cmd, dir, merge, ignore );
+        } catch( RuntimeException e ) {
+            flight.exception = e;
+        } finally {
+            /* Later callers start their own execution */
+            flights.remove( key, flight );
+            flight.done.countDown();
+        }
+
+        return flight.get();
+    }
+
+    private static String getKey( String cmd, File dir, boolean merge, boolean ignore ) {
+        return ( dir != null ? dir.getAbsolutePath() : "" ) + "\u0000" + merge + ignore + "\u0000" + cmd;
+    }
+
+    private static class Flight {
+        private final CountDownLatch done = new CountDownLatch( 1 );
+        private volatile CmdResult result;
+        private volatile RuntimeException exception;
+
+        private CmdResult await( String cmd ) {
+            try {
+                done.await();
+            } catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new AbnormalProcessTerminationException( "Interrupted while waiting for " + cmd, cmd );
+            }
+
+            return get();
+        }
+
+        private CmdResult get() {
+            if( exception != null ) {
+                throw exception;
+            }
+
+            return result;
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package net.praqma.clearcase.cleartool;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.praqma.clearcase.exceptions.ClearCaseException;
+import net.praqma.clearcase.exceptions.CleartoolException;
+
+/**
+ * The executor running asynchronous cleartool commands, see {@link net.praqma.clearcase.api.Command#executeAsync()}.<br>
+ * By default a thread per task executor with virtual threads is used when the runtime has them, otherwise a fixed pool of daemon threads.
+ * The size of the pool is read from the system property <code>cool.cleartool.async.threads</code>, default is 8.
+ * Virtual threads do not limit the number of concurrent cleartool processes, use the session pool or set a bounded executor with
+ * {@link #setExecutor(ExecutorService)} for that.
+ *
+ * @author cwolfgang
+ */
+public abstract class CleartoolExecutor {
+
+    private static final Logger logger = Logger.getLogger( CleartoolExecutor.class.getName() );
+
+    private static ExecutorService executor = null;
+
+    private CleartoolExecutor() {}
+
+    /**
+     * Set the executor running asynchronous commands. The previous executor is not shut down. Null restores the default.
+     * @param executor The {@link ExecutorService}
+     */
+    public static synchronized void setExecutor( ExecutorService executor ) {
+        CleartoolExecutor.executor = executor;
+    }
+
+    public static synchronized ExecutorService getExecutor() {
+        if( executor == null ) {
+            executor = getDefaultExecutor();
+        }
+
+        return executor;
+    }
+
+    /**
+     * Submit a task to the executor
+     */
+    public static <T> Future<T> submit( Callable<T> task ) {
+        return getExecutor().submit( task );
+    }
+
+    /**
+     * Wait for a future and unwrap the failure of the task
+     * @param future The {@link Future} of a command
+     * @return The result of the command
+     * @throws CleartoolException If the command failed or the wait was interrupted
+     */
+    public static <T> T get( Future<T> future ) throws CleartoolException {
+        try {
+            return future.get();
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            future.cancel( true );
+            throw new CleartoolException( "Interrupted while waiting for cleartool", e );
+        } catch( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if( cause instanceof CleartoolException ) {
+                throw (CleartoolException) cause;
+            } else if( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            } else if( cause instanceof Error ) {
+                throw (Error) cause;
+            }
+            throw new CleartoolException( "Cleartool failed", (Exception) cause );
+        }
+    }
+
+    /**
+     * Wait for all futures, in order
+     * @return The results in the order of the futures
+     * @throws CleartoolException The first failure, the remaining futures are cancelled
+     */
+    public static <T> List<T> getAll( Collection<Future<T>> futures ) throws CleartoolException {
+        List<T> results = new ArrayList<T>( futures.size() );
+        try {
+            for( Future<T> future : futures ) {
+                results.add( get( future ) );
+            }
+        } catch( CleartoolException e ) {
+            cancel( futures );
+            throw e;
+        } catch( RuntimeException e ) {
+            cancel( futures );
+            throw e;
+        }
+
+        return results;
+    }
+
+    /**
+     * Run the tasks with at most <code>parallelism</code> of them running at the same time. The tasks are started in order, and the
+     * calling thread runs tasks too. With a parallelism of 1, or a single task, all of them run in the calling thread.
+     * @param tasks The tasks
+     * @param parallelism The maximum number of tasks running at the same time
+     * @return The results in the order of the tasks
+     * @throws ClearCaseException The failure of the first task, in the order of the tasks, as thrown by the task. The tasks not started are cancelled
+     */
+    public static <T> List<T> invokeAll( List<? extends Callable<T>> tasks, int parallelism ) throws ClearCaseException {
+        final List<FutureTask<T>> futures = new ArrayList<FutureTask<T>>( tasks.size() );
+        for( Callable<T> task : tasks ) {
+            futures.add( new FutureTask<T>( task ) );
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int i;
+                while( ( i = next.getAndIncrement() ) < futures.size() ) {
+                    futures.get( i ).run();
+                }
+            }
+        };
+
+        /* The calling thread is one of the workers, so the tasks progress even when it is itself a thread of a saturated executor */
+        int workers = Math.min( Math.max( 1, parallelism ), futures.size() );
+        for( int i = 1 ; i < workers ; ++i ) {
+            getExecutor().submit( worker );
+        }
+        worker.run();
+
+        List<T> results = new ArrayList<T>( futures.size() );
+        boolean done = false;
+        try {
+            for( FutureTask<T> future : futures ) {
+                try {
+                    results.add( future.get() );
+                } catch( ExecutionException e ) {
+                    Throwable cause = e.getCause();
+                    if( cause instanceof ClearCaseException ) {
+                        throw (ClearCaseException) cause;
+                    } else if( cause instanceof RuntimeException ) {
+                        throw (RuntimeException) cause;
+                    } else if( cause instanceof Error ) {
+                        throw (Error) cause;
+                    }
+                    throw new CleartoolException( "Cleartool failed", (Exception) cause );
+                }
+            }
+            done = true;
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new CleartoolException( "Interrupted while waiting for cleartool", e );
+        } finally {
+            if( !done ) {
+                /* Running commands are left to complete */
+                for( FutureTask<T> future : futures ) {
+                    future.cancel( false );
+                }
+            }
+        }
+
+        return results;
+    }
+
+    private static <T> void cancel( Collection<Future<T>> futures ) {
+        for( Future<T> future : futures ) {
+            future.cancel( true );
+        }
+    }
+
+    private static ExecutorService getDefaultExecutor() {
+        /* Virtual threads, if the runtime has them. Looked up reflectively, since COOL is built for older runtimes */
+        try {
+            Method m = Executors.class.getMethod( "newVirtualThreadPerTaskExecutor" );
+            ExecutorService virtual = (ExecutorService) m.invoke( null );
+            logger.config( "Running asynchronous cleartool commands in virtual threads" );
+            return virtual;
+        } catch( NoSuchMethodException e ) {
+            logger.finest( "No virtual threads available" );
+        } catch( Exception e ) {
+            logger.log( Level.FINE, "Unable to create a virtual thread executor", e );
+        }
+
+        int threads = Math.max( 1, Integer.getInteger( "cool.cleartool.async.threads", 8 ) );
+        logger.config( "Running asynchronous cleartool commands in " + threads + " threads" );
+        return Executors.newFixedThreadPool( threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread( Runnable r ) {
+                Thread thread = new Thread( r, "cleartool-async-" + count.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+}
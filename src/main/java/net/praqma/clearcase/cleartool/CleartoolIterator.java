@@ -0,0 +1,136 @@
+package net.praqma.clearcase.cleartool;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import net.praqma.util.execute.AbnormalProcessTerminationException;
+
+/**
+ * Iterates the output lines of a cleartool command while it runs, see {@link Cleartool#iterate(String, File, boolean)}.<br>
+ * The command runs in its own thread and at most <code>capacity</code> lines are buffered, the process waits while the buffer is full.
+ * A failure of the command is thrown by {@link #hasNext()} as an {@link AbnormalProcessTerminationException}.
+ * The iterator must be closed if it is not iterated to the end, which terminates the process.
+ *
+ * @author cwolfgang
+ */
+public class CleartoolIterator implements Iterator<String>, Closeable {
+
+    private static final Logger logger = Logger.getLogger( CleartoolIterator.class.getName() );
+
+    /* Marks the end of the output, compared by identity */
+    private static final String END = new String( "END" );
+
+    private final String cmd;
+    private final BlockingQueue<String> queue;
+    private volatile boolean closed = false;
+    private volatile RuntimeException failure = null;
+
+    private String next = null;
+    private boolean done = false;
+
+    CleartoolIterator( final String cmd, final File dir, final boolean ignore, int capacity ) {
+        this.cmd = cmd;
+        this.queue = new ArrayBlockingQueue<String>( Math.max( 1, capacity ) );
+
+        Thread producer = new Thread( new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Cleartool.stream( cmd, dir, ignore, new LineHandler() {
+                        @Override
+                        public boolean handle( String line ) {
+                            return put( line );
+                        }
+                    } );
+                } catch( RuntimeException e ) {
+                    failure = e;
+                } finally {
+                    put( END );
+                }
+            }
+        }, "cleartool-iterator" );
+        producer.setDaemon( true );
+        producer.start();
+    }
+
+    /* Wait for room in the buffer, returns false if the iterator was closed meanwhile */
+    private boolean put( String line ) {
+        try {
+            while( !closed ) {
+                if( queue.offer( line, 100, TimeUnit.MILLISECONDS ) ) {
+                    return true;
+                }
+            }
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if( next != null ) {
+            return true;
+        }
+        if( done ) {
+            return false;
+        }
+
+        String line;
+        try {
+            line = queue.take();
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new AbnormalProcessTerminationException( "Interrupted while reading the output of " + cmd, cmd );
+        }
+
+        if( line == END ) {
+            done = true;
+            if( failure != null ) {
+                throw failure;
+            }
+            return false;
+        }
+
+        next = line;
+        return true;
+    }
+
+    @Override
+    public String next() {
+        if( !hasNext() ) {
+            throw new NoSuchElementException();
+        }
+
+        String line = next;
+        next = null;
+        return line;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Stop the command, the lines not yet iterated are discarded
+     */
+    @Override
+    public void close() {
+        if( !closed ) {
+            logger.fine( "Closing the output of " + cmd );
+            closed = true;
+            done = true;
+            next = null;
+            queue.clear();
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package net.praqma.clearcase.cleartool;
+
+/**
+ * Receives a measurement for every cleartool invocation, see {@link Cleartool#setMetrics(CleartoolMetrics)}.<br>
+ * Implementations are called concurrently from all threads running cleartool and must be thread safe.
+ *
+ * @author cwolfgang
+ */
+public interface CleartoolMetrics {
+
+    /**
+     * Record a finished cleartool command
+     * @param command The sub command, for example <code>describe</code> or <code>lsbl</code>
+     * @param nanos The wall clock time of the command in nanoseconds
+     * @param output The number of characters of output
+     * @param failed True if the command failed
+     */
+    public void record( String command, long nanos, long output, boolean failed );
+}
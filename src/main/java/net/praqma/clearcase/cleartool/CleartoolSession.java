@@ -0,0 +1,288 @@
+package net.praqma.clearcase.cleartool;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.praqma.clearcase.Cool;
+import net.praqma.util.execute.AbnormalProcessTerminationException;
+import net.praqma.util.execute.CmdResult;
+
+/**
+ * A single long lived interactive cleartool process.<br>
+ * The process is started with <code>cleartool -status</code>, which makes cleartool print
+ * <code>Command N returned status S</code> after each command. That line is used to frame the output
+ * of every command sent through {@link #run(String, File, boolean, boolean)}.
+ *
+ * A session is not thread safe, it is handed out to one caller at a time by {@link CleartoolSessionPool}.
+ *
+ * @author cwolfgang
+ */
+class CleartoolSession {
+
+    private static final Logger logger = Logger.getLogger( CleartoolSession.class.getName() );
+
+    private static final String prompt = "cleartool> ";
+    private static final Pattern rx_status = Pattern.compile( "^(.*?)Command (\\d+) returned status (\\d+)\\s*$" );
+
+    private final Process process;
+    private final BufferedReader stdout;
+    private final Writer stdin;
+    private final InputStream stderr;
+
+    /* Collected error output, guarded by the lock */
+    private final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+    private final Object lock = new Object();
+
+    /* A session starts in the working directory of the JVM */
+    private File currentDir = getDefaultDirectory();
+    /* The number of commands sent, cleartool numbers its status lines the same way */
+    private int commands = 0;
+    private volatile boolean broken = false;
+
+    private CleartoolSession( Process process ) {
+        this.process = process;
+        this.stdout = new BufferedReader( new InputStreamReader( process.getInputStream() ) );
+        this.stdin = new OutputStreamWriter( process.getOutputStream() );
+        this.stderr = process.getErrorStream();
+
+        Thread drainer = new Thread( new ErrorDrainer(), "cleartool-session-stderr" );
+        drainer.setDaemon( true );
+        drainer.start();
+    }
+
+    /**
+     * Start a new interactive cleartool process
+     * @return A new {@link CleartoolSession}
+     * @throws IOException If cleartool could not be started
+     */
+    static CleartoolSession start() throws IOException {
+        ProcessBuilder pb = new ProcessBuilder( Cleartool.getExecutable(), "-status" );
+        pb.redirectErrorStream( false );
+        logger.fine( "Starting interactive cleartool session" );
+        return new CleartoolSession( pb.start() );
+    }
+
+    /**
+     * Run a single command in this session with the same semantics as {@link net.praqma.util.execute.CommandLineInterface#run(String, File, boolean, boolean)}
+     * @param cmd The cleartool command, without the leading <code>cleartool</code>
+     * @param dir The working directory, null for the working directory of the JVM
+     * @param merge Merge the error output into the standard output
+     * @param ignore Do not throw on a non zero status
+     * @return The {@link CmdResult}
+     */
+    CmdResult run( String cmd, File dir, boolean merge, boolean ignore ) {
+        if( broken ) {
+            throw new AbnormalProcessTerminationException( "The cleartool session is no longer usable", cmd );
+        }
+
+        try {
+            /* A previous command may have changed the directory, a command without one runs where a new process would */
+            File target = dir != null ? dir.getAbsoluteFile() : getDefaultDirectory();
+            if( !target.equals( currentDir ) ) {
+                Reply cd = send( "cd \"" + target.getPath() + "\"" );
+                if( cd.status != 0 ) {
+                    /* The directory of the session is unknown */
+                    currentDir = null;
+                    throw new AbnormalProcessTerminationException( cd.errors.length() > 0 ? cd.errors : "Unable to change directory to " + target, cmd );
+                }
+                currentDir = target;
+            }
+
+            Reply reply = send( cmd );
+
+            CmdResult result = new CmdResult();
+            result.stdoutList = reply.lines;
+            if( merge && reply.errors.length() > 0 ) {
+                for( String line : reply.errors.split( "\\r?\\n" ) ) {
+                    result.stdoutList.add( line );
+                }
+            }
+
+            result.stdoutBuffer = new StringBuffer();
+            for( int i = 0 ; i < result.stdoutList.size() ; ++i ) {
+                if( i > 0 ) {
+                    result.stdoutBuffer.append( Cool.linesep );
+                }
+                result.stdoutBuffer.append( result.stdoutList.get( i ) );
+            }
+
+            if( reply.status != 0 && !ignore ) {
+                throw new AbnormalProcessTerminationException( reply.errors, cmd );
+            }
+
+            return result;
+        } catch( IOException e ) {
+            /* What cleartool wrote before it died tells why, e.g. a missing license */
+            String errors = takeFinalErrors();
+            broken = true;
+            throw new AbnormalProcessTerminationException( "The cleartool session failed: " + e.getMessage() + ( errors.length() > 0 ? Cool.linesep + errors : "" ), cmd );
+        }
+    }
+
+    private static File getDefaultDirectory() {
+        return new File( System.getProperty( "user.dir" ) ).getAbsoluteFile();
+    }
+
+    /**
+     * Write a command line to cleartool and read until the status line
+     */
+    private Reply send( String cmd ) throws IOException {
+        stdin.write( cmd );
+        stdin.write( "\n" );
+        stdin.flush();
+        int number = ++commands;
+
+        Reply reply = new Reply();
+        String line;
+        while( ( line = stdout.readLine() ) != null ) {
+            while( line.startsWith( prompt ) ) {
+                line = line.substring( prompt.length() );
+            }
+
+            /* Only the status line of this command ends it, output may look like a status line */
+            Matcher m = rx_status.matcher( line );
+            if( m.find() && Integer.parseInt( m.group( 2 ) ) == number ) {
+                /* Output not terminated by a newline ends up in front of the status */
+                if( m.group( 1 ).length() > 0 ) {
+                    reply.lines.add( m.group( 1 ) );
+                }
+                reply.status = Integer.parseInt( m.group( 3 ) );
+                reply.errors = takeErrors();
+                return reply;
+            }
+
+            reply.lines.add( line );
+        }
+
+        throw new IOException( "cleartool terminated while running " + cmd );
+    }
+
+    /**
+     * Everything cleartool wrote to stderr before the status line is already in the pipe, wait until it is consumed.
+     */
+    private String takeErrors() throws IOException {
+        synchronized( lock ) {
+            while( stderr.available() > 0 ) {
+                try {
+                    lock.wait( 5 );
+                } catch( InterruptedException e ) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            String s = errors.toString().trim();
+            errors.reset();
+            return s;
+        }
+    }
+
+    /**
+     * The error output of a session that died. Waits a little for the process to exit, so all it wrote is in the pipe.
+     */
+    private String takeFinalErrors() {
+        try {
+            for( int i = 0 ; i < 100 ; ++i ) {
+                try {
+                    process.exitValue();
+                    break;
+                } catch( IllegalThreadStateException e ) {
+                    Thread.sleep( 10 );
+                }
+            }
+
+            return takeErrors();
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            return "";
+        } catch( IOException e ) {
+            logger.log( Level.FINE, "Unable to read the error output of the cleartool session", e );
+            return "";
+        }
+    }
+
+    boolean isUsable() {
+        if( broken ) {
+            return false;
+        }
+
+        try {
+            process.exitValue();
+            return false;
+        } catch( IllegalThreadStateException e ) {
+            /* Still running */
+            return true;
+        }
+    }
+
+    void close() {
+        broken = true;
+        try {
+            stdin.write( "quit\n" );
+            stdin.flush();
+            stdin.close();
+        } catch( IOException e ) {
+            logger.log( Level.FINE, "Unable to quit cleartool session", e );
+        }
+        process.destroy();
+    }
+
+    private static class Reply {
+        private List<String> lines = new ArrayList<String>();
+        private String errors = "";
+        private int status = 0;
+    }
+
+    /**
+     * Drains stderr so cleartool never blocks on a full pipe. Reads only what is available while holding the lock,
+     * so {@link #takeErrors()} knows that nothing is in transit.
+     */
+    private class ErrorDrainer implements Runnable {
+
+        @Override
+        public void run() {
+            byte[] buffer = new byte[4096];
+            try {
+                while( !broken ) {
+                    boolean read = false;
+                    synchronized( lock ) {
+                        int available = stderr.available();
+                        if( available > 0 ) {
+                            int n = stderr.read( buffer, 0, Math.min( available, buffer.length ) );
+                            if( n > 0 ) {
+                                errors.write( buffer, 0, n );
+                                read = true;
+                            }
+                            lock.notifyAll();
+                        }
+                    }
+
+                    if( !read ) {
+                        try {
+                            process.exitValue();
+                            /* Nothing is written after the exit, stop when the pipe is empty */
+                            if( stderr.available() == 0 ) {
+                                return;
+                            }
+                        } catch( IllegalThreadStateException e ) {
+                            Thread.sleep( 5 );
+                        }
+                    }
+                }
+            } catch( Exception e ) {
+                logger.log( Level.FINE, "stderr drainer stopped", e );
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package net.praqma.clearcase.cleartool;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import net.praqma.clearcase.Cool;
+import net.praqma.util.execute.AbnormalProcessTerminationException;
+import net.praqma.util.execute.CmdResult;
+import net.praqma.util.execute.CommandLineInterface.OperatingSystem;
+
+/**
+ * A bounded pool of interactive {@link CleartoolSession}s.<br>
+ * At most <code>size</code> cleartool processes are alive at any time. Callers block until a session is available.
+ *
+ * @author cwolfgang
+ */
+public class CleartoolSessionPool {
+
+    private static final Logger logger = Logger.getLogger( CleartoolSessionPool.class.getName() );
+
+    /* Characters the shell interprets on unix. Commands containing these are written with the shell in mind and are not sent to a session */
+    private static final String unixShellCharacters = "\\$`'|;<>\n\r";
+    private static final String windowsShellCharacters = "|<>^\n\r";
+
+    private final int size;
+    private final Semaphore permits;
+    private final BlockingQueue<CleartoolSession> idle;
+
+    private volatile boolean closed = false;
+
+    public CleartoolSessionPool( int size ) {
+        if( size < 1 ) {
+            throw new IllegalArgumentException( "The pool must hold at least one session" );
+        }
+        this.size = size;
+        this.permits = new Semaphore( size, true );
+        this.idle = new LinkedBlockingQueue<CleartoolSession>( size );
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Determine whether a command can be sent to an interactive session.
+     * Multi line commands and commands relying on shell interpretation are run as a separate process.
+     * @param cmd The cleartool command
+     * @return True if the command can be run in a session
+     */
+    public boolean accepts( String cmd ) {
+        String reserved = Cool.getOS().equals( OperatingSystem.WINDOWS ) ? windowsShellCharacters : unixShellCharacters;
+        for( int i = 0 ; i < cmd.length() ; ++i ) {
+            if( reserved.indexOf( cmd.charAt( i ) ) >= 0 ) {
+                return false;
+            }
+        }
+
+        return !closed;
+    }
+
+    /**
+     * Run a command in a pooled session
+     * @param timeout Close the session if the command runs longer than this many milliseconds, 0 for no timeout
+     * @return The {@link CmdResult}, or null if no session could be started
+     */
+    CmdResult run( String cmd, File dir, boolean merge, boolean ignore, long timeout ) {
+        try {
+            permits.acquire();
+        } catch( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new AbnormalProcessTerminationException( "Interrupted while waiting for a cleartool session", cmd );
+        }
+
+        CleartoolSession session = null;
+        try {
+            session = idle.poll();
+            if( session == null ) {
+                try {
+                    session = CleartoolSession.start();
+                } catch( IOException e ) {
+                    logger.log( Level.WARNING, "Unable to start a cleartool session", e );
+                    return null;
+                }
+            }
+
+            final CleartoolSession s = session;
+            Watchdog watchdog = Watchdog.start( cmd, timeout, new Runnable() {
+                @Override
+                public void run() {
+                    s.close();
+                }
+            } );
+            try {
+                return session.run( cmd, dir, merge, ignore );
+            } finally {
+                if( watchdog != null && watchdog.stop() ) {
+                    throw new AbnormalProcessTerminationException( Watchdog.getMessage( cmd, timeout ), cmd );
+                }
+            }
+        } finally {
+            if( session != null ) {
+                if( !closed && session.isUsable() ) {
+                    idle.offer( session );
+                } else {
+                    session.close();
+                }
+            }
+            permits.release();
+        }
+    }
+
+    /**
+     * Terminate all idle sessions and stop handing out new ones
+     */
+    public void close() {
+        closed = true;
+        CleartoolSession session;
+        while( ( session = idle.poll() ) != null ) {
+            session.close();
+        }
+    }
+}
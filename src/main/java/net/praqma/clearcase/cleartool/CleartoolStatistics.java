@@ -0,0 +1,217 @@
+package net.praqma.clearcase.cleartool;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import net.praqma.clearcase.Cool;
+
+/**
+ * The default {@link CleartoolMetrics}. It counts invocations, failures and output, and keeps a latency histogram per sub command.<br>
+ * The numbers are read with {@link #getSnapshot()}, which can be done at any time while cleartool is running.
+ *
+ * @author cwolfgang
+ */
+public class CleartoolStatistics implements CleartoolMetrics {
+
+    /* The upper bounds of the latency buckets in milliseconds. The last bucket holds everything slower */
+    private static final long[] buckets = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000, 60000 };
+
+    private final ConcurrentMap<String, Counters> commands = new ConcurrentHashMap<String, Counters>();
+
+    /**
+     * @return The upper bounds of the latency buckets in milliseconds. The histogram has one more bucket, holding everything slower.
+     */
+    public static long[] getBuckets() {
+        return buckets.clone();
+    }
+
+    @Override
+    public void record( String command, long nanos, long output, boolean failed ) {
+        Counters counters = commands.get( command );
+        if( counters == null ) {
+            Counters created = new Counters();
+            counters = commands.putIfAbsent( command, created );
+            if( counters == null ) {
+                counters = created;
+            }
+        }
+
+        counters.add( nanos, output, failed );
+    }
+
+    /**
+     * Get the numbers recorded so far, per sub command and sorted by name.
+     * The numbers of a sub command are consistent with each other, the sub commands are not taken at the same instant.
+     */
+    public Map<String, Snapshot> getSnapshot() {
+        Map<String, Snapshot> snapshot = new TreeMap<String, Snapshot>();
+        for( Map.Entry<String, Counters> entry : commands.entrySet() ) {
+            snapshot.put( entry.getKey(), entry.getValue().snapshot( entry.getKey() ) );
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Forget all recorded numbers
+     */
+    public void reset() {
+        commands.clear();
+    }
+
+    /**
+     * @return A table of the recorded numbers, one line per sub command
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for( Snapshot s : getSnapshot().values() ) {
+            sb.append( s ).append( Cool.linesep );
+        }
+
+        return sb.toString();
+    }
+
+    private static int getBucket( long millis ) {
+        for( int i = 0 ; i < buckets.length ; ++i ) {
+            if( millis <= buckets[i] ) {
+                return i;
+            }
+        }
+
+        return buckets.length;
+    }
+
+    private static class Counters {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final AtomicLong output = new AtomicLong();
+        private final AtomicLongArray histogram = new AtomicLongArray( buckets.length + 1 );
+        /* Recording shares the lock, a snapshot excludes recording so it never sees half an invocation */
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private void add( long time, long length, boolean failed ) {
+            lock.readLock().lock();
+            try {
+                addLocked( time, length, failed );
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void addLocked( long time, long length, boolean failed ) {
+            count.incrementAndGet();
+            if( failed ) {
+                failures.incrementAndGet();
+            }
+            nanos.addAndGet( time );
+            output.addAndGet( length );
+            histogram.incrementAndGet( getBucket( time / 1000000 ) );
+
+            long max;
+            while( time > ( max = maxNanos.get() ) && !maxNanos.compareAndSet( max, time ) ) {
+                /* Retry */
+            }
+        }
+
+        private Snapshot snapshot( String command ) {
+            lock.writeLock().lock();
+            try {
+                long[] h = new long[histogram.length()];
+                for( int i = 0 ; i < h.length ; ++i ) {
+                    h[i] = histogram.get( i );
+                }
+
+                return new Snapshot( command, count.get(), failures.get(), nanos.get(), maxNanos.get(), output.get(), h );
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * The numbers of a single sub command at a point in time
+     */
+    public static class Snapshot {
+        private final String command;
+        private final long count;
+        private final long failures;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long output;
+        private final long[] histogram;
+
+        Snapshot( String command, long count, long failures, long totalNanos, long maxNanos, long output, long[] histogram ) {
+            this.command = command;
+            this.count = count;
+            this.failures = failures;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.output = output;
+            this.histogram = histogram;
+        }
+
+        public String getCommand() {
+            return command;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getFailures() {
+            return failures;
+        }
+
+        public long getTotalMillis() {
+            return totalNanos / 1000000;
+        }
+
+        public long getMaxMillis() {
+            return maxNanos / 1000000;
+        }
+
+        public double getAverageMillis() {
+            return count > 0 ? (double) totalNanos / count / 1000000 : 0;
+        }
+
+        /**
+         * @return The number of characters of output
+         */
+        public long getOutput() {
+            return output;
+        }
+
+        /**
+         * @return The number of invocations per bucket, see {@link CleartoolStatistics#getBuckets()}
+         */
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append( command ).append( ": count=" ).append( count ).append( ", failures=" ).append( failures );
+            sb.append( ", total=" ).append( getTotalMillis() ).append( "ms, avg=" ).append( String.format( "%.1f", getAverageMillis() ) );
+            sb.append( "ms, max=" ).append( getMaxMillis() ).append( "ms, output=" ).append( output ).append( ", histogram=[" );
+            for( int i = 0 ; i < histogram.length ; ++i ) {
+                if( i > 0 ) {
+                    sb.append( " " );
+                }
+                sb.append( i < buckets.length ? "<=" + buckets[i] : ">" + buckets[buckets.length - 1] ).append( ":" ).append( histogram[i] );
+            }
+            sb.append( "]" );
+
+            return sb.toString();
+        }
+    }
+}
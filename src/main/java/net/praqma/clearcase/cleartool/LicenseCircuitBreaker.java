@@ -0,0 +1,231 @@
+package net.praqma.clearcase.cleartool;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+import net.praqma.clearcase.exceptions.NoLicenseServerException;
+import net.praqma.clearcase.exceptions.NoLicensesException;
+import net.praqma.util.execute.AbnormalProcessTerminationException;
+
+/**
+ * Stops running cleartool commands while ClearCase is out of licenses.<br>
+ * When a command fails with a {@link NoLicensesException} or a {@link NoLicenseServerException} the circuit opens, and for the cool down
+ * period every command fails immediately with an exception of the same type, without starting cleartool.
+ * After the cool down a single command is let through as a probe, while the others keep failing. If the probe gets a license the circuit
+ * closes, otherwise it opens for another cool down.<br>
+ * Failures caused by an open circuit are never retried by the {@link RetryPolicy}, see {@link #isRejection(Throwable)}.
+ *
+ * The circuit breaker is disabled by default. It is enabled by setting the cool down of {@link Cleartool} with the system property
+ * <code>cool.cleartool.license.cooldown</code> in milliseconds. While enabled, license failures are not retried by the {@link RetryPolicy},
+ * so the caller gets the error of the command that opened the circuit.
+ *
+ * @author cwolfgang
+ */
+public class LicenseCircuitBreaker {
+
+    private static final Logger logger = Logger.getLogger( LicenseCircuitBreaker.class.getName() );
+
+    public enum State {
+        /** Commands run */
+        CLOSED,
+        /** Commands fail immediately */
+        OPEN,
+        /** A probe is running, other commands fail immediately */
+        HALF_OPEN
+    }
+
+    private volatile State state = State.CLOSED;
+    private volatile long cooldown;
+    private long openedAt = 0;
+    private Thread probe = null;
+    private AbnormalProcessTerminationException lastFailure = null;
+
+    private final AtomicLong trips = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * @param cooldown The number of milliseconds commands fail immediately after a license failure
+     */
+    public LicenseCircuitBreaker( long cooldown ) {
+        setCooldown( cooldown );
+    }
+
+    /**
+     * @return The circuit breaker configured by the system properties, or null if it is disabled
+     */
+    public static LicenseCircuitBreaker fromSystemProperties() {
+        long cooldown = Long.getLong( "cool.cleartool.license.cooldown", 0 );
+        return cooldown > 0 ? new LicenseCircuitBreaker( cooldown ) : null;
+    }
+
+    public LicenseCircuitBreaker setCooldown( long millis ) {
+        this.cooldown = Math.max( 0, millis );
+        return this;
+    }
+
+    public long getCooldown() {
+        return cooldown;
+    }
+
+    /**
+     * Determine whether a failure is a license failure, which opens the circuit
+     */
+    public static boolean isLicenseFailure( Throwable e ) {
+        return e instanceof NoLicensesException || e instanceof NoLicenseServerException;
+    }
+
+    /**
+     * Determine whether a failure, or one of its causes, is an error from the license server
+     */
+    public static boolean isLicenseError( Throwable e ) {
+        for( Throwable t = e ; t != null ; t = t.getCause() == t ? null : t.getCause() ) {
+            if( isLicenseFailure( t ) || ( t.getMessage() != null && t.getMessage().contains( "FLEXnet Licensing error" ) ) ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Determine whether a failure was caused by an open circuit, and not by running cleartool
+     */
+    public static boolean isRejection( Throwable e ) {
+        for( Throwable t = e ; t != null ; t = t.getCause() == t ? null : t.getCause() ) {
+            if( t instanceof Rejection ) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Ask for permission to run a command. Must be followed by {@link #release(Throwable)} when the command has run.
+     * @param cmd The cleartool command
+     * @throws AbnormalProcessTerminationException A license exception if the circuit is open
+     */
+    void acquire( String cmd ) throws AbnormalProcessTerminationException {
+        if( state == State.CLOSED ) {
+            return;
+        }
+
+        synchronized( this ) {
+            if( state == State.CLOSED ) {
+                return;
+            }
+
+            long remaining = getRemaining();
+            if( state == State.OPEN && remaining == 0 ) {
+                logger.info( "Probing the license server with " + cmd );
+                state = State.HALF_OPEN;
+                probe = Thread.currentThread();
+                return;
+            }
+
+            rejected.incrementAndGet();
+            throw reject( cmd, remaining );
+        }
+    }
+
+    /**
+     * Report the outcome of a command allowed by {@link #acquire(String)}
+     * @param failure The failure of the command, null if it succeeded
+     */
+    void release( Throwable failure ) {
+        boolean license = isLicenseFailure( failure );
+        if( state == State.CLOSED && !license ) {
+            return;
+        }
+
+        synchronized( this ) {
+            if( license ) {
+                if( state != State.OPEN ) {
+                    logger.warning( "Out of licenses, failing cleartool commands for " + cooldown + " ms: " + failure.getMessage() );
+                }
+                /* A failed probe opens the circuit again, it is not a new trip */
+                if( state == State.CLOSED ) {
+                    trips.incrementAndGet();
+                }
+                /* Commands started before the circuit opened can still fail, which only extends the cool down */
+                state = State.OPEN;
+                openedAt = System.currentTimeMillis();
+                lastFailure = (AbnormalProcessTerminationException) failure;
+                probe = null;
+            } else if( state == State.HALF_OPEN && probe == Thread.currentThread() ) {
+                /* Cleartool ran, whether the command itself succeeded or not */
+                logger.info( "Licenses available again" );
+                state = State.CLOSED;
+                probe = null;
+            }
+        }
+    }
+
+    private AbnormalProcessTerminationException reject( String cmd, long remaining ) {
+        Rejection rejection = new Rejection( "License circuit open for " + ( remaining > 0 ? "another " + remaining + " ms" : "a running probe" ) + ": "
+                + ( lastFailure != null ? lastFailure.getMessage() : "" ), cmd );
+        if( lastFailure instanceof NoLicenseServerException ) {
+            return new NoLicenseServerException( "No license server available", rejection );
+        } else {
+            return new NoLicensesException( "No licenses available", rejection );
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return The number of milliseconds left of the cool down, 0 if the circuit is not open or a probe may run
+     */
+    public synchronized long getRemaining() {
+        if( state != State.OPEN ) {
+            return 0;
+        }
+
+        return Math.max( 0, openedAt + cooldown - System.currentTimeMillis() );
+    }
+
+    /**
+     * @return The license failure that last opened the circuit, or null if it never opened
+     */
+    public synchronized AbnormalProcessTerminationException getLastFailure() {
+        return lastFailure;
+    }
+
+    /**
+     * @return The number of times the circuit opened
+     */
+    public long getTrips() {
+        return trips.get();
+    }
+
+    /**
+     * @return The number of commands failed without running cleartool
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Close the circuit, for example when the license server is known to be back
+     */
+    public synchronized void reset() {
+        state = State.CLOSED;
+        probe = null;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "LicenseCircuitBreaker[" + state + ", cooldown=" + cooldown + "ms, remaining=" + getRemaining() + "ms, trips=" + trips + ", rejected=" + rejected + "]";
+    }
+
+    /**
+     * The cause of a failure due to an open circuit
+     */
+    private static class Rejection extends AbnormalProcessTerminationException {
+        private Rejection( String message, String cmd ) {
+            super( message, cmd );
+        }
+    }
+}
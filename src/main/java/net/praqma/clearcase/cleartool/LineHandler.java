@@ -0,0 +1,16 @@
+package net.praqma.clearcase.cleartool;
+
+/**
+ * Receives the output of a cleartool command one line at a time, see {@link Cleartool#stream(String, java.io.File, LineHandler)}
+ *
+ * @author cwolfgang
+ */
+public interface LineHandler {
+
+    /**
+     * Handle a single line of output
+     * @param line The line without the line separator
+     * @return False to stop reading, the cleartool process is then terminated
+     */
+    public boolean handle( String line );
+}
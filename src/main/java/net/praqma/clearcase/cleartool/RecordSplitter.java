@@ -0,0 +1,66 @@
+package net.praqma.clearcase.cleartool;
+
+/**
+ * Splits streamed output into the records of a <code>-fmt</code> format ending with a separator, for example <code>%n%c@@@</code>.<br>
+ * A record can span several lines, when a field like the comment contains line breaks, and several records can share a line.
+ * The lines of a record are joined with <code>\n</code>. Output after the last separator is handed on by {@link #flush()}.
+ *
+ * @author cwolfgang
+ */
+public class RecordSplitter implements LineHandler {
+
+    private final String separator;
+    private final LineHandler records;
+    private final StringBuilder buffer = new StringBuilder();
+    private boolean open = false;
+
+    /**
+     * @param separator The text ending a record
+     * @param records Receives the records without the separator
+     */
+    public RecordSplitter( String separator, LineHandler records ) {
+        if( separator == null || separator.length() == 0 ) {
+            throw new IllegalArgumentException( "A record separator must be given" );
+        }
+        this.separator = separator;
+        this.records = records;
+    }
+
+    @Override
+    public boolean handle( String line ) {
+        if( open ) {
+            buffer.append( '\n' );
+        }
+        buffer.append( line );
+
+        int i;
+        while( ( i = buffer.indexOf( separator ) ) >= 0 ) {
+            String record = buffer.substring( 0, i );
+            buffer.delete( 0, i + separator.length() );
+            if( !records.handle( record ) ) {
+                buffer.setLength( 0 );
+                open = false;
+                return false;
+            }
+        }
+
+        open = buffer.length() > 0;
+        return true;
+    }
+
+    /**
+     * Hand on the output after the last separator, if any, as the last record
+     * @return False if the record handler stopped
+     */
+    public boolean flush() {
+        if( !open ) {
+            return true;
+        }
+
+        String record = buffer.toString();
+        buffer.setLength( 0 );
+        open = false;
+
+        return records.handle( record );
+    }
+}
@@ -0,0 +1,285 @@
+package net.praqma.clearcase.cleartool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import net.praqma.clearcase.exceptions.NoLicenseServerException;
+import net.praqma.clearcase.exceptions.NoLicensesException;
+
+/**
+ * How cleartool commands are retried and how long they may run.<br>
+ * A failed attempt is retried if the failure is classified as transient, see {@link #isRetryable(Throwable)}. The delay between attempts
+ * grows exponentially from the initial delay up to the maximum delay, and is spread randomly by the jitter factor.
+ * A timeout can be set for all commands and per sub command. 0 means no timeout. A command that times out is not retried, the timeout is
+ * the longest it may run.
+ *
+ * The policy of {@link Cleartool} is read from the system properties <code>cool.cleartool.retry.attempts</code>,
+ * <code>cool.cleartool.retry.delay</code> and <code>cool.cleartool.timeout</code>, the last two in milliseconds.
+ * The default is a single attempt and no timeout, so nothing is retried unless the number of attempts is set.
+ *
+ * @author cwolfgang
+ */
+public class RetryPolicy {
+
+    private static final Logger logger = Logger.getLogger( RetryPolicy.class.getName() );
+
+    /**
+     * Failures known to be transient: license server hiccups and lost connections to the ClearCase servers
+     */
+    public static final String[] transientErrors = { "FLEXnet Licensing error", "Unable to contact albd_server", "RPC: Unable to receive", "RPC: Timed out",
+            "Communication error" };
+
+    private int attempts = 1;
+    private long initialDelay = 500;
+    private long maxDelay = 30000;
+    private double multiplier = 2.0;
+    private double jitter = 0.2;
+    private long timeout = 0;
+
+    private final Map<String, Long> timeouts = new ConcurrentHashMap<String, Long>();
+    private final List<Pattern> retryable = new CopyOnWriteArrayList<Pattern>();
+    private final List<Class<? extends Exception>> retryableTypes = new CopyOnWriteArrayList<Class<? extends Exception>>();
+
+    private final Random random = new Random();
+
+    /**
+     * A single attempt of an operation
+     */
+    public interface Attempt<T, E extends Exception> {
+        public T run() throws E;
+    }
+
+    public RetryPolicy() {
+        for( String error : transientErrors ) {
+            addRetryable( error );
+        }
+        retryOn( NoLicensesException.class );
+        retryOn( NoLicenseServerException.class );
+    }
+
+    /**
+     * @return The policy configured by the system properties
+     */
+    public static RetryPolicy fromSystemProperties() {
+        RetryPolicy policy = new RetryPolicy();
+        policy.setAttempts( Integer.getInteger( "cool.cleartool.retry.attempts", policy.attempts ) );
+        policy.setInitialDelay( Long.getLong( "cool.cleartool.retry.delay", policy.initialDelay ) );
+        policy.setTimeout( Long.getLong( "cool.cleartool.timeout", policy.timeout ) );
+
+        return policy;
+    }
+
+    /**
+     * @return A copy, which can be changed without affecting this policy
+     */
+    public RetryPolicy copy() {
+        RetryPolicy copy = new RetryPolicy();
+        copy.attempts = attempts;
+        copy.initialDelay = initialDelay;
+        copy.maxDelay = maxDelay;
+        copy.multiplier = multiplier;
+        copy.jitter = jitter;
+        copy.timeout = timeout;
+        copy.timeouts.putAll( timeouts );
+        copy.retryable.clear();
+        copy.retryable.addAll( retryable );
+        copy.retryableTypes.clear();
+        copy.retryableTypes.addAll( retryableTypes );
+
+        return copy;
+    }
+
+    /**
+     * Set the number of attempts, 1 disables retrying
+     */
+    public RetryPolicy setAttempts( int attempts ) {
+        this.attempts = Math.max( 1, attempts );
+        return this;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public RetryPolicy setInitialDelay( long millis ) {
+        this.initialDelay = Math.max( 0, millis );
+        return this;
+    }
+
+    public long getInitialDelay() {
+        return initialDelay;
+    }
+
+    public RetryPolicy setMaxDelay( long millis ) {
+        this.maxDelay = Math.max( 0, millis );
+        return this;
+    }
+
+    public long getMaxDelay() {
+        return maxDelay;
+    }
+
+    public RetryPolicy setMultiplier( double multiplier ) {
+        this.multiplier = Math.max( 1.0, multiplier );
+        return this;
+    }
+
+    /**
+     * Set how much a delay is spread randomly, 0.2 means plus or minus 20 percent
+     */
+    public RetryPolicy setJitter( double jitter ) {
+        this.jitter = Math.min( 1.0, Math.max( 0.0, jitter ) );
+        return this;
+    }
+
+    /**
+     * Set the timeout of all commands without a sub command timeout
+     */
+    public RetryPolicy setTimeout( long millis ) {
+        this.timeout = Math.max( 0, millis );
+        return this;
+    }
+
+    /**
+     * Set the timeout of a sub command, for example <code>lshistory</code>
+     */
+    public RetryPolicy setTimeout( String subCommand, long millis ) {
+        timeouts.put( subCommand, Math.max( 0, millis ) );
+        return this;
+    }
+
+    /**
+     * @param cmd The cleartool command
+     * @return The timeout of the command in milliseconds, 0 for none
+     */
+    public long getTimeout( String cmd ) {
+        Long t = timeouts.get( Cleartool.getSubCommand( cmd ) );
+        return t != null ? t : timeout;
+    }
+
+    /**
+     * Retry failures with a message matching the regular expression
+     */
+    public RetryPolicy addRetryable( String regex ) {
+        retryable.add( Pattern.compile( regex ) );
+        return this;
+    }
+
+    /**
+     * Forget the retryable messages and types, nothing is retried until new ones are added
+     */
+    public RetryPolicy clearRetryable() {
+        retryable.clear();
+        retryableTypes.clear();
+        return this;
+    }
+
+    /**
+     * Retry failures of the type
+     */
+    public RetryPolicy retryOn( Class<? extends Exception> type ) {
+        retryableTypes.add( type );
+        return this;
+    }
+
+    /**
+     * Determine whether a failure is transient. The failure and its causes are checked against the retryable types and messages.
+     * A failure of an open {@link LicenseCircuitBreaker} is never retried. While {@link Cleartool} has a circuit breaker, license errors
+     * are not retried either, the circuit breaker handles them.
+     */
+    public boolean isRetryable( Throwable e ) {
+        if( LicenseCircuitBreaker.isRejection( e ) ) {
+            return false;
+        }
+
+        if( Cleartool.getLicenseCircuitBreaker() != null && LicenseCircuitBreaker.isLicenseError( e ) ) {
+            return false;
+        }
+
+        for( Throwable t = e ; t != null ; t = t.getCause() == t ? null : t.getCause() ) {
+            for( Class<? extends Exception> type : retryableTypes ) {
+                if( type.isInstance( t ) ) {
+                    return true;
+                }
+            }
+
+            if( t.getMessage() != null ) {
+                for( Pattern p : retryable ) {
+                    if( p.matcher( t.getMessage() ).find() ) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @param attempt The number of the failed attempt, starting at 1
+     * @return The delay in milliseconds before the next attempt
+     */
+    public long getDelay( int attempt ) {
+        double delay = Math.min( maxDelay, initialDelay * Math.pow( multiplier, attempt - 1 ) );
+        double spread;
+        synchronized( random ) {
+            spread = ( random.nextDouble() * 2 - 1 ) * jitter;
+        }
+
+        return Math.max( 0, Math.round( delay * ( 1 + spread ) ) );
+    }
+
+    /**
+     * Run an operation, retrying transient failures
+     * @param description What is done, for the log
+     * @param attempt The operation
+     * @return The result of the first successful attempt
+     * @throws E The failure of the last attempt, or the first failure that is not transient
+     */
+    public <T, E extends Exception> T execute( String description, Attempt<T, E> attempt ) throws E {
+        for( int i = 1 ; ; ++i ) {
+            try {
+                return attempt.run();
+            } catch( Exception e ) {
+                if( i >= attempts || !isRetryable( e ) ) {
+                    throw RetryPolicy.<E>rethrow( e );
+                }
+
+                long delay = getDelay( i );
+                logger.warning( "Attempt " + i + " of " + attempts + " failed for " + description + ", retrying in " + delay + " ms: " + e.getMessage() );
+
+                try {
+                    Thread.sleep( delay );
+                } catch( InterruptedException ie ) {
+                    Thread.currentThread().interrupt();
+                    throw RetryPolicy.<E>rethrow( e );
+                }
+            }
+        }
+    }
+
+    /* The attempt can only throw E or unchecked exceptions */
+    @SuppressWarnings( "unchecked" )
+    private static <E extends Exception> E rethrow( Exception e ) throws E {
+        if( e instanceof RuntimeException ) {
+            throw (RuntimeException) e;
+        }
+        throw (E) e;
+    }
+
+    @Override
+    public String toString() {
+        List<String> p = new ArrayList<String>();
+        for( Pattern pattern : retryable ) {
+            p.add( pattern.pattern() );
+        }
+        return "RetryPolicy[attempts=" + attempts + ", delay=" + initialDelay + "-" + maxDelay + "ms, multiplier=" + multiplier + ", jitter=" + jitter
+                + ", timeout=" + timeout + "ms, timeouts=" + timeouts + ", retryable=" + p + "]";
+    }
+}
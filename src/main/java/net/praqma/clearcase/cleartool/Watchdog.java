@@ -0,0 +1,75 @@
+package net.praqma.clearcase.cleartool;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+/**
+ * Terminates a cleartool command that runs longer than its timeout, see {@link RetryPolicy#getTimeout(String)}.
+ * The action given to {@link #start(String, long, Runnable)} must make the blocked reader fail, typically by destroying the process.
+ *
+ * @author cwolfgang
+ */
+class Watchdog {
+
+    private static final Logger logger = Logger.getLogger( Watchdog.class.getName() );
+
+    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+        @Override
+        public Thread newThread( Runnable r ) {
+            Thread thread = new Thread( r, "cleartool-watchdog" );
+            thread.setDaemon( true );
+            return thread;
+        }
+    } );
+
+    private final AtomicBoolean fired = new AtomicBoolean( false );
+    private final ScheduledFuture<?> future;
+    private final long timeout;
+
+    private Watchdog( final String cmd, long timeout, final Runnable action ) {
+        this.timeout = timeout;
+        this.future = scheduler.schedule( new Runnable() {
+            @Override
+            public void run() {
+                fired.set( true );
+                logger.warning( "Terminating " + cmd + " after " + Watchdog.this.timeout + " ms" );
+                action.run();
+            }
+        }, timeout, TimeUnit.MILLISECONDS );
+    }
+
+    /**
+     * @param cmd The command, for the log
+     * @param timeout The timeout in milliseconds, 0 for none
+     * @param action Run when the timeout expires
+     * @return The {@link Watchdog}, or null if there is no timeout
+     */
+    static Watchdog start( String cmd, long timeout, Runnable action ) {
+        return timeout > 0 ? new Watchdog( cmd, timeout, action ) : null;
+    }
+
+    /**
+     * Stop watching
+     * @return True if the timeout expired
+     */
+    boolean stop() {
+        future.cancel( false );
+        return fired.get();
+    }
+
+    long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * The message of a timed out command. It is not one of the transient errors of {@link RetryPolicy}, a timed out command is not retried
+     */
+    static String getMessage( String cmd, long timeout ) {
+        return "Timed out after " + timeout + " ms: " + cmd;
+    }
+}
@@ -1,11 +1,14 @@
 package net.praqma.clearcase.command;
 
 import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.CleartoolExecutor;
 import net.praqma.util.execute.CmdResult;
 
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * User: cwolfgang
@@ -74,4 +77,17 @@ public abstract class Command<T> {
 
         return this;
     }
+
+    /**
+     * Execute the command in the {@link CleartoolExecutor} and {@link #get()} the result. The command must not be changed until it has finished.
+     * @return The {@link Future} result
+     */
+    public Future<T> executeAsync() {
+        return CleartoolExecutor.submit( new Callable<T>() {
+            @Override
+            public T call() {
+                return execute().get();
+            }
+        } );
+    }
 }
@@ -3,6 +3,7 @@ package net.praqma.clearcase.command;
 import net.praqma.clearcase.Branch;
 import net.praqma.clearcase.Type;
 import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.CleartoolExecutor;
 import net.praqma.clearcase.exceptions.CleartoolException;
 import net.praqma.util.execute.AbnormalProcessTerminationException;
 
@@ -10,6 +11,8 @@ import java.io.File;
 import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -85,6 +88,18 @@ public class ListType {
         return getTypes( lines );
     }
 
+    /**
+     * {@link #list()} in the {@link CleartoolExecutor}
+     */
+    public <T extends Type> Future<List<T>> listAsync() {
+        return CleartoolExecutor.submit( new Callable<List<T>>() {
+            @Override
+            public List<T> call() throws CleartoolException {
+                return list();
+            }
+        } );
+    }
+
     public <T extends Type> List<T> getTypes( List<String> lines ) {
         List<T> types = new ArrayList<T>( lines.size() );
 
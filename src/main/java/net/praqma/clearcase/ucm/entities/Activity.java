@@ -11,6 +11,7 @@ import net.praqma.clearcase.PVob;
 import net.praqma.clearcase.api.Describe;
 import net.praqma.clearcase.api.DiffBl;
 import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.LineHandler;
 import net.praqma.clearcase.exceptions.*;
 import net.praqma.util.execute.AbnormalProcessTerminationException;
 
@@ -54,28 +55,35 @@ public class Activity extends UCMEntity {
 	 */
     @Override
 	public Activity load() throws UnableToLoadEntityException {
-		String[] result = new String[2];
-
 		/* The special case branch */
 		if( isSpecialCase() ) {
-			result[0] = "System";
-			result[1] = "";
+			setUser( "System" );
+			headline = "";
+			this.loaded = true;
 		} else {
-			String cmd = "describe -fmt %u{!}%[headline]p " + this;
+			String cmd = "describe -fmt " + getLoadFormat() + " " + this;
 			try {
-				String line = Cleartool.run( cmd ).stdoutBuffer.toString();
-                result = line.split( "\\{!\\}" );
+				populate( Cleartool.run( cmd ).stdoutBuffer.toString() );
 			} catch( AbnormalProcessTerminationException e ) {
 				throw new UnableToLoadEntityException( this, e );
 			}
 		}
 		
-		setUser( result[0].trim() );
-		headline = result[1].trim();
-        this.loaded = true;
-		
 		return this;
 	}
+
+    @Override
+    protected String getLoadFormat() {
+        return isSpecialCase() ? null : "%u{!}%[headline]p";
+    }
+
+    @Override
+    protected void populate( String line ) {
+        String[] result = line.split( "\\{!\\}" );
+        setUser( result[0].trim() );
+        headline = result.length > 1 ? result[1].trim() : "";
+        this.loaded = true;
+    }
 	
 	/**
 	 * Create an activity. If name is null an anonymous activity is created and the return value is null.
@@ -137,7 +145,6 @@ public class Activity extends UCMEntity {
 					current.setSpecialCase( true );
 				}
 				activities.add( current );
-                current.load();
 				continue;
 			}
 
@@ -158,6 +165,9 @@ public class Activity extends UCMEntity {
 		
 		}
 
+		/* Describe the activities in bulk */
+		UCMEntity.loadAll( activities );
+
 		return activities;
 	}
 
@@ -193,6 +203,27 @@ public class Activity extends UCMEntity {
 
         private List<Activity> activities = new ArrayList<Activity>(  );
 
+        /**
+         * The number of versions resolved per batch of describes
+         */
+        private int batchSize = 200;
+
+        private List<Listener> listeners = new ArrayList<Listener>();
+
+        /* Parse state */
+        private Activity current = null;
+        private boolean include = false;
+        private List<Activity> completed = new ArrayList<Activity>();
+        private int pendingVersions = 0;
+
+        /**
+         * Receives the parsed {@link Activity}s while the diff is still running.
+         * The {@link Activity}s are handed over a batch at a time, when their change sets are complete and their {@link Version}s are loaded.
+         */
+        public interface Listener {
+            public void onActivity( Activity activity );
+        }
+
         public Parser( DiffBl diffBl ) {
             this.diffBl = diffBl;
             if( diffBl.getViewRoot() != null ) {
@@ -215,6 +246,16 @@ public class Activity extends UCMEntity {
             return this;
         }
 
+        public Parser setBatchSize( int batchSize ) {
+            this.batchSize = Math.max( batchSize, 1 );
+            return this;
+        }
+
+        public Parser addListener( Listener listener ) {
+            listeners.add( listener );
+            return this;
+        }
+
         private boolean hasDirection( String symbol ) {
             for( Direction direction : directions ) {
                 if( direction.matches( symbol ) ) {
@@ -225,64 +266,136 @@ public class Activity extends UCMEntity {
             return false;
         }
 
+        /**
+         * Parse the output of the diff while it is produced.<br>
+         * Whenever the completed {@link Activity}s have {@link #batchSize} versions, they are loaded with {@link UCMEntity#loadAll(java.util.Collection)}
+         * and handed to the listeners. The diff runs in a process of its own, so it keeps running while a batch is described.
+         */
         public Parser parse() throws ClearCaseException {
-            Activity current = null;
-            boolean include = false;
-
-            List<String> lines = diffBl.execute();
-
-            for( String line : lines ) {
-                logger.finest( "Line: " + line );
-
-			    /* Get activity */
-                Matcher match = pattern_activity2.matcher( line );
-
-                /* This line is a new activity */
-                if( match.find() ) {
-                    /* Test direction */
-                    String symbol = match.group( 1 );
-                    if( hasDirection( symbol ) ) {
-                        current = get( match.group( 2 ) );
-
-                        /* A special case? */
-                        if( current.getShortname().equals( "no_activity" ) ) {
-                            logger.fine( "Recorded a special activity case" );
-                            current.setSpecialCase( true );
-                        }
-                        activities.add( current );
-                        include = true;
-                    } else {
-                        include = false;
+            final ClearCaseException[] error = new ClearCaseException[1];
+
+            diffBl.execute( new LineHandler() {
+                @Override
+                public boolean handle( String line ) {
+                    try {
+                        parseLine( line );
+                        return true;
+                    } catch( ClearCaseException e ) {
+                        error[0] = e;
+                        return false;
                     }
-
-                    continue;
                 }
+            } );
+
+            if( error[0] != null ) {
+                throw error[0];
+            }
+
+            complete();
+            flush();
+
+            return this;
+        }
+
+        private void parseLine( String line ) throws ClearCaseException {
+            logger.finest( "Line: " + line );
+
+            /* Get activity */
+            Matcher match = pattern_activity2.matcher( line );
 
-                if( include ) {
-                    if( current == null ) {
-                        logger.fine( "Current is not an activity: " + line );
-                        continue;
+            /* This line is a new activity */
+            if( match.find() ) {
+                complete();
+
+                /* Test direction */
+                String symbol = match.group( 1 );
+                if( hasDirection( symbol ) ) {
+                    current = get( match.group( 2 ) );
+
+                    /* A special case? */
+                    if( current.getShortname().equals( "no_activity" ) ) {
+                        logger.fine( "Recorded a special activity case" );
+                        current.setSpecialCase( true );
                     }
+                    activities.add( current );
+                    include = true;
+                } else {
+                    include = false;
+                }
 
-                    /* If not an activity, it must be a version */
-                    String f = line.trim();
-
-                    Version v = (Version) UCMEntity.getEntity( Version.class, f );                    
-                    v.setSFile( v.getFile().getAbsolutePath().substring( length ) );
-                    v.setView(diffBl.getViewRoot());
-                    v.setActivity(current);
-                    
-                    if( activityUserAsVersionUser ) {
-                        v.setUser( current.getUser() );
-                    } else {
-                        v.load();
-                    }                    
-                    
-                    current.changeset.versions.add( v );
+                return;
+            }
+
+            if( include ) {
+                if( current == null ) {
+                    logger.fine( "Current is not an activity: " + line );
+                    return;
                 }
+
+                /* If not an activity, it must be a version */
+                String f = line.trim();
+
+                Version v = (Version) UCMEntity.getEntity( Version.class, f );
+                v.setSFile( v.getFile().getAbsolutePath().substring( length ) );
+                v.setView(diffBl.getViewRoot());
+                v.setActivity(current);
+
+                current.changeset.versions.add( v );
             }
+        }
 
-            return this;
+        /**
+         * The current {@link Activity} has no more versions
+         */
+        private void complete() throws ClearCaseException {
+            if( include && current != null ) {
+                completed.add( current );
+                pendingVersions += current.changeset.versions.size();
+            }
+            current = null;
+            include = false;
+
+            if( pendingVersions >= batchSize ) {
+                flush();
+            }
+        }
+
+        /**
+         * Load the {@link Version}s of the completed {@link Activity}s and hand the {@link Activity}s to the listeners
+         */
+        private void flush() throws ClearCaseException {
+            if( completed.isEmpty() ) {
+                return;
+            }
+
+            List<Activity> batch = new ArrayList<Activity>( completed );
+            completed.clear();
+            pendingVersions = 0;
+
+            List<Version> versions = new ArrayList<Version>();
+            for( Activity activity : batch ) {
+                versions.addAll( activity.changeset.versions );
+            }
+
+            if( activityUserAsVersionUser ) {
+                Set<Activity> owners = new LinkedHashSet<Activity>();
+                for( Version v : versions ) {
+                    owners.add( v.getActivity() );
+                }
+                UCMEntity.loadAll( owners );
+
+                for( Version v : versions ) {
+                    v.setUser( v.getActivity().getUser() );
+                }
+            } else {
+                UCMEntity.loadAll( versions );
+            }
+
+            for( Activity activity : batch ) {
+                for( Listener listener : listeners ) {
+                    listener.onActivity( activity );
+                }
+            }
         }
     }
 
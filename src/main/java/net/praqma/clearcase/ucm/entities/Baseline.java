@@ -3,15 +3,14 @@ package net.praqma.clearcase.ucm.entities;
 import java.io.File;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import net.praqma.clearcase.Cool;
 import net.praqma.clearcase.PVob;
-import net.praqma.clearcase.api.Describe;
 import net.praqma.clearcase.cleartool.Cleartool;
 import net.praqma.clearcase.exceptions.*;
 import net.praqma.clearcase.interfaces.Diffable;
@@ -86,13 +85,25 @@ public class Baseline extends UCMEntity implements Diffable {
         
 		String result = "";
 
-		String cmd = "desc -fmt %n" + Cool.delim + "%X[component]p" + Cool.delim + "%X[bl_stream]p" + Cool.delim + "%[plevel]p" + Cool.delim + "%u" + Cool.delim + "%Nd" + Cool.delim + "%[label_status]p" + Cool.delim + "%[master]p " + this;
+		String cmd = "desc -fmt " + getLoadFormat() + " " + this;
 		try {
 			result = Cleartool.run( cmd ).stdoutBuffer.toString();
 		} catch( Exception e ) {
 			throw new UnableToLoadEntityException( this, e );
 		}
 
+		populate( result );
+
+		return this;        
+    }
+
+    @Override
+    protected String getLoadFormat() {
+        return "%n" + Cool.delim + "%X[component]p" + Cool.delim + "%X[bl_stream]p" + Cool.delim + "%[plevel]p" + Cool.delim + "%u" + Cool.delim + "%Nd" + Cool.delim + "%[label_status]p" + Cool.delim + "%[master]p";
+    }
+
+    @Override
+    protected void populate( String result ) throws UnableToInitializeEntityException {
 		String[] rs = result.split( UCMEntity.delim );
         logger.fine( "Result:" + result );
 
@@ -125,8 +136,6 @@ public class Baseline extends UCMEntity implements Diffable {
 		this.mastership = rs[7];
 
 		this.loaded = true;
-
-		return this;        
     }
 
 	/**
@@ -350,6 +359,7 @@ public class Baseline extends UCMEntity implements Diffable {
 		}
 
         this.plevel = plevel;
+        EntityCache.invalidate( this );
 	}
 
     /**
@@ -487,8 +497,8 @@ public class Baseline extends UCMEntity implements Diffable {
 
     /**
      * <p>Get all the composite {@link Baseline}s that are members of this {@link Baseline} given a specific {@link Component}.</p>
-     * <p>That is, {@link Baseline}s that are descendants of this.</p>
-     * @param component A list of components to consider
+     * <p>That is, {@link Baseline}s that are descendants of this. Without a {@link Component} the {@link Baseline}s are not loaded.</p>
+     * @param component A list of components to consider, null for all
      * @return A list of composite member {@link Baseline}s
      * @throws net.praqma.clearcase.exceptions.UnableToInitializeEntityException Thrown when ClearCase reports errors 
      * @throws net.praqma.clearcase.exceptions.CleartoolException Thrown when ClearCase reports errors 
@@ -496,21 +506,22 @@ public class Baseline extends UCMEntity implements Diffable {
     public List<Baseline> getCompositeMemberBaselines( Component component ) throws UnableToInitializeEntityException, CleartoolException {
 		logger.log(Level.FINE, "Getting composite member baselines for {0}{1}", new Object[]{this, component != null ? " and " + component : ""});
 
-        Map<String, String[]> bls_str = new Describe( this ).addModifier( Describe.memberOfClosure ).describe();
-
-		List<Baseline> bls = new ArrayList<Baseline>();
-
-        for( String bl : bls_str.get( "member_of_closure" ) ) {
-            logger.fine( "Baseline " + bl );
-            if(!StringUtils.isBlank(bl)) {
-                Baseline b = Baseline.get( bl );
-                if( component == null || b.getComponent().equals( component ) ) {
-                    bls.add( b );
-                }
-            }
+        /* The closure is only loaded when it is filtered */
+        if( component == null ) {
+            return BaselineClosure.getClosure( this, BaselineClosure.Direction.MEMBERS );
         }
 
-        return bls;
+        return getCompositeMemberClosure().getBaselines( component );
+    }
+
+    /**
+     * Get the composite {@link Baseline}s that are members of this {@link Baseline}, loaded and linked through <code>member_of</code>.
+     * @return The {@link BaselineClosure}
+     * @throws net.praqma.clearcase.exceptions.UnableToInitializeEntityException Thrown when ClearCase reports errors
+     * @throws net.praqma.clearcase.exceptions.CleartoolException Thrown when ClearCase reports errors
+     */
+    public BaselineClosure getCompositeMemberClosure() throws UnableToInitializeEntityException, CleartoolException {
+        return BaselineClosure.read( this, BaselineClosure.Direction.MEMBERS );
     }
 
     /**
@@ -526,8 +537,8 @@ public class Baseline extends UCMEntity implements Diffable {
 
     /**
      * <p>Get all the composite {@link Baseline}s that are dependant on this {@link Baseline} given a specific {@link Component}.
-     * That is, {@link Baseline}s that are ancestors of this.</p>
-     * @param component The {@link Component} to look under
+     * That is, {@link Baseline}s that are ancestors of this. Without a {@link Component} the {@link Baseline}s are not loaded.</p>
+     * @param component The {@link Component} to look under, null for all
      * @return A list of {@link Baseline}s
      * @throws net.praqma.clearcase.exceptions.UnableToInitializeEntityException Thrown when ClearCase reports errors 
      * @throws net.praqma.clearcase.exceptions.CleartoolException Thrown when ClearCase reports errors 
@@ -535,21 +546,21 @@ public class Baseline extends UCMEntity implements Diffable {
     public List<Baseline> getCompositeDependantBaselines( Component component ) throws UnableToInitializeEntityException, CleartoolException {
         logger.fine( "Getting composite dependant baselines for " + this + ( component != null ? " and " + component : "" ) );
 
-        Map<String, String[]> bls_str = new Describe( this ).addModifier( Describe.dependsOnClosure ).describe();
-
-        List<Baseline> bls = new ArrayList<Baseline>();
-
-        for( String bl : bls_str.get( "depends_on_closure" ) ) {
-            logger.log(Level.FINE, "Baseline {0}", bl);
-            if(!StringUtils.isBlank(bl)) {
-                Baseline b = Baseline.get( bl );
-                if( component == null || b.getComponent().equals( component ) ) {
-                    bls.add( b );
-                }
-            }
+        if( component == null ) {
+            return BaselineClosure.getClosure( this, BaselineClosure.Direction.DEPENDANTS );
         }
 
-        return bls;
+        return getCompositeDependantClosure().getBaselines( component );
+    }
+
+    /**
+     * Get the composite {@link Baseline}s that are dependant on this {@link Baseline}, loaded and linked through <code>depends_on</code>.
+     * @return The {@link BaselineClosure}
+     * @throws net.praqma.clearcase.exceptions.UnableToInitializeEntityException Thrown when ClearCase reports errors
+     * @throws net.praqma.clearcase.exceptions.CleartoolException Thrown when ClearCase reports errors
+     */
+    public BaselineClosure getCompositeDependantClosure() throws UnableToInitializeEntityException, CleartoolException {
+        return BaselineClosure.read( this, BaselineClosure.Direction.DEPENDANTS );
     }
 
     /**
@@ -560,6 +571,7 @@ public class Baseline extends UCMEntity implements Diffable {
      */
     public Baseline getRootedBaseline() throws UnableToInitializeEntityException, CleartoolException {
         List<Baseline> baselines = getCompositeDependantBaselines();
+        loadComponentRootDirs( baselines );
 
         /* Find a rooted baseline */
         Baseline b = null;
@@ -572,8 +584,30 @@ public class Baseline extends UCMEntity implements Diffable {
         return null;
     }
     
+    /**
+     * Read the root directories of the components of the baselines with as few commands as possible, see {@link Component#loadRootDirs(Collection)}.
+     * Baselines that cannot be loaded are skipped.
+     * @param baselines The baselines
+     */
+    public static void loadComponentRootDirs( Collection<Baseline> baselines ) {
+        try {
+            UCMEntity.loadAll( baselines );
+        } catch( ClearCaseException e ) {
+            logger.fine( "Unable to load the baselines: " + e.getMessage() );
+        }
+
+        List<Component> components = new ArrayList<Component>( baselines.size() );
+        for( Baseline baseline : baselines ) {
+            if( baseline.loaded && baseline.component != null ) {
+                components.add( baseline.component );
+            }
+        }
+
+        Component.loadRootDirs( components );
+    }
+
     public boolean isCompositeBaseline() throws UnableToInitializeEntityException, CleartoolException {
-        return getCompositeDependantBaselines().isEmpty();
+        return BaselineClosure.getClosure( this, BaselineClosure.Direction.DEPENDANTS ).isEmpty();
     }
 
 }
@@ -0,0 +1,210 @@
+package net.praqma.clearcase.ucm.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import net.praqma.clearcase.Cool;
+import net.praqma.clearcase.api.Describe;
+import net.praqma.clearcase.exceptions.CleartoolException;
+import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * The composite closure of a {@link Baseline}, all the baselines it is a member of or depends on, directly or not.<br>
+ * The closure is read with one describe. The baselines of the closure are then described in batches, reading the component, stream
+ * and date of each together with the baselines it links to directly. The baselines are loaded, so filtering them by component and
+ * following the links does not run cleartool.
+ *
+ * @author cwolfgang
+ */
+public class BaselineClosure {
+
+    private static final Logger logger = Logger.getLogger( BaselineClosure.class.getName() );
+
+    public enum Direction {
+        /**
+         * The closure of <code>member_of</code>, see {@link Baseline#getCompositeMemberBaselines(Component)}
+         */
+        MEMBERS( Describe.memberOfClosure, "member_of" ),
+
+        /**
+         * The closure of <code>depends_on</code>, see {@link Baseline#getCompositeDependantBaselines(Component)}
+         */
+        DEPENDANTS( Describe.dependsOnClosure, "depends_on" );
+
+        private final Describe.Property closure;
+        private final String link;
+
+        private Direction( Describe.Property closure, String link ) {
+            this.closure = closure;
+            this.link = link;
+        }
+    }
+
+    private final Baseline root;
+    private final Direction direction;
+
+    /* The baselines of the closure, in the order ClearCase listed them */
+    private final List<Baseline> baselines;
+
+    /* The baselines linked to directly, for the root and every baseline of the closure */
+    private final Map<Baseline, List<Baseline>> links;
+
+    private BaselineClosure( Baseline root, Direction direction, List<Baseline> baselines, Map<Baseline, List<Baseline>> links ) {
+        this.root = root;
+        this.direction = direction;
+        this.baselines = Collections.unmodifiableList( baselines );
+        this.links = links;
+    }
+
+    /**
+     * Read the closure of a {@link Baseline} and load its baselines
+     * @param root The {@link Baseline}
+     * @param direction The {@link Direction} of the closure
+     * @return The {@link BaselineClosure}
+     * @throws UnableToInitializeEntityException Thrown when ClearCase reports errors
+     * @throws CleartoolException Thrown when ClearCase reports errors
+     */
+    public static BaselineClosure read( Baseline root, Direction direction ) throws UnableToInitializeEntityException, CleartoolException {
+        List<Baseline> baselines = getClosure( root, direction );
+
+        List<Baseline> nodes = new ArrayList<Baseline>( baselines.size() + 1 );
+        nodes.add( root );
+        nodes.addAll( baselines );
+        Set<Baseline> known = new LinkedHashSet<Baseline>( nodes );
+
+        String format = root.getLoadFormat() + Cool.delim + "%[" + direction.link + "]Xp";
+        Map<Baseline, List<Baseline>> links = new LinkedHashMap<Baseline, List<Baseline>>();
+
+        List<String> records = UCMEntity.describeAll( nodes, format, null );
+        for( int i = 0 ; i < nodes.size() ; ++i ) {
+            if( records.get( i ) == null ) {
+                throw new CleartoolException( "Unable to describe " + nodes.get( i ) + " of the closure of " + root );
+            }
+            links.put( nodes.get( i ), populate( nodes.get( i ), records.get( i ), known ) );
+        }
+
+        logger.fine( "The " + direction + " closure of " + root + " has " + baselines.size() + " baselines" );
+
+        return new BaselineClosure( root, direction, baselines, links );
+    }
+
+    /**
+     * Read the baselines of the closure of a {@link Baseline} without loading them
+     */
+    static List<Baseline> getClosure( Baseline root, Direction direction ) throws UnableToInitializeEntityException, CleartoolException {
+        Map<String, String[]> result = new Describe( root ).addModifier( direction.closure, false, true ).describe();
+
+        List<Baseline> baselines = new ArrayList<Baseline>();
+        String[] names = result.get( direction.closure.getName() );
+        if( names != null ) {
+            for( String name : names ) {
+                if( !StringUtils.isBlank( name ) ) {
+                    baselines.add( Baseline.get( name.trim() ) );
+                }
+            }
+        }
+
+        return baselines;
+    }
+
+    /* Load the baseline from its record and return the baselines it links to within the closure */
+    private static List<Baseline> populate( Baseline baseline, String record, Set<Baseline> known ) throws UnableToInitializeEntityException, CleartoolException {
+        int i = record.lastIndexOf( Cool.delim );
+        if( i < 0 ) {
+            throw new CleartoolException( "Unexpected description of " + baseline + ": " + record );
+        }
+
+        if( !baseline.loaded ) {
+            baseline.populate( record.substring( 0, i ) );
+        }
+
+        List<Baseline> linked = new ArrayList<Baseline>();
+        for( String name : record.substring( i + Cool.delim.length() ).trim().split( "\\s+" ) ) {
+            if( !name.isEmpty() ) {
+                Baseline other = Baseline.get( name );
+                if( known.contains( other ) ) {
+                    linked.add( other );
+                }
+            }
+        }
+
+        return Collections.unmodifiableList( linked );
+    }
+
+    public Baseline getRoot() {
+        return root;
+    }
+
+    public Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return The baselines of the closure, not including the root
+     */
+    public List<Baseline> getBaselines() {
+        return baselines;
+    }
+
+    /**
+     * Get the baselines of the closure of a {@link Component}
+     * @param component The {@link Component}, null for all
+     * @return A new list of baselines
+     */
+    public List<Baseline> getBaselines( Component component ) {
+        List<Baseline> result = new ArrayList<Baseline>();
+        for( Baseline baseline : baselines ) {
+            if( component == null || component.equals( baseline.getComponent() ) ) {
+                result.add( baseline );
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * @return The components of the baselines of the closure, in the order they were first seen
+     */
+    public List<Component> getComponents() {
+        Set<Component> components = new LinkedHashSet<Component>();
+        for( Baseline baseline : baselines ) {
+            components.add( baseline.getComponent() );
+        }
+
+        return new ArrayList<Component>( components );
+    }
+
+    /**
+     * Get the baselines a baseline of the closure, or the root, links to directly
+     * @param baseline The {@link Baseline}
+     * @return The linked baselines, empty if the baseline is not part of the closure
+     */
+    public List<Baseline> getLinkedBaselines( Baseline baseline ) {
+        List<Baseline> linked = links.get( baseline );
+        return linked == null ? Collections.<Baseline>emptyList() : linked;
+    }
+
+    public boolean contains( Baseline baseline ) {
+        return baselines.contains( baseline );
+    }
+
+    public boolean isEmpty() {
+        return baselines.isEmpty();
+    }
+
+    public int size() {
+        return baselines.size();
+    }
+
+    @Override
+    public String toString() {
+        return "BaselineClosure[" + direction + " of " + root + ", " + baselines.size() + " baselines]";
+    }
+}
@@ -1,6 +1,11 @@
 package net.praqma.clearcase.ucm.entities;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 
 import net.praqma.clearcase.PVob;
@@ -14,6 +19,9 @@ public class Component extends UCMEntity {
 	
 	private static final String rx_component_load = "\\s*Error: component not found\\s*";
 
+	/* The root directory, read once */
+	private transient volatile String rootDir = null;
+
 	Component() {
 		super( "component" );
 	}
@@ -23,7 +31,7 @@ public class Component extends UCMEntity {
 	}
 
 	public Component load() throws UCMEntityNotFoundException, UnableToLoadEntityException {
-		String cmd = "describe -fmt %[name]p " + this;
+		String cmd = "describe -fmt " + getLoadFormat() + " " + this;
 		try {
 			Cleartool.run( cmd );
 		} catch( AbnormalProcessTerminationException e ) {
@@ -39,6 +47,17 @@ public class Component extends UCMEntity {
 		return this;
 	}
 
+	@Override
+	protected String getLoadFormat() {
+		return "%[name]p";
+	}
+
+	@Override
+	protected void populate( String result ) {
+		/* Only the existence of the component is verified */
+		this.loaded = true;
+	}
+
 	public static Component create( String name, PVob pvob, String root, String comment, File view ) throws UnableToCreateEntityException, UnableToInitializeEntityException {
 
 		String cmd = "mkcomp" + ( comment != null ? " -c \"" + comment + "\"" : "" ) + ( root != null ? " -root " + root : " -nroot" ) + " " + name + "@" + pvob;
@@ -52,13 +71,55 @@ public class Component extends UCMEntity {
 		return get( name, pvob );
 	}
 
+	/**
+	 * Get the root directory of the component. The root directory of a component never changes, so it is only read once.
+	 * @return The root directory, empty for a rootless component
+	 */
 	public String getRootDir() throws CleartoolException {
+		String dir = rootDir;
+		if( dir != null ) {
+			return dir;
+		}
+
 		String cmd = "desc -fmt %[root_dir]p " + this;
 		try {
-			return Cleartool.run( cmd ).stdoutBuffer.toString();
+			dir = Cleartool.run( cmd ).stdoutBuffer.toString();
 		} catch( AbnormalProcessTerminationException e ) {
 			throw new CleartoolException( "Unable to get root dir: " + e.getMessage(), e );
 		}
+
+		rootDir = dir;
+		return dir;
+	}
+
+	/**
+	 * Read the root directories of several components with one describe, or a few for many components.
+	 * Components whose root directory could not be listed read it themselves, when {@link #getRootDir()} is called.
+	 * @param components The components
+	 */
+	public static void loadRootDirs( Collection<Component> components ) {
+		/* Equal components can be different instances */
+		Map<String, List<Component>> missing = new LinkedHashMap<String, List<Component>>();
+		for( Component component : components ) {
+			if( component.rootDir == null ) {
+				List<Component> list = missing.get( component.getFullyQualifiedName() );
+				if( list == null ) {
+					list = new ArrayList<Component>( 1 );
+					missing.put( component.getFullyQualifiedName(), list );
+				}
+				list.add( component );
+			}
+		}
+
+		List<String> fqnames = new ArrayList<String>( missing.keySet() );
+		List<String> records = UCMEntity.describeAll( fqnames, "%[root_dir]p", null );
+		for( int i = 0 ; i < fqnames.size() ; ++i ) {
+			if( records.get( i ) != null ) {
+				for( Component component : missing.get( fqnames.get( i ) ) ) {
+					component.rootDir = records.get( i );
+				}
+			}
+		}
 	}
 
     public boolean isRootLess() throws CleartoolException {
@@ -0,0 +1,153 @@
+package net.praqma.clearcase.ucm.entities;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * An identity map for {@link UCMEntity} instances, keyed by class and fully qualified name.<br>
+ * When enabled, {@link UCMEntity#getEntity(Class, String)} returns the same instance for equal names, so an entity is
+ * only loaded once. The map is bounded, the least recently used entry is evicted first, and entries expire after a time to live.
+ *
+ * The cache is disabled by default. It is configured with {@link #configure(int, long)} or the system properties
+ * <code>cool.entity.cache.size</code> and <code>cool.entity.cache.ttl</code>(milliseconds).
+ *
+ * Operations changing an entity in ClearCase must call {@link #invalidate(UCMEntity)}.
+ *
+ * @author cwolfgang
+ */
+public class EntityCache {
+
+    private static final Logger logger = Logger.getLogger( EntityCache.class.getName() );
+
+    private static volatile int maxSize = 0;
+    private static volatile long ttl = 0;
+
+    private static final Map<String, Entry> entities = new LinkedHashMap<String, Entry>( 16, 0.75f, true ) {
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest ) {
+            return size() > maxSize;
+        }
+    };
+
+    static {
+        configure( Integer.getInteger( "cool.entity.cache.size", 0 ), Long.getLong( "cool.entity.cache.ttl", 5 * 60 * 1000L ) );
+    }
+
+    private EntityCache() {}
+
+    private static class Entry {
+        private final UCMEntity entity;
+        private final long created;
+
+        private Entry( UCMEntity entity ) {
+            this.entity = entity;
+            this.created = System.currentTimeMillis();
+        }
+
+        private boolean isExpired( long now ) {
+            return ttl > 0 && now - created > ttl;
+        }
+    }
+
+    /**
+     * Configure the cache. A size of 0 disables it and removes all entries.
+     * @param size The maximum number of entities
+     * @param timeToLive Milliseconds an entity is reused after it was created, 0 means forever
+     */
+    public static void configure( int size, long timeToLive ) {
+        synchronized( entities ) {
+            maxSize = Math.max( size, 0 );
+            ttl = Math.max( timeToLive, 0 );
+            if( maxSize == 0 ) {
+                entities.clear();
+            }
+        }
+        logger.config( "Entity cache size " + maxSize + ", time to live " + ttl + "ms" );
+    }
+
+    public static boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    static String getKey( Class<? extends UCMEntity> clazz, String fqname ) {
+        return clazz.getName() + "|" + fqname;
+    }
+
+    /**
+     * @return The cached entity or null if not cached or expired
+     */
+    static UCMEntity get( Class<? extends UCMEntity> clazz, String fqname ) {
+        String key = getKey( clazz, fqname );
+        synchronized( entities ) {
+            Entry entry = entities.get( key );
+            if( entry == null ) {
+                return null;
+            }
+
+            if( entry.isExpired( System.currentTimeMillis() ) ) {
+                entities.remove( key );
+                return null;
+            }
+
+            return entry.entity;
+        }
+    }
+
+    /**
+     * Add the entity unless an equal entity was added concurrently.
+     * @return The entity in the cache
+     */
+    static UCMEntity put( Class<? extends UCMEntity> clazz, String fqname, UCMEntity entity ) {
+        String key = getKey( clazz, fqname );
+        synchronized( entities ) {
+            if( maxSize == 0 ) {
+                return entity;
+            }
+
+            Entry existing = entities.get( key );
+            if( existing != null && !existing.isExpired( System.currentTimeMillis() ) ) {
+                return existing.entity;
+            }
+
+            entities.put( key, new Entry( entity ) );
+            return entity;
+        }
+    }
+
+    /**
+     * Remove the entity from the cache, the next lookup creates and loads a fresh instance.
+     * @param entity The changed {@link UCMEntity}
+     */
+    public static void invalidate( UCMEntity entity ) {
+        if( entity == null || maxSize == 0 ) {
+            return;
+        }
+
+        synchronized( entities ) {
+            Iterator<Entry> it = entities.values().iterator();
+            while( it.hasNext() ) {
+                Entry entry = it.next();
+                if( entry.entity == entity || entry.entity.equals( entity ) ) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove all entities
+     */
+    public static void clear() {
+        synchronized( entities ) {
+            entities.clear();
+        }
+    }
+
+    public static int size() {
+        synchronized( entities ) {
+            return entities.size();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package net.praqma.clearcase.ucm.entities;
+
+/**
+ * A fully qualified UCM name, <code>kind:shortname@pvob</code>, for example <code>baseline:bl_1@\PVOB</code>.<br>
+ * The name is parsed in a single pass over its characters, and only the parts asked for are copied.
+ * A name is accepted exactly when {@link UCMEntity#pattern_std_fqname} matches it, and the parts are the groups of that pattern.
+ *
+ * @author cwolfgang
+ */
+public final class FullyQualifiedName {
+
+    private final String fqname;
+    private final int colon;
+    private final int at;
+    private final int end;
+
+    private FullyQualifiedName( String fqname, int colon, int at, int end ) {
+        this.fqname = fqname;
+        this.colon = colon;
+        this.at = at;
+        this.end = end;
+    }
+
+    /**
+     * @param fqname The fully qualified name
+     * @return The parsed name, or null if it is not of the form <code>kind:shortname@pvob</code>
+     */
+    public static FullyQualifiedName parse( String fqname ) {
+        int length = fqname.length();
+
+        /* The kind, word characters up to the colon */
+        int i = 0;
+        while( i < length && isWord( fqname.charAt( i ) ) ) {
+            i++;
+        }
+        if( i == 0 || i == length || fqname.charAt( i ) != ':' ) {
+            return null;
+        }
+        int colon = i;
+
+        /* The short name, up to the at */
+        i++;
+        while( i < length && isAllowed( fqname.charAt( i ) ) ) {
+            i++;
+        }
+        if( i == colon + 1 || i == length || fqname.charAt( i ) != '@' ) {
+            return null;
+        }
+        int at = i;
+
+        /* The PVob, to the end or a final line terminator */
+        i++;
+        while( i < length && isAllowed( fqname.charAt( i ) ) ) {
+            i++;
+        }
+        if( i == at + 1 || !isEnd( fqname, i ) ) {
+            return null;
+        }
+
+        return new FullyQualifiedName( fqname, colon, at, i );
+    }
+
+    /**
+     * Determine the kind of a name without parsing the rest of it
+     * @param fqname The fully qualified name
+     * @param kind The kind, for example <code>baseline</code>
+     * @return True if the name starts with the kind followed by a colon
+     */
+    public static boolean isKind( String fqname, String kind ) {
+        int length = kind.length();
+        return fqname.length() > length && fqname.charAt( length ) == ':' && fqname.startsWith( kind );
+    }
+
+    public String getKind() {
+        return fqname.substring( 0, colon );
+    }
+
+    public String getShortname() {
+        return fqname.substring( colon + 1, at );
+    }
+
+    public String getPVob() {
+        return fqname.substring( at + 1, end );
+    }
+
+    @Override
+    public String toString() {
+        return fqname;
+    }
+
+    /* \w */
+    private static boolean isWord( char c ) {
+        return ( c >= 'a' && c <= 'z' ) || ( c >= 'A' && c <= 'Z' ) || ( c >= '0' && c <= '9' ) || c == '_';
+    }
+
+    /* Anything but @, : and \s */
+    private static boolean isAllowed( char c ) {
+        return c != '@' && c != ':' && c != ' ' && c != '\t' && c != '\n' && c != '\u000B' && c != '\f' && c != '\r';
+    }
+
+    /* $, the end of the input or before a final line terminator. The other terminators are allowed characters and never end a part. */
+    private static boolean isEnd( String fqname, int i ) {
+        int rest = fqname.length() - i;
+        if( rest == 0 ) {
+            return true;
+        } else if( rest == 1 ) {
+            char c = fqname.charAt( i );
+            return c == '\n' || c == '\r';
+        } else {
+            return rest == 2 && fqname.charAt( i ) == '\r' && fqname.charAt( i + 1 ) == '\n';
+        }
+    }
+}
@@ -2,18 +2,22 @@ package net.praqma.clearcase.ucm.entities;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import net.praqma.clearcase.Deliver;
+import net.praqma.clearcase.DeliverSnapshot;
 import net.praqma.clearcase.PVob;
 import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.CleartoolExecutor;
 import net.praqma.clearcase.exceptions.*;
 import net.praqma.clearcase.interfaces.Diffable;
 import net.praqma.clearcase.interfaces.StreamContainable;
 import net.praqma.clearcase.ucm.entities.Project.PromotionLevel;
+import net.praqma.clearcase.ucm.utils.StreamTopology;
 import net.praqma.clearcase.ucm.view.UCMView;
 import net.praqma.util.execute.AbnormalProcessTerminationException;
 import net.praqma.util.execute.CmdResult;
@@ -31,9 +35,9 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
 	private static final transient Logger logger = Logger.getLogger( Stream.class.getName() );
 
     /**
-     * The list of recommended {@link Baseline}s
+     * The list of recommended {@link Baseline}s, null until read
      */
-	private ArrayList<Baseline> recommendedBaselines = null;
+	private volatile List<Baseline> recommendedBaselines = null;
 
     /**
      * The {@link Project} for this {@link Stream}
@@ -184,7 +188,7 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
 
 		String rawdata = "";
 
-		String cmd = "describe -fmt %[name]p}{%[project]Xp}{%X[def_deliver_tgt]p}{%[read_only]p}{%[found_bls]Xp}{%[master]p " + this;
+		String cmd = "describe -fmt " + getLoadFormat() + " " + this;
 		try {
 			rawdata = Cleartool.run( cmd ).stdoutBuffer.toString();
 		} catch( AbnormalProcessTerminationException e ) {
@@ -195,6 +199,18 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
 			}
 		}
 
+		populate( rawdata );
+
+		return this;
+	}
+
+    @Override
+    protected String getLoadFormat() {
+        return "%[name]p}{%[project]Xp}{%X[def_deliver_tgt]p}{%[read_only]p}{%[found_bls]Xp}{%[master]p";
+    }
+
+    @Override
+    protected void populate( String rawdata ) throws UnableToInitializeEntityException {
 		String[] data = rawdata.split( "\\}\\{" );
 		logger.fine( "I got: " + Arrays.asList( data ) );
 
@@ -231,11 +247,23 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
 		}
 
 		this.loaded = true;
-
-		return this;
 	}
 
 	public List<Stream> getChildStreams( boolean multisitePolling ) throws UnableToInitializeEntityException, CleartoolException {
+		return getChildStreams( multisitePolling, 1 );
+	}
+
+	/**
+	 * Get the child streams mastered at the same site as this {@link Stream}, without the streams having a posted delivery unless polling multisite.<br>
+	 * The child streams are loaded with one describe, and at most <code>parallelism</code> deliver statuses are read at the same time.
+	 * The streams are returned in the order ClearCase lists them.
+	 * @param multisitePolling Keep streams with a posted delivery
+	 * @param parallelism The maximum number of concurrent deliver -status commands
+	 * @return A list of {@link Stream}s
+	 * @throws UnableToInitializeEntityException Thrown when ClearCase reports errors
+	 * @throws CleartoolException Thrown when ClearCase reports errors
+	 */
+	public List<Stream> getChildStreams( boolean multisitePolling, int parallelism ) throws UnableToInitializeEntityException, CleartoolException {
 		/* We need to load this, because we need the mastership */
 		if( !loaded ) {
 			try {
@@ -260,33 +288,78 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
 
 			String[] strms = res.stdoutBuffer.toString().split( ", " );
 			for( String stream : strms ) {
-				streams.add( Stream.get( stream ) );
+				/* A stream without children lists nothing */
+				if( !stream.trim().isEmpty() ) {
+					streams.add( Stream.get( stream.trim() ) );
+				}
 			}
 
 		} catch( UCMEntityNotFoundException e ) {
 			logger.fine( "The Stream has no child streams" );
 		}
 		
-		/**/
-		Iterator<Stream> it = streams.iterator();
+		/* Load the child streams together. A stream failing to load fails again when its mastership is read */
+		try {
+			UCMEntity.loadAll( streams );
+		} catch( ClearCaseException e ) {
+			logger.fine( "Unable to load the child streams of " + this + ": " + e.getMessage() );
+		}
+
+		/* Streams mastered elsewhere are removed without reading their deliver status */
+		List<Stream> local = new ArrayList<Stream>( streams.size() );
 		String mastership = this.getMastership();
-		while( it.hasNext() ) {
-			Stream stream = it.next();
+		for( Stream stream : streams ) {
 			String childMastership = stream.getMastership();
 			logger.fine( "Child Mastership = " + childMastership );
 
-			if( !multisitePolling && stream.hasPostedDelivery() ) {
-				logger.fine( "Removing [" + stream.getShortname() + "] due to non-supported posted delivery" );
-				it.remove();
-			} else if( !mastership.equals( childMastership ) ) {
+			if( !mastership.equals( childMastership ) ) {
 				logger.fine( "Removing [" + stream.getShortname() + "] due to different mastership" );
-				it.remove();
+			} else {
+				local.add( stream );
+			}
+		}
+
+		if( multisitePolling ) {
+			return local;
+		}
 
+		List<Boolean> posted = hasPostedDeliveries( local, parallelism );
+		List<Stream> children = new ArrayList<Stream>( local.size() );
+		for( int i = 0 ; i < local.size() ; ++i ) {
+			if( posted.get( i ) ) {
+				logger.fine( "Removing [" + local.get( i ).getShortname() + "] due to non-supported posted delivery" );
+			} else {
+				children.add( local.get( i ) );
 			}
+		}
 
+		return children;
+	}
+
+	/**
+	 * Determine for each stream whether it has a posted delivery, see {@link #hasPostedDelivery()}
+	 * @return The answers in the order of the streams
+	 */
+	private static List<Boolean> hasPostedDeliveries( List<Stream> streams, int parallelism ) throws UnableToInitializeEntityException, CleartoolException {
+		List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>( streams.size() );
+		for( final Stream stream : streams ) {
+			tasks.add( new Callable<Boolean>() {
+				@Override
+				public Boolean call() throws Exception {
+					return stream.hasPostedDelivery();
+				}
+			} );
 		}
 
-		return streams;
+		try {
+			return CleartoolExecutor.invokeAll( tasks, parallelism );
+		} catch( UnableToInitializeEntityException e ) {
+			throw e;
+		} catch( CleartoolException e ) {
+			throw e;
+		} catch( ClearCaseException e ) {
+			throw new CleartoolException( "Unable to get the deliver status", e );
+		}
 	}
 	
 	public List<Baseline> getPostedBaselines( Component component, PromotionLevel plevel ) throws UnableToInitializeEntityException {
@@ -364,16 +437,11 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
 	 */
 	public List<Stream> getSiblingStreams() throws UnableToListProjectsException, UnableToInitializeEntityException, UnableToLoadEntityException, UCMEntityNotFoundException {
 		logger.fine( "Getting sibling streams" );
-		List<Project> projects = Project.getProjects( this.getPVob() );
-		List<Stream> streams = new ArrayList<Stream>();
-
-		for( Project p : projects ) {
-            p.load();
-            p.getIntegrationStream().load();
-            Stream dts = p.getIntegrationStream().getDefaultTarget();
-            if( dts != null && this.equals( dts ) ) {
-                streams.add( p.getIntegrationStream() );
-            }
+		List<Stream> streams;
+		try {
+			streams = StreamTopology.load( this.getPVob() ).getSiblingStreams( this );
+		} catch( CleartoolException e ) {
+			throw new UnableToListProjectsException( this.getPVob(), e );
 		}
 
 		logger.fine( streams.toString() );
@@ -393,16 +461,24 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
      */
     public List<Stream> getDeliveringStreamsUsingHlink(String hyperLinkName) throws UnableToListProjectsException, UnableToInitializeEntityException, UnableToLoadEntityException, UCMEntityNotFoundException, HyperlinkException {
 		logger.fine( String.format( "Getting delivering streams using hyperlink of type: %s", hyperLinkName) );
-		List<Project> projects = Project.getProjects( this.getPVob() );
+		StreamTopology topology;
+		try {
+			topology = StreamTopology.load( this.getPVob() );
+		} catch( CleartoolException e ) {
+			throw new UnableToListProjectsException( this.getPVob(), e );
+		}
+
 		List<Stream> streams = new ArrayList<Stream>();
-		for( Project p : projects ) {
+		for( Stream intStream : topology.getIntegrationStreams() ) {
             
-            p.load();
-            List<HyperLink> links = p.getIntegrationStream().getHyperlinks(hyperLinkName, null);
+            List<HyperLink> links = intStream.getHyperlinks(hyperLinkName, null);
             //This is the integration stream we're interested in. Should we look for baslines?
             //Compare the mastership of this integration stream, to the one configured in the job.            
-            Stream intStream = p.getIntegrationStream();
-            String sMastership = intStream.getMastership();
+            String sMastership = topology.getMastership( intStream );
+            if( sMastership == null ) {
+                /* Not in the topology, e.g. created after it was loaded */
+                sMastership = intStream.getMastership();
+            }
             
             if(links.isEmpty()) {
                 logger.fine( String.format("Found no hyperlinks on integration stream: %s", intStream.getFullyQualifiedName()) );
@@ -411,7 +487,7 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
             for(HyperLink hl : links) {
                 logger.fine(String.format("Found hyperlink with name %s, value was %s", hyperLinkName, hl.getValue()));                
                 if(this.getFullyQualifiedName().equals( hl.getValue() ) ) {                                        
-                    if (sMastership.equals(this.getMastership())) {
+                    if (this.getMastership().equals(sMastership)) {
                         logger.fine(String.format("Hyperlink of type %s with value %s matches stream: %s", hyperLinkName, hl.getValue(), intStream)) ;
                         logger.fine(String.format("Adding ingration stream %s to list of streams to look for baselines", intStream));
                         logger.fine(String.format("The local mastership is: %s", this.getMastership()));
@@ -459,14 +535,24 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
      */
     public Stream getDeliveringStream( boolean isMultiSite ) throws ClearCaseException {
         /* Heuristic: Typically a child stream delivering
-         * Let's ask them first. */
+         * Let's ask them first, reading the deliver status of each child once. */
 
         logger.finer( "Searching amongst child-streams" );
-        Stream s = getDeliveringStream( isMultiSite, getChildStreams( isMultiSite ) );
+        DeliverSnapshot children = DeliverSnapshot.take( getChildStreams( true ), DeliverSnapshot.getParallelism() );
+        Stream s = null;
+        for( Map.Entry<Stream, Deliver.Status> delivery : children.getDeliveries().entrySet() ) {
+            if( !isMultiSite && delivery.getValue().isPosted() ) {
+                logger.fine( "Skipping [" + delivery.getKey().getShortname() + "] due to non-supported posted delivery" );
+            } else {
+                s = delivery.getKey();
+                break;
+            }
+        }
 
         if( s == null ) {
+            /* The deliver status of all the streams of the project, without asking the children again */
             logger.finer( "Searching among all streams" );
-            s = getDeliveringStream( isMultiSite, this.getProject().getStreams() );
+            s = DeliverSnapshot.get( this.getProject(), children ).getDeliveringStream();
         }
 
         logger.fine( "Found " + s );
@@ -480,16 +566,10 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
      * @throws ClearCaseException Thrown when ClearCase reports errors  
      */
     public Stream getDeliveringStream( boolean isMultiSite, List<Stream> streams ) throws ClearCaseException {
+        DeliverSnapshot snapshot = DeliverSnapshot.take( streams, DeliverSnapshot.getParallelism() );
+        logger.finer( "Status: " + snapshot );
 
-        for( Stream stream : streams ) {
-            Deliver.Status status = stream.getDeliverStatus();
-            logger.finer( "Status: " + status );
-            if( status.isInProgress() && status.getSourceStream().equals( stream ) ) {
-                return stream;
-            }
-        }
-
-        return null;
+        return snapshot.getDeliveringStream();
     }
 
     public Deliver.Status getDeliverStatus() throws ClearCaseException {
@@ -511,15 +591,18 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
 			Cleartool.run( cmd );
 		} catch( AbnormalProcessTerminationException e ) {
 			throw new CleartoolException( "Unable to generate " + this, e );
+		} finally {
+			resetRecommendedBaselines();
 		}
+
+		EntityCache.invalidate( this );
 	}
 
 	public List<Baseline> getRecommendedBaselines( boolean force ) throws UnableToListBaselinesException, UnableToInitializeEntityException {
 		logger.fine( "Getting recommended baselines" );
 
-		if( this.recommendedBaselines == null || force ) {
-			ArrayList<Baseline> bls = new ArrayList<Baseline>();
-
+		List<Baseline> bls = this.recommendedBaselines;
+		if( bls == null || force ) {
 			String result = "";
 			String cmd = "desc -fmt %[rec_bls]p " + this;
 			try {
@@ -527,20 +610,75 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
 			} catch( AbnormalProcessTerminationException e ) {
 				throw new UnableToListBaselinesException( this, null, null, e );
 			}
-			
-			String[] rs = result.split( " " );
 
-			for( int i = 0; i < rs.length; i++ ) {
-				/* There is something in the element. */
-				if( rs[i].matches( "\\S+" ) ) {
-					bls.add( Baseline.get( rs[i], pvob ) );
+			bls = parseRecommendedBaselines( result );
+			this.recommendedBaselines = bls;
+		}
+
+		return new ArrayList<Baseline>( bls );
+	}
+
+	private List<Baseline> parseRecommendedBaselines( String result ) throws UnableToInitializeEntityException {
+		List<Baseline> bls = new ArrayList<Baseline>();
+		String[] rs = result.split( " " );
+
+		for( int i = 0; i < rs.length; i++ ) {
+			/* There is something in the element. */
+			if( rs[i].matches( "\\S+" ) ) {
+				bls.add( Baseline.get( rs[i], pvob ) );
+			}
+		}
+
+		return Collections.unmodifiableList( bls );
+	}
+
+	/**
+	 * Forget the recommended baselines read from ClearCase, the next {@link #getRecommendedBaselines()} reads them again
+	 */
+	public void resetRecommendedBaselines() {
+		this.recommendedBaselines = null;
+	}
+
+	/**
+	 * Get the recommended baselines of the streams. The streams not known, or all if forced, are read with one describe per batch of streams.
+	 * @param streams The streams
+	 * @param force Read the recommended baselines of all the streams again
+	 * @return The recommended baselines by stream, in the order of the streams
+	 * @throws UnableToListBaselinesException If the recommended baselines of a stream could not be read
+	 * @throws UnableToInitializeEntityException Thrown when ClearCase reports errors
+	 */
+	public static Map<Stream, List<Baseline>> getRecommendedBaselines( Collection<Stream> streams, boolean force ) throws UnableToListBaselinesException, UnableToInitializeEntityException {
+		/* Equal streams can be different instances */
+		Map<String, List<Stream>> missing = new LinkedHashMap<String, List<Stream>>();
+		for( Stream stream : streams ) {
+			if( stream.recommendedBaselines == null || force ) {
+				stream.recommendedBaselines = null;
+				List<Stream> list = missing.get( stream.getFullyQualifiedName() );
+				if( list == null ) {
+					list = new ArrayList<Stream>( 1 );
+					missing.put( stream.getFullyQualifiedName(), list );
 				}
+				list.add( stream );
 			}
+		}
 
-			return bls;
+		/* Streams left unread are read one by one afterwards */
+		List<String> fqnames = new ArrayList<String>( missing.keySet() );
+		List<String> records = UCMEntity.describeAll( fqnames, "%[rec_bls]p", null );
+		for( int i = 0 ; i < fqnames.size() ; ++i ) {
+			if( records.get( i ) != null ) {
+				for( Stream stream : missing.get( fqnames.get( i ) ) ) {
+					stream.recommendedBaselines = stream.parseRecommendedBaselines( records.get( i ) );
+				}
+			}
+		}
+
+		Map<Stream, List<Baseline>> result = new LinkedHashMap<Stream, List<Baseline>>();
+		for( Stream stream : streams ) {
+			result.put( stream, stream.getRecommendedBaselines() );
 		}
 
-		return this.recommendedBaselines;
+		return result;
 	}
 
     /**
@@ -554,6 +692,8 @@ public class Stream extends UCMEntity implements Diffable, Serializable, StreamC
 			Cleartool.run( cmd );
 		} catch( AbnormalProcessTerminationException e ) {
 			throw new CleartoolException( "Unable to recommend " + baseline, e );
+		} finally {
+			resetRecommendedBaselines();
 		}
 	}
 
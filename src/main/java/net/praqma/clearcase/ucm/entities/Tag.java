@@ -22,7 +22,6 @@ import net.praqma.clearcase.exceptions.UnableToLoadEntityException;
 import net.praqma.clearcase.ucm.utils.TagQuery;
 import net.praqma.util.execute.AbnormalProcessTerminationException;
 import net.praqma.util.execute.CmdResult;
-import net.praqma.util.structure.Tuple;
 
 public class Tag extends UCMEntity {
 
@@ -76,42 +75,35 @@ public class Tag extends UCMEntity {
 	public static Map<String, String> CGIToHash( String cgi ) {
 		HashMap<String, String> hash = new HashMap<String, String>();
 
-		String[] entries = cgi.split( "&" );
-		for( String e : entries ) {
-			/* Check if the entry is a key value pair */
-			if( !e.contains( "=" ) ) continue;
+		int length = cgi.length();
+		int start = 0;
+		while( start <= length ) {
+			int end = cgi.indexOf( '&', start );
+			if( end < 0 ) {
+				end = length;
+			}
+
+			/* Check if the entry is a key value pair, the value ends at a second = */
+			int eq = cgi.indexOf( '=', start );
+			if( eq >= 0 && eq < end ) {
+				int vend = cgi.indexOf( '=', eq + 1 );
+				if( vend < 0 || vend > end ) {
+					vend = end;
+				}
+				hash.put( cgi.substring( start, eq ).trim(), cgi.substring( eq + 1, vend ).trim() );
+			}
 
-			String[] entry = e.split( "=" );
-			hash.put( entry[0].trim(), entry[1].trim() );
+			start = end + 1;
 		}
 
 		return hash;
 	}
 
 	public boolean queryTag( TagQuery query ) {
-		for( Tuple<String, String> t : query ) {
-			if( this.keyval.containsKey( t.t1 ) ) {
-				logger.fine( "(" + t.t1 + ", " + t.t2 + ") = " + this.keyval.get( t.t1 ) );
-
-				Pattern pattern = Pattern.compile( t.t2 );
-				Matcher match = pattern.matcher( this.keyval.get( t.t1 ) );
-				if( !match.find() ) {
-					return false;
-				}
-			} else {
-				logger.fine( "(" + t.t1 + ", " + t.t2 + ") = " );
-
-				/*
-				 * Handling non-existing keys, if the condition can't fall back
-				 * to an empty string, return false
-				 */
-				if( !"".matches( t.t2 ) ) {
-					return false;
-				}
-			}
-		}
+		boolean result = query.matches( keyval );
+		logger.fine( this + ( result ? " matches " : " does not match " ) + query );
 
-		return true;
+		return result;
 	}
 
 	public static String mapToCGI( Map<String, String> keyval ) {
@@ -216,7 +208,36 @@ public class Tag extends UCMEntity {
 
 	}
 
+	/**
+	 * @return The tags of the entity from its {@link TagIndex}
+	 */
 	public static List<Tag> getTags( UCMEntity entity ) throws TagException, UnableToInitializeEntityException {
+		return getIndex( entity ).getTags();
+	}
+
+	/**
+	 * Get the tags of an entity indexed by type and id. The index is built once per entity instance.
+	 */
+	public static TagIndex getIndex( UCMEntity entity ) throws TagException, UnableToInitializeEntityException {
+		synchronized( entity ) {
+			if( entity.tagIndex == null ) {
+				entity.tagIndex = new TagIndex( describeTags( entity ) );
+			}
+
+			return entity.tagIndex;
+		}
+	}
+
+	/**
+	 * Forget the tags of the entity, they are read from ClearCase again when needed
+	 */
+	public static void reload( UCMEntity entity ) {
+		synchronized( entity ) {
+			entity.tagIndex = null;
+		}
+	}
+
+	private static List<Tag> describeTags( UCMEntity entity ) throws TagException, UnableToInitializeEntityException {
 		logger.fine( entity.toString() );
 
 		String cmd = "describe -ahlink " + __TAG_NAME + " -l " + entity;
@@ -247,6 +268,7 @@ public class Tag extends UCMEntity {
 				if( match.find() ) {
 					Tag tag = (Tag) UCMEntity.getEntity( Tag.class, match.group( 1 ).trim() );
 					tag.setKeyValue( match.group( 2 ) );
+					tag.setTagEntity( entity );
 					tags.add( tag );
 				}
 			}
@@ -255,39 +277,34 @@ public class Tag extends UCMEntity {
 		return tags;
 	}
 
+	/* Remove the hyperlinks of the tags with the type and id, in ClearCase and in the index */
 	private static void deleteTagsWithID( String tagType, String tagID, UCMEntity entity ) throws TagException, UnableToInitializeEntityException {
 		logger.fine( tagType + tagID );
 
-		List<Tag> list = getTags( entity );
+		TagIndex index = getIndex( entity );
+		List<Tag> list = index.getAll( tagType, tagID );
 		logger.fine( list.size() + " Tags!" );
 
 		for( Tag t : list ) {
-			logger.fine( "Testing " + t.getTagType() + " > " + t.getTagID() );
-
-			if( t.getTagID().matches( "^.*tagtype=" + tagType + ".*$" ) && t.getTagID().matches( "^.*tagid=" + tagID + ".*$" ) ) {
-				String cmd = "rmhlink " + t.getTagType();
-				try {
-					Cleartool.run( cmd );
-				} catch( AbnormalProcessTerminationException e ) {
-					throw new TagException( entity, "", __TAG_NAME, Type.DELETION_FAILED, e );
-				}
+			String cmd = "rmhlink " + t.getFullyQualifiedName();
+			try {
+				Cleartool.run( cmd );
+			} catch( AbnormalProcessTerminationException e ) {
+				throw new TagException( entity, "", __TAG_NAME, Type.DELETION_FAILED, e );
 			}
+			index.remove( t );
 		}
 
 	}
 	
 	public static Tag getTag( UCMEntity entity, String tagType, String tagID, boolean create ) throws TagException, UnableToInitializeEntityException, UnableToCreateEntityException, UCMEntityNotFoundException, UnableToGetEntityException {
 		logger.fine( entity.toString() );
-		List<Tag> tags = getTags( entity );
-
-		for( Tag t : tags ) {
-			logger.fine( "Current: " + t );
-			/* Is it the correct tag? Return it! */
-			if( t.getTagType().equals( tagType ) && t.getTagID().equals( tagID ) ) {
-				logger.fine( "This is it!" );
-				t.setTagEntity( entity );
-				return t;
-			}
+		Tag t = getIndex( entity ).get( tagType, tagID );
+
+		if( t != null ) {
+			logger.fine( "Found " + t );
+			t.setTagEntity( entity );
+			return t;
 		}
 
 		logger.fine( "Could not find the Tag with ID " + tagType + tagID + ". Creating new." );
@@ -316,6 +333,7 @@ public class Tag extends UCMEntity {
 		Tag tag = (Tag) UCMEntity.getEntity( Tag.class, fqname );
 		tag.setKeyValue( cgi );
 		tag.setTagEntity( entity );
+		getIndex( entity ).add( tag );
 
 		return tag;
 	}
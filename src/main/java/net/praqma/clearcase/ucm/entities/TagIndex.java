@@ -0,0 +1,101 @@
+package net.praqma.clearcase.ucm.entities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.praqma.clearcase.ucm.utils.TagQuery;
+
+/**
+ * The {@link Tag}s of an entity, indexed by tag type and tag id.<br>
+ * The index is built from one <code>describe -ahlink tag</code> the first time the tags of an entity are needed, see {@link Tag#getIndex(UCMEntity)},
+ * and is kept up to date when a tag is persisted through it. Tags changed by others are seen after {@link Tag#reload(UCMEntity)}.
+ *
+ * @author cwolfgang
+ */
+public class TagIndex {
+
+    /* The tags in the order ClearCase listed them, by their hyperlink */
+    private final Map<String, Tag> tags = new LinkedHashMap<String, Tag>();
+    private final Map<String, List<Tag>> byId = new HashMap<String, List<Tag>>();
+
+    TagIndex( List<Tag> tags ) {
+        for( Tag tag : tags ) {
+            add( tag );
+        }
+    }
+
+    private static String getKey( String tagType, String tagID ) {
+        return tagType + "&" + tagID;
+    }
+
+    synchronized void add( Tag tag ) {
+        Tag old = tags.put( tag.getFullyQualifiedName(), tag );
+        if( old != null ) {
+            remove( byId, old );
+        }
+
+        String key = getKey( tag.getTagType(), tag.getTagID() );
+        List<Tag> list = byId.get( key );
+        if( list == null ) {
+            list = new ArrayList<Tag>( 1 );
+            byId.put( key, list );
+        }
+        list.add( tag );
+    }
+
+    synchronized void remove( Tag tag ) {
+        if( tags.remove( tag.getFullyQualifiedName() ) != null ) {
+            remove( byId, tag );
+        }
+    }
+
+    private static void remove( Map<String, List<Tag>> byId, Tag tag ) {
+        for( List<Tag> list : byId.values() ) {
+            if( list.remove( tag ) ) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return The first tag with the type and id, or null if there is none
+     */
+    public synchronized Tag get( String tagType, String tagID ) {
+        List<Tag> list = byId.get( getKey( tagType, tagID ) );
+        return list == null || list.isEmpty() ? null : list.get( 0 );
+    }
+
+    /**
+     * @return All tags with the type and id
+     */
+    public synchronized List<Tag> getAll( String tagType, String tagID ) {
+        List<Tag> list = byId.get( getKey( tagType, tagID ) );
+        return list == null ? Collections.<Tag>emptyList() : new ArrayList<Tag>( list );
+    }
+
+    /**
+     * @return The tags matching the query
+     */
+    public synchronized List<Tag> query( TagQuery query ) {
+        List<Tag> result = new ArrayList<Tag>();
+        for( Tag tag : tags.values() ) {
+            if( tag.queryTag( query ) ) {
+                result.add( tag );
+            }
+        }
+
+        return result;
+    }
+
+    public synchronized List<Tag> getTags() {
+        return new ArrayList<Tag>( tags.values() );
+    }
+
+    public synchronized int size() {
+        return tags.size();
+    }
+}
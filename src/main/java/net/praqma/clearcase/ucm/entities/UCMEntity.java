@@ -6,8 +6,12 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -44,6 +48,7 @@ public abstract class UCMEntity extends ClearCase implements Serializable {
 	private static final transient Logger logger = Logger.getLogger( UCMEntity.class.getName() );
     protected static final String rx_ccdef_allowed = "[.[^@:\\s]]";
 	protected static final String rx_ccdef_vob = "[\\\\\\w\\./-]";
+	/* Parsed by FullyQualifiedName, kept as the reference of the format */
 	protected static final Pattern pattern_std_fqname = Pattern.compile( "^(\\w+):(" + rx_ccdef_allowed + "+)@(" + rx_ccdef_allowed + "+)$" );
 	protected static final Pattern pattern_version_fqname = Pattern.compile( "^(.+)@@(.+)$" );
 	protected static final String rx_ccdef_filename = "[\\S\\s\\\\\\/.^@]";
@@ -56,6 +61,9 @@ public abstract class UCMEntity extends ClearCase implements Serializable {
 
 	private boolean created = false;
 
+	/* The tags of the entity, see Tag.getIndex */
+	transient TagIndex tagIndex = null;
+
 	public enum LabelStatus {
 		UNKNOWN, FULL, INCREMENTAL, UNLABLED
 	}
@@ -98,6 +106,7 @@ public abstract class UCMEntity extends ClearCase implements Serializable {
 
 	/**
 	 * Generates a UCM entity given its fully qualified name.
+	 * If the {@link EntityCache} is enabled, an existing instance with the same name is returned.
 	 * 
      * @param clazz The class of ClearCase object you want to git
      * @param fqname The fully qualified ClearCase object name
@@ -109,6 +118,15 @@ public abstract class UCMEntity extends ClearCase implements Serializable {
 		/* Is this needed? */
 		fqname = fqname.trim();
 
+		/* Reuse the instance if the identity map is enabled */
+		boolean cached = EntityCache.isEnabled();
+		if( cached ) {
+			UCMEntity entity = EntityCache.get( clazz, fqname );
+			if( entity != null ) {
+				return entity;
+			}
+		}
+
 		UCMEntity entity = null;
 		String pvob = "";
 
@@ -124,6 +142,10 @@ public abstract class UCMEntity extends ClearCase implements Serializable {
 		/* Create the vob object */
 		entity.vob = new PVob( pvob );
 
+		if( cached ) {
+			entity = EntityCache.put( clazz, fqname, entity );
+		}
+
 		return entity;
 	}
 
@@ -134,10 +156,10 @@ public abstract class UCMEntity extends ClearCase implements Serializable {
 	 * @throws UCMEntityNotInitializedException Thrown when ClearCase reports errors 
 	 */
 	protected void initialize() throws UCMEntityNotInitializedException {
-		Matcher match = pattern_std_fqname.matcher( fqname );
-		if( match.find() ) {
-			shortname = match.group( 2 );
-			pvob = new PVob( match.group( 3 ) );
+		FullyQualifiedName name = FullyQualifiedName.parse( fqname );
+		if( name != null ) {
+			shortname = name.getShortname();
+			pvob = new PVob( name.getPVob() );
 		} else {
 			throw new UCMEntityNotInitializedException( fqname );
 		}
@@ -157,6 +179,165 @@ public abstract class UCMEntity extends ClearCase implements Serializable {
 		this.loaded = true;
 		return this;
 	}
+
+	/**
+	 * The <code>-fmt</code> string used by {@link #load()}. Entities returning null cannot be loaded in bulk.
+	 * @return The format or null
+	 */
+	protected String getLoadFormat() {
+		return null;
+	}
+
+	/**
+	 * The working directory in which the entity must be described, null if it does not matter.
+	 * @return A directory or null
+	 */
+	protected File getLoadContext() {
+		return null;
+	}
+
+	/**
+	 * Populate the entity from the output of <code>describe -fmt</code> {@link #getLoadFormat()} and mark it loaded.
+	 * @param result The output for this entity
+	 * @throws UnableToInitializeEntityException Thrown when referenced entities cannot be created
+	 */
+	protected void populate( String result ) throws UnableToInitializeEntityException {
+		this.loaded = true;
+	}
+
+	/**
+	 * Load a collection of entities using as few describe invocations as possible.
+	 * Entities sharing class and load context are described together, see {@link Describe#executeRecords()}.
+	 * If a bulk describe fails, the entities of that batch are described one by one, and an entity that cannot be described
+	 * fails with an {@link UnableToLoadEntityException}.
+	 *
+	 * @param entities The entities to load
+	 * @param <T> The entity type
+	 * @return The given entities
+	 * @throws UnableToLoadEntityException Thrown when ClearCase reports errors
+	 * @throws UCMEntityNotFoundException Thrown when ClearCase reports errors
+	 * @throws UnableToInitializeEntityException Thrown when ClearCase reports errors
+	 */
+	public static <T extends UCMEntity> Collection<T> loadAll( Collection<T> entities ) throws UnableToLoadEntityException, UCMEntityNotFoundException, UnableToInitializeEntityException {
+		/* Group by class and context, keeping the order */
+		Map<String, List<UCMEntity>> batches = new LinkedHashMap<String, List<UCMEntity>>();
+		for( UCMEntity entity : entities ) {
+			if( entity.loaded ) {
+				continue;
+			}
+
+			if( entity.getLoadFormat() == null ) {
+				entity.load();
+				continue;
+			}
+
+			String key = entity.getClass().getName() + "@" + entity.getLoadContext();
+			List<UCMEntity> batch = batches.get( key );
+			if( batch == null ) {
+				batch = new ArrayList<UCMEntity>();
+				batches.put( key, batch );
+			}
+			batch.add( entity );
+		}
+
+		for( List<UCMEntity> batch : batches.values() ) {
+			loadBatch( batch );
+		}
+
+		return entities;
+	}
+
+	private static void loadBatch( List<UCMEntity> batch ) throws UnableToLoadEntityException, UCMEntityNotFoundException, UnableToInitializeEntityException {
+		if( batch.size() == 1 ) {
+			batch.get( 0 ).load();
+			return;
+		}
+
+		UCMEntity first = batch.get( 0 );
+		List<String> records = describeAll( batch, first.getLoadFormat(), first.getLoadContext() );
+		for( int i = 0 ; i < batch.size() ; ++i ) {
+			UCMEntity entity = batch.get( i );
+			if( records.get( i ) == null ) {
+				/* Already described on its own, do not describe it once more */
+				throw new UnableToLoadEntityException( entity, new CleartoolException( "Unable to describe " + entity.getFullyQualifiedName() ) );
+			}
+
+			try {
+				entity.populate( records.get( i ) );
+			} catch( RuntimeException e ) {
+				throw new UnableToLoadEntityException( entity, e );
+			}
+		}
+	}
+
+	private static final int maxBulkCommandLength = 6000;
+
+	/**
+	 * Describe entities with a format using as few describe invocations as possible, keeping each command line within reasonable limits.
+	 * See {@link #describeAll(List, String, File)}.
+	 * @param entities The entities
+	 * @param format The format of one entity
+	 * @param context The directory to describe in, or null
+	 * @return The record of each entity, in the order of the entities, null for an entity that could not be described
+	 */
+	public static List<String> describeAll( Collection<? extends UCMEntity> entities, String format, File context ) {
+		List<String> selectors = new ArrayList<String>( entities.size() );
+		for( UCMEntity entity : entities ) {
+			selectors.add( entity.getFullyQualifiedName() );
+		}
+
+		return describeAll( selectors, format, context );
+	}
+
+	/**
+	 * Describe objects with a format using as few describe invocations as possible, keeping each command line within reasonable limits.
+	 * If the describe of several objects fails, they are described one by one.
+	 * @param selectors The object selectors
+	 * @param format The format of one object
+	 * @param context The directory to describe in, or null
+	 * @return The record of each object, in the order of the selectors, null for an object that could not be described
+	 */
+	public static List<String> describeAll( List<String> selectors, String format, File context ) {
+		List<String> records = new ArrayList<String>( selectors.size() );
+		int i = 0;
+		while( i < selectors.size() ) {
+			int length = 0;
+			int j = i;
+			while( j < selectors.size() && ( j == i || length + selectors.get( j ).length() < maxBulkCommandLength ) ) {
+				length += selectors.get( j ).length() + 3;
+				j++;
+			}
+
+			records.addAll( describeBatch( selectors.subList( i, j ), format, context ) );
+			i = j;
+		}
+
+		return records;
+	}
+
+	private static List<String> describeBatch( List<String> batch, String format, File context ) {
+		Describe describe = new Describe( batch.get( 0 ) ).setFormat( format ).setPath( context );
+		for( int i = 1 ; i < batch.size() ; ++i ) {
+			describe.addObjectSelector( batch.get( i ) );
+		}
+
+		try {
+			return describe.executeRecords();
+		} catch( CleartoolException e ) {
+			if( batch.size() == 1 ) {
+				logger.fine( "Unable to describe " + batch.get( 0 ) + ": " + e.getMessage() );
+				return Collections.<String>singletonList( null );
+			}
+			logger.fine( "Bulk describe of " + batch.size() + " objects failed, describing them individually: " + e.getMessage() );
+		}
+
+		List<String> records = new ArrayList<String>( batch.size() );
+		for( String selector : batch ) {
+			records.addAll( describeBatch( Collections.singletonList( selector ), format, context ) );
+		}
+
+		return records;
+	}
     
     public void setLabelStatusFromString(String labelStatus) {
         this.labelStatus = getLabelStatusFromString(labelStatus);
@@ -180,17 +361,17 @@ public abstract class UCMEntity extends ClearCase implements Serializable {
 	}
 
 	public static UCMEntity getEntity( String fqname ) throws UnableToInitializeEntityException, UnknownEntityException {
-		if( fqname.startsWith( "baseline:" ) ) {
+		if( FullyQualifiedName.isKind( fqname, "baseline" ) ) {
 			return Baseline.get( fqname );
-		} else if( fqname.startsWith( "project:" ) ) {
+		} else if( FullyQualifiedName.isKind( fqname, "project" ) ) {
 			return Project.get( fqname );
-		} else if( fqname.startsWith( "stream:" ) ) {
+		} else if( FullyQualifiedName.isKind( fqname, "stream" ) ) {
 			return Stream.get( fqname );
-		} else if( fqname.startsWith( "activity:" ) ) {
+		} else if( FullyQualifiedName.isKind( fqname, "activity" ) ) {
 			return Activity.get( fqname );
-		} else if( fqname.startsWith( "component:" ) ) {
+		} else if( FullyQualifiedName.isKind( fqname, "component" ) ) {
 			return Component.get( fqname );
-		} else if( fqname.startsWith( "folder:" ) ) {
+		} else if( FullyQualifiedName.isKind( fqname, "folder" ) ) {
 			return Folder.get( fqname );
 		}
 
@@ -6,6 +6,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -32,7 +34,6 @@ import net.praqma.util.execute.CommandLineInterface.OperatingSystem;
 
 public class Version extends UCMEntity implements Comparable<Version> {
 	
-	private static final Pattern rx_extendedName = Pattern.compile( "^(?:(" + rx_ccdef_filename + "+)@@)(?:(" + rx_ccdef_filename + "+)@@)?(.+)$" );
 	private static final Pattern rx_checkExistence = Pattern.compile( ".*?Entry named \".*\" already exists.*?" );
 	private static final Pattern rx_versionName = Pattern.compile( "^(\\S+)\\s+([\\S\\s.^@]+@@.*)$" );
 	
@@ -83,8 +84,6 @@ public class Version extends UCMEntity implements Comparable<Version> {
      */
     private Activity activity;
 
-	private static String rx_revision = "(\\d+)$";
-	private static Pattern p_revision = Pattern.compile( "@@(.*)$" );
 	
 	public enum Status {
 		UNCHANGED,
@@ -99,89 +98,192 @@ public class Version extends UCMEntity implements Comparable<Version> {
 		super( "version" );
 	}
 
-	private static final Pattern rx_findAddedElements = Pattern.compile( qfs + ".*?" + qfs + "(\\d+)" + qfs + "(.*?)" + qfs );
-	private static final Pattern rx_findRevision = Pattern.compile( "^(.*?)" + qfsor + "(\\d+)(.*?)$" );
+	/**
+	 * Branch lists shared by the versions on the same branch, by the branch path
+	 */
+	private static final ConcurrentMap<String, List<Branch>> sharedBranches = new ConcurrentHashMap<String, List<Branch>>();
+	private static final int maxSharedBranches = 10000;
+
+	/* The file, version, branches, revision and status are parsed from the name on first use, see parse() */
+	private volatile boolean parsed = false;
 
 	@Override
 	protected void initialize() {
-		Matcher match = pattern_version_fqname.matcher( fqname );
-		if( match.find() ) {
+		/* The element and the version, split at the last @@ */
+		int last = fqname.lastIndexOf( "@@", fqname.length() - 3 );
+		if( last > 0 ) {
 			/* Set the Entity variables */
-			shortname = match.group( 1 );
-			pvob = new PVob( match.group( 2 ) );
+			shortname = fqname.substring( 0, last );
+			pvob = new PVob( fqname.substring( last + 2 ) );
 		}
 		
-		String fqname = "";
 		if( Cool.getOS().equals( OperatingSystem.WINDOWS ) ) {
-			fqname = this.fqname.matches( "^\\S:\\\\.*" ) ? this.fqname : System.getProperty( "user.dir" ) + filesep + this.fqname;
-		} else {
-			fqname = this.fqname.startsWith( "/" ) ? this.fqname : System.getProperty( "user.dir" ) + filesep + this.fqname;
+			if( !isWindowsAbsolute( fqname ) ) {
+				fqname = System.getProperty( "user.dir" ) + filesep + fqname;
+			}
+		} else if( !fqname.startsWith( "/" ) ) {
+			fqname = System.getProperty( "user.dir" ) + filesep + fqname;
 		}
 
-		this.fqname = fqname;
+		/* A name with a version ending in @@ has never been accepted */
+		int first = fqname.indexOf( "@@" );
+		int second = first >= 0 ? fqname.indexOf( "@@", first + 2 ) : -1;
+		if( second >= 0 ) {
+			int i = second + 2;
+			while( fqname.startsWith( "@@", i ) ) {
+				i += 2;
+			}
+			if( i == fqname.length() ) {
+				throw new IllegalArgumentException( "No version given in " + fqname );
+			}
+		}
+	}
 
-		/* Find the revision number, make it zero if it is not found */
-		Matcher m = p_revision.matcher( this.fqname );
-		if( m.find() ) {
-			// this.revision = Integer.parseInt( m.group( 1 ) );
-			this.version = m.group( 1 );
-		} else {
-			this.version = "0";
+	/* ^\S:\\ */
+	private static boolean isWindowsAbsolute( String name ) {
+		if( name.length() < 3 || name.charAt( 1 ) != ':' || name.charAt( 2 ) != '\\' ) {
+			return false;
 		}
-		
-		String tmp = this.fqname;
-		tmp = tmp.replaceFirst( "(?m)@@.*$", "" );
-		tmp = tmp.replaceFirst( "(?m)^\\s+", "" );
-		this.fullfile = tmp.trim();
-
-        /**/
-        if( fullfile.matches( ".*" + qfsor + "\\.$" ) ) {
-            fullfile = fullfile.substring( 0, fullfile.length() - 1 );
-            logger.fine( "Filename ends with dot, and is now \"" + fullfile + "\"" );
-        }
-		
-		/* Check if this is a newly added element
-		 * Ie this is only shown as a parent folder change 
-		 *  view\MonKit006\MonKit006\src@@\main\monkit006_1_dev\2\test\main\monkit006_1_dev\1\java\main\monkit006_1_dev\1
-		 * */
-		this.status = Status.CHANGED;
-		Matcher ma = rx_findAddedElements.matcher( version );
-		while( ma.find() ) {
-			this.fullfile += filesep + ma.group( 2 );
+
+		char c = name.charAt( 0 );
+		return c != ' ' && c != '\t' && c != '\n' && c != '\u000B' && c != '\f' && c != '\r';
+	}
+
+	private static boolean isDigit( char c ) {
+		return c >= '0' && c <= '9';
+	}
+
+	/**
+	 * Parse the version extended path name in a single pass. The name is on the form <code>element@@version</code>, where the version is a
+	 * branch path and a revision number, for example <code>/vobs/src/file.c@@/main/int/4</code>.
+	 * A version of a directory can continue with the names and versions of added elements,
+	 * <code>/vobs/src@@/main/int/3/new_dir/main/int/1/new_file.c/main/int/1</code>, whose names are appended to the file.
+	 */
+	private void parse() {
+		if( parsed ) {
+			return;
 		}
 
-        this.fullfile = this.fullfile.replace( "@@", "" );
+		synchronized( this ) {
+			if( parsed ) {
+				return;
+			}
 
-		this.file = new File( this.fullfile );
+			String name = this.fqname;
+			int at = name.indexOf( "@@" );
 
-        this.qualifiedFilename = fqname.replaceAll( "^(.*@@)(.*?)$", "$1" );
-        /* Make sure @@ is appended to the version */
-        if( !qualifiedFilename.endsWith( "@@" ) ) {
-            this.qualifiedFilename += "@@";
-        }
+			/* The version is everything after the first @@, make it zero if it is not found */
+			this.version = at >= 0 ? name.substring( at + 2 ) : "0";
 
-        if( version.contains( "@@" ) ) {
-            String[] s = version.split( "@@" );
-            handleSimpleVersion( s[1] );
-        } else {
-            handleSimpleVersion( version );
-        }
+			String element = ( at >= 0 ? name.substring( 0, at ) : name ).trim();
+			int length = element.length();
+			if( length > 1 && element.charAt( length - 1 ) == '.' && ( element.charAt( length - 2 ) == '\\' || element.charAt( length - 2 ) == '/' ) ) {
+				element = element.substring( 0, length - 1 );
+				logger.fine( "Filename ends with dot, and is now \"" + element + "\"" );
+			}
+
+			/* Check if this is a newly added element
+			 * Ie this is only shown as a parent folder change
+			 *  view\MonKit006\MonKit006\src@@\main\monkit006_1_dev\2\test\main\monkit006_1_dev\1\java\main\monkit006_1_dev\1
+			 * */
+			this.status = Status.CHANGED;
+			StringBuilder fullfile = new StringBuilder( element );
+			appendAddedElements( fullfile, version );
+
+			this.fullfile = fullfile.indexOf( "@@" ) >= 0 ? fullfile.toString().replace( "@@", "" ) : fullfile.toString();
+			this.file = new File( this.fullfile );
+
+			int last = name.lastIndexOf( "@@" );
+			this.qualifiedFilename = last >= 0 ? name.substring( 0, last + 2 ) : name + "@@";
+
+			/* Of a version with several @@, only the part after the second is the version of this element */
+			int v = version.indexOf( "@@" );
+			if( v >= 0 ) {
+				int end = version.indexOf( "@@", v + 2 );
+				handleSimpleVersion( version.substring( v + 2, end >= 0 ? end : version.length() ) );
+			} else {
+				handleSimpleVersion( version );
+			}
+
+			parsed = true;
+		}
+	}
+
+	/**
+	 * Append the names of the added elements of a directory version.
+	 * Finds each separator, followed by the first branch path ending in a revision number, followed by a name ending in a separator.
+	 */
+	private static void appendAddedElements( StringBuilder fullfile, String version ) {
+		char sep = filesepChar;
+		int length = version.length();
+		int pos = 0;
+		int i;
+		while( ( i = version.indexOf( sep, pos ) ) >= 0 ) {
+			int j = i;
+			int m = -1;
+			int k = 0;
+			while( ( j = version.indexOf( sep, j + 1 ) ) >= 0 ) {
+				k = j + 1;
+				while( k < length && isDigit( version.charAt( k ) ) ) {
+					k++;
+				}
+				if( k > j + 1 && k < length && version.charAt( k ) == sep ) {
+					/* If no separator follows this revision number, none follows a later one either */
+					m = version.indexOf( sep, k + 1 );
+					break;
+				}
+			}
+
+			if( m < 0 ) {
+				return;
+			}
+
+			fullfile.append( filesep ).append( version, k + 1, m );
+			pos = m + 1;
+		}
 	}
 
     private void handleSimpleVersion( String version ) {
-        Matcher r = rx_findRevision.matcher( version );
+        /* The first separator followed by a number ends the branch path */
+        int length = version.length();
+        for( int p = 0 ; p < length - 1 ; ++p ) {
+            char c = version.charAt( p );
+            if( ( c == '\\' || c == '/' ) && isDigit( version.charAt( p + 1 ) ) ) {
+                int end = p + 1;
+                while( end < length && isDigit( version.charAt( end ) ) ) {
+                    end++;
+                }
+
+                this.revision = Integer.parseInt( version.substring( p + 1, end ) );
+                if( this.revision == 1 ) {
+                    this.status = Status.ADDED;
+                }
+
+                this.branch = version.substring( 0, p );
+                this.branches = getSharedBranches( this.branch );
+                return;
+            }
+        }
 
-        if( r.find() ) {
-            this.revision = Integer.parseInt( r.group( 2 ) );
-            if( this.revision == 1 ) {
-                this.status = Status.ADDED;
+        this.branches = Collections.EMPTY_LIST;
+    }
+
+    private static List<Branch> getSharedBranches( String branchPath ) {
+        List<Branch> branches = sharedBranches.get( branchPath );
+        if( branches == null ) {
+            /* Unusually many branches, start over rather than keep them all */
+            if( sharedBranches.size() >= maxSharedBranches ) {
+                sharedBranches.clear();
             }
 
-            this.branch = r.group( 1 );
-            this.branches = getBranches( this.branch );
-        } else {
-            this.branches = Collections.EMPTY_LIST;
+            branches = Collections.unmodifiableList( getBranches( branchPath ) );
+            List<Branch> existing = sharedBranches.putIfAbsent( branchPath, branches );
+            if( existing != null ) {
+                branches = existing;
+            }
         }
+
+        return branches;
     }
 
     /**
@@ -189,6 +291,7 @@ public class Version extends UCMEntity implements Comparable<Version> {
      * @return Fully qualified file name
      */
     public String getQualifiedFilename() {
+        parse();
         return qualifiedFilename;
     }
 
@@ -207,10 +310,12 @@ public class Version extends UCMEntity implements Comparable<Version> {
     }
 
     public List<Branch> getBranches() {
+        parse();
         return branches;
     }
 
     public Branch getUltimateBranch() {
+        parse();
         int s = branches.size();
         if( s > 0 ) {
             return branches.get( s - 1 );
@@ -220,11 +325,11 @@ public class Version extends UCMEntity implements Comparable<Version> {
     }
 
 	public boolean hijack() {
-		if( this.file.canWrite() ) {
+		if( getFile().canWrite() ) {
 			return true;
 		}
 
-		return this.file.setWritable( true );
+		return getFile().setWritable( true );
 	}
 
     /**
@@ -261,6 +366,7 @@ public class Version extends UCMEntity implements Comparable<Version> {
 	}
 
 	public String getVersion() throws UnableToLoadEntityException {
+		parse();
 		return this.version;
 	}
 
@@ -269,6 +375,7 @@ public class Version extends UCMEntity implements Comparable<Version> {
      * @return Fully qualified branch name 
      */
 	public String getBranch() {
+		parse();
 		return branch;
 	}
 	
@@ -283,26 +390,41 @@ public class Version extends UCMEntity implements Comparable<Version> {
                 logger.warning(String.format("The version path is getting long, recorded length of %s", vlength) );
             }
             
-            String cmd = "describe -fmt %u}{%Vn}{%Xn}{%[object_kind]p \"" + this + "\"";            
-			String[] list = Cleartool.run( cmd, view ).stdoutBuffer.toString().split( "\\}\\{" );
-
-			/* First line, user */
-			setUser( list[0] );
-            
-			if( list[3].equals( "file element" ) ) {
-				setKind( Kind.FILE_ELEMENT );
-			} else if( list[3].equals( "directory version" ) ) {
-				setKind( Kind.DIRECTORY_ELEMENT );
-			}
+            String cmd = "describe -fmt " + getLoadFormat() + " \"" + this + "\"";            
+			populate( Cleartool.run( cmd, view ).stdoutBuffer.toString() );
 		} catch( Exception e ) {
 			throw new UnableToLoadEntityException( this, e );
 		}
-
-        this.loaded = true;
 		
 		return this;
 	}
 
+    @Override
+    protected String getLoadFormat() {
+        return "%u}{%Vn}{%Xn}{%[object_kind]p";
+    }
+
+    @Override
+    protected File getLoadContext() {
+        return view;
+    }
+
+    @Override
+    protected void populate( String result ) {
+        String[] list = result.split( "\\}\\{" );
+
+        /* First line, user */
+        setUser( list[0] );
+
+        if( list[3].equals( "file element" ) ) {
+            setKind( Kind.FILE_ELEMENT );
+        } else if( list[3].equals( "directory version" ) ) {
+            setKind( Kind.DIRECTORY_ELEMENT );
+        }
+
+        this.loaded = true;
+    }
+
     /**
      * Get the {@link Activity} for a {@link Version}.
      * In base ClearCase the {@link Activity} object does not exist, it must therefore be allowed to return null. See FB case 9988.
@@ -459,7 +581,7 @@ public class Version extends UCMEntity implements Comparable<Version> {
 		}
 	
 	public void checkIn() throws CleartoolException {
-		checkIn( file, false, view );
+		checkIn( getFile(), false, view );
 	}
 	
 	public static void checkIn( File file, boolean identical, File viewContext ) throws CleartoolException {
@@ -509,7 +631,7 @@ public class Version extends UCMEntity implements Comparable<Version> {
 	}
 	
 	public void removeVersion() throws CleartoolException {
-		removeVersion( this.file, view );
+		removeVersion( getFile(), view );
 	}
 
     /**
@@ -545,7 +667,7 @@ public class Version extends UCMEntity implements Comparable<Version> {
 	}
 	
 	public void removeName( ) throws CleartoolException {
-		removeName( this.file, view );
+		removeName( getFile(), view );
 	}
 	
 	public static void removeName( File file, File context ) throws CleartoolException {
@@ -607,7 +729,7 @@ public class Version extends UCMEntity implements Comparable<Version> {
 	}
 	
 	public void moveFile( File destination ) throws CleartoolException {
-		moveFile( file, destination, view );
+		moveFile( getFile(), destination, view );
 	}
 	
 	public void uncheckout() throws CleartoolException {
@@ -657,22 +779,27 @@ public class Version extends UCMEntity implements Comparable<Version> {
 	}
 	
 	public void setFile( File file ) {
+		parse();
 		this.file = file;
 	}
 	
 	public File getFile() {
+		parse();
 		return file;
 	}
 	
 	public void setStatus( Status status ) {
+		parse();
 		this.status = status;
 	}
 	
 	public Status getStatus() {
+		parse();
 		return status;
 	}
 	
 	public Integer getRevision() {
+		parse();
 		return this.revision;
 	}
 	
@@ -777,6 +904,7 @@ public class Version extends UCMEntity implements Comparable<Version> {
 			sb.append( super.stringify() );
 			sb.append(super.stringify()).append(linesep);
 
+			parse();
 			sb.append("Filename: ").append(this.fullfile).append(linesep);
 			sb.append("Revision: ").append(this.version).append(linesep);
 		} catch( UnableToLoadEntityException e ) {
@@ -860,14 +988,14 @@ public class Version extends UCMEntity implements Comparable<Version> {
 	@Override
 	public int compareTo( Version other ) {
 		/* The same file */
-		if( this.file.equals( other.getFile() ) ) {
+		if( getFile().equals( other.getFile() ) ) {
 			try {
-				return this.version.compareTo( other.getVersion() );
+				return getVersion().compareTo( other.getVersion() );
 			} catch ( UnableToLoadEntityException e) {
 				return -1;
 			}
 		} else {
-			return this.file.compareTo( other.getFile() );
+			return getFile().compareTo( other.getFile() );
 		}
 	}
 
@@ -890,6 +1018,6 @@ public class Version extends UCMEntity implements Comparable<Version> {
 	}
 
     public String getElementObjectId() throws CleartoolException {
-        return new Describe( qualifiedFilename ).getObjectId().executeGetFirstLine(true);
+        return new Describe( getQualifiedFilename() ).getObjectId().executeGetFirstLine(true);
     }
 }
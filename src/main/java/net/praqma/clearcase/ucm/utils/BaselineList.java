@@ -3,9 +3,17 @@ package net.praqma.clearcase.ucm.utils;
 import java.io.Serializable;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Logger;
 
 import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.LineHandler;
+import net.praqma.clearcase.cleartool.RetryPolicy;
 import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
 import net.praqma.clearcase.exceptions.UnableToListBaselinesException;
 import net.praqma.clearcase.ucm.entities.Baseline;
@@ -26,6 +34,8 @@ public class BaselineList extends ArrayList<Baseline> {
     private PromotionLevel level;
     private boolean multisitePolling;
     private int limit = 0;
+    private int loadParallelism = 1;
+    private transient ExecutorService executor;
     private List<Baseline> required = new LinkedList<Baseline>();
 
     public BaselineList() { }
@@ -111,19 +121,7 @@ public class BaselineList extends ArrayList<Baseline> {
 
         /* Load em? */
         if (load) {
-            Iterator<Baseline> it = this.iterator();
-            while (it.hasNext()) {
-                Baseline baseline = it.next();
-                try {
-                    baseline.load();
-                } catch (Exception e) {
-                    logger.warning("[ClearCase] Unable to load " + baseline.getNormalizedName() + ": " + e.getMessage());
-                    it.remove();
-                    pruned++;
-                    continue;
-                    /* Just continue */
-                }
-            }
+            pruned += loadBaselines();
         }
 
         if (pruned > 0) {
@@ -133,7 +131,7 @@ public class BaselineList extends ArrayList<Baseline> {
         /* Limit? 0 = unlimited */
         if (limit > 0 && this.size() > 0) {
             BaselineList n = new BaselineList();
-            n.addAll(this.subList(0, limit));
+            n.addAll(this.subList(0, Math.min(limit, this.size())));
             logger.fine("Final list of baselines: " + n);
             return n;
         } else {
@@ -190,6 +188,32 @@ public class BaselineList extends ArrayList<Baseline> {
         return this;
     }
 
+    /**
+     * Load the {@link Baseline}s using at most <code>parallelism</code> concurrent loads.
+     *
+     * @param parallelism The maximum number of baselines loaded at the same time
+     * @return A loaded {@link BaselineList}
+     */
+    public BaselineList load(int parallelism) {
+        this.load = true;
+        this.loadParallelism = Math.max(parallelism, 1);
+
+        return this;
+    }
+
+    /**
+     * Use the given {@link ExecutorService} for loading. If not given, a pool is created for each {@link #apply()}
+     * when the parallelism is greater than one.
+     *
+     * @param executor The executor
+     * @return The {@link BaselineList}
+     */
+    public BaselineList setLoadExecutor(ExecutorService executor) {
+        this.executor = executor;
+
+        return this;
+    }
+
     /**
      * Set the sorting of the {@link BaselineList}
      *
@@ -214,38 +238,160 @@ public class BaselineList extends ArrayList<Baseline> {
         return this;
     }
 
+    /**
+     * Load the baselines in order, keeping at most {@link #loadParallelism} loads in flight.
+     * Baselines failing to load are removed. When a limit is set, loading stops once that many baselines are loaded.
+     *
+     * @return The number of pruned baselines
+     */
+    private int loadBaselines() {
+        int pruned = 0;
+        boolean shutdown = false;
+        ExecutorService service = executor;
+        if (service == null && loadParallelism > 1) {
+            service = Executors.newFixedThreadPool(loadParallelism);
+            shutdown = true;
+        }
+
+        List<Baseline> loaded = new ArrayList<Baseline>(this.size());
+        LinkedList<Future<Baseline>> inflight = new LinkedList<Future<Baseline>>();
+        int next = 0;
+
+        try {
+            while (next < this.size() || !inflight.isEmpty()) {
+                /* Fill the window, but do not load more than the limit requires */
+                while (next < this.size() && inflight.size() < loadParallelism && (limit <= 0 || loaded.size() + inflight.size() < limit)) {
+                    Callable<Baseline> task = new LoadTask(this.get(next++));
+                    if (service == null) {
+                        FutureTask<Baseline> f = new FutureTask<Baseline>(task);
+                        f.run();
+                        inflight.add(f);
+                    } else {
+                        inflight.add(service.submit(task));
+                    }
+                }
+
+                Baseline baseline = null;
+                try {
+                    baseline = inflight.removeFirst().get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while loading baselines", e);
+                } catch (ExecutionException e) {
+                    logger.warning("[ClearCase] " + e.getCause().getMessage());
+                }
+
+                if (baseline != null) {
+                    loaded.add(baseline);
+                    if (limit > 0 && loaded.size() >= limit) {
+                        break;
+                    }
+                } else {
+                    pruned++;
+                }
+            }
+        } finally {
+            /* Loads not started are dropped, running loads are left to complete rather than interrupting cleartool */
+            for (Future<Baseline> f : inflight) {
+                f.cancel(false);
+            }
+            if (shutdown) {
+                service.shutdown();
+            }
+        }
+
+        this.clear();
+        this.addAll(loaded);
+
+        return pruned;
+    }
+
+    private static class LoadTask implements Callable<Baseline> {
+        private final Baseline baseline;
+
+        private LoadTask(Baseline baseline) {
+            this.baseline = baseline;
+        }
+
+        @Override
+        public Baseline call() throws Exception {
+            try {
+                baseline.load();
+            } catch (Exception e) {
+                throw new Exception("Unable to load " + baseline.getNormalizedName() + ": " + e.getMessage(), e);
+            }
+            return baseline;
+        }
+    }
+
     private List<Baseline> _get() throws UnableToInitializeEntityException, UnableToListBaselinesException {
-        List<String> bls_str = null;
-        String cmd;
+        /* Without anything to filter, sort or load, the first baselines listed are the result */
+        if (limit > 0 && filters.isEmpty() && sorter == null && required.isEmpty() && !load) {
+            return _get(limit);
+        }
+
+        return _get(0);
+    }
+
+    /**
+     * List the baselines, creating them as the output of lsbl is read
+     *
+     * @param max Stop lsbl when this many baselines are listed, 0 for all
+     */
+    private List<Baseline> _get(final int max) throws UnableToInitializeEntityException, UnableToListBaselinesException {
+        final String cmd;
 
         if (SystemUtils.IS_OS_WINDOWS) {
             cmd = "lsbl -fmt %Xn::%Nd::%[label_status]p\\n -component " + component + " -stream " + stream + (level != null ? " -level " + level.toString() : "");
         } else {
             cmd = "lsbl -fmt %Xn::%Nd::%[label_status]p\\\\n -component " + component + " -stream " + stream + (level != null ? " -level " + level.toString() : "");
         }
+
+        final List<Baseline> bls = new ArrayList<Baseline>();
+        final UnableToInitializeEntityException[] error = new UnableToInitializeEntityException[1];
+        final LineHandler handler = new LineHandler() {
+            @Override
+            public boolean handle(String bl) {
+                logger.finest("The output: " + bl);
+                String[] split = bl.split("::");
+                try {
+                    Baseline baseline = Baseline.get(split[0]);
+                    try {
+                        baseline.setDate(split[1]);
+                        baseline.setLabelStatusFromString(split[2]);
+                    } catch (ParseException e) {
+                        throw new UnableToInitializeEntityException(baseline.getClass(), e);
+                    }
+                    bls.add(baseline);
+                } catch (UnableToInitializeEntityException e) {
+                    error[0] = e;
+                    return false;
+                }
+
+                return max <= 0 || bls.size() < max;
+            }
+        };
+
         try {
-            bls_str = Cleartool.run(cmd).stdoutList;
-            logger.finest("The output: " + bls_str);
+            /* The output is not buffered, so a retried lsbl starts over */
+            Cleartool.getRetryPolicy().execute(cmd, new RetryPolicy.Attempt<Boolean, AbnormalProcessTerminationException>() {
+                @Override
+                public Boolean run() {
+                    bls.clear();
+                    return Cleartool.stream(cmd, null, handler);
+                }
+            });
         } catch (AbnormalProcessTerminationException e) {
             logger.warning(e.getMessage());
             throw new UnableToListBaselinesException(stream, component, level, e);
         }
 
-        logger.fine("I got " + bls_str.size() + " baselines.");
-        List<Baseline> bls = new ArrayList<Baseline>();
-
-        for (String bl : bls_str) {
-            String[] split = bl.split("::");
-            Baseline baseline = Baseline.get(split[0]);
-            try {
-                baseline.setDate(split[1]);
-                baseline.setLabelStatusFromString(split[2]);
-            } catch (ParseException e) {
-                throw new UnableToInitializeEntityException(baseline.getClass(), e);
-            }
-            bls.add(baseline);
+        if (error[0] != null) {
+            throw error[0];
         }
 
+        logger.fine("I got " + bls.size() + " baselines.");
+
         return bls;
     }
 
@@ -0,0 +1,307 @@
+package net.praqma.clearcase.ucm.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import net.praqma.clearcase.PVob;
+import net.praqma.clearcase.api.Describe;
+import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.LineHandler;
+import net.praqma.clearcase.cleartool.RecordSplitter;
+import net.praqma.clearcase.exceptions.CleartoolException;
+import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
+import net.praqma.clearcase.ucm.entities.Project;
+import net.praqma.clearcase.ucm.entities.Stream;
+import net.praqma.util.execute.AbnormalProcessTerminationException;
+
+/**
+ * The streams of a {@link PVob} and how they relate, read with one <code>lsstream</code>.<br>
+ * The name, project, default deliver target, mastership and child streams of every stream are listed, and the parent of a stream is the
+ * stream listing it as a child. The integration streams are read from the projects with one <code>lsproject</code>, since the children
+ * of an obsolete stream, which is not listed, have no parent either.
+ * All queries are answered from memory. A topology does not change, {@link #refresh()} reads a new one.
+ *
+ * {@link #get(PVob)} keeps the topology of a PVob until it is refreshed or invalidated.
+ *
+ * @author cwolfgang
+ */
+public class StreamTopology {
+
+    private static final Logger logger = Logger.getLogger( StreamTopology.class.getName() );
+
+    private static final String separator = "}{";
+    private static final String format = "%Xn" + separator + "%[project]Xp" + separator + "%X[def_deliver_tgt]p" + separator + "%[master]p" + separator + "%[dstreams]Xp";
+
+    private static final Map<String, StreamTopology> topologies = new HashMap<String, StreamTopology>();
+
+    private final PVob pvob;
+    private final Map<String, Node> nodes;
+    private final Set<String> integrationStreams;
+    private final long created;
+
+    private static class Node {
+        private final String name;
+        private final String project;
+        private final String target;
+        private final String mastership;
+        private final List<String> children;
+        private String parent = null;
+
+        private Node( String name, String project, String target, String mastership, List<String> children ) {
+            this.name = name;
+            this.project = project;
+            this.target = target;
+            this.mastership = mastership;
+            this.children = children;
+        }
+    }
+
+    private StreamTopology( PVob pvob, Map<String, Node> nodes, Set<String> integrationStreams ) {
+        this.pvob = pvob;
+        this.nodes = nodes;
+        this.integrationStreams = integrationStreams;
+        this.created = System.currentTimeMillis();
+
+        for( Node node : nodes.values() ) {
+            for( String child : node.children ) {
+                Node c = nodes.get( child );
+                if( c != null ) {
+                    c.parent = node.name;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the topology of the PVob, reading it if it was not read before
+     * @param pvob The {@link PVob}
+     * @return The {@link StreamTopology}
+     * @throws CleartoolException If the streams could not be listed
+     */
+    public static StreamTopology get( PVob pvob ) throws CleartoolException {
+        synchronized( topologies ) {
+            StreamTopology topology = topologies.get( pvob.getName() );
+            if( topology != null ) {
+                return topology;
+            }
+        }
+
+        return load( pvob ).remember();
+    }
+
+    /**
+     * Read the topology of the PVob, without remembering it
+     * @param pvob The {@link PVob}
+     * @return A new {@link StreamTopology}
+     * @throws CleartoolException If the streams could not be listed
+     */
+    public static StreamTopology load( PVob pvob ) throws CleartoolException {
+        final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+        RecordSplitter records = new RecordSplitter( Describe.recordSeparator, new LineHandler() {
+            @Override
+            public boolean handle( String record ) {
+                String[] data = record.trim().split( "\\}\\{", -1 );
+                if( data.length < 5 ) {
+                    logger.warning( "Unable to parse the stream " + record );
+                    return true;
+                }
+
+                List<String> children = new ArrayList<String>();
+                for( String child : data[4].trim().split( "\\s+" ) ) {
+                    if( !child.isEmpty() ) {
+                        children.add( child );
+                    }
+                }
+
+                String name = data[0].trim();
+                nodes.put( name, new Node( name, data[1].trim(), data[2].trim(), data[3].trim(), children ) );
+                return true;
+            }
+        } );
+
+        String cmd = "lsstream -fmt " + format + Describe.recordSeparator + " -invob " + pvob;
+        try {
+            Cleartool.stream( cmd, null, records );
+        } catch( AbnormalProcessTerminationException e ) {
+            throw new CleartoolException( "Unable to list the streams of " + pvob, e );
+        }
+        records.flush();
+
+        final Set<String> integrationStreams = new LinkedHashSet<String>();
+        RecordSplitter projects = new RecordSplitter( Describe.recordSeparator, new LineHandler() {
+            @Override
+            public boolean handle( String record ) {
+                String name = record.trim();
+                if( !name.isEmpty() ) {
+                    integrationStreams.add( name );
+                }
+                return true;
+            }
+        } );
+
+        cmd = "lsproject -fmt %[istream]Xp" + Describe.recordSeparator + " -invob " + pvob;
+        try {
+            Cleartool.stream( cmd, null, projects );
+        } catch( AbnormalProcessTerminationException e ) {
+            throw new CleartoolException( "Unable to list the projects of " + pvob, e );
+        }
+        projects.flush();
+
+        logger.fine( "Found " + nodes.size() + " streams and " + integrationStreams.size() + " integration streams in " + pvob );
+
+        return new StreamTopology( pvob, nodes, integrationStreams );
+    }
+
+    /**
+     * Read the topology of the PVob again, and remember the new topology
+     * @return The new {@link StreamTopology}
+     * @throws CleartoolException If the streams could not be listed
+     */
+    public StreamTopology refresh() throws CleartoolException {
+        return load( pvob ).remember();
+    }
+
+    private StreamTopology remember() {
+        synchronized( topologies ) {
+            topologies.put( pvob.getName(), this );
+        }
+
+        return this;
+    }
+
+    /**
+     * Forget the topology of the PVob, for example after creating or removing streams
+     */
+    public static void invalidate( PVob pvob ) {
+        synchronized( topologies ) {
+            topologies.remove( pvob.getName() );
+        }
+    }
+
+    public PVob getPVob() {
+        return pvob;
+    }
+
+    /**
+     * @return The number of milliseconds since the topology was read
+     */
+    public long getAge() {
+        return System.currentTimeMillis() - created;
+    }
+
+    public boolean contains( Stream stream ) {
+        return nodes.containsKey( stream.getFullyQualifiedName() );
+    }
+
+    public List<Stream> getStreams() throws UnableToInitializeEntityException {
+        return toStreams( nodes.keySet() );
+    }
+
+    /**
+     * @return The integration streams of the projects
+     */
+    public List<Stream> getIntegrationStreams() throws UnableToInitializeEntityException {
+        return toStreams( integrationStreams );
+    }
+
+    /**
+     * @return The child streams of the stream, without obsolete streams, empty if the stream is unknown
+     */
+    public List<Stream> getChildStreams( Stream stream ) throws UnableToInitializeEntityException {
+        Node node = nodes.get( stream.getFullyQualifiedName() );
+        if( node == null ) {
+            return Collections.emptyList();
+        }
+
+        List<String> names = new ArrayList<String>( node.children.size() );
+        for( String child : node.children ) {
+            if( nodes.containsKey( child ) ) {
+                names.add( child );
+            }
+        }
+
+        return toStreams( names );
+    }
+
+    /**
+     * @return The parent stream, or null for an integration stream, a stream whose parent is obsolete or an unknown stream
+     */
+    public Stream getParentStream( Stream stream ) throws UnableToInitializeEntityException {
+        Node node = nodes.get( stream.getFullyQualifiedName() );
+        return node == null || node.parent == null ? null : Stream.get( node.parent );
+    }
+
+    /**
+     * @return The default deliver target, or null if there is none or the stream is unknown
+     */
+    public Stream getDefaultTarget( Stream stream ) throws UnableToInitializeEntityException {
+        Node node = nodes.get( stream.getFullyQualifiedName() );
+        return node == null || node.target.isEmpty() ? null : Stream.get( node.target );
+    }
+
+    /**
+     * @return The project of the stream, or null if the stream is unknown
+     */
+    public Project getProject( Stream stream ) throws UnableToInitializeEntityException {
+        Node node = nodes.get( stream.getFullyQualifiedName() );
+        return node == null || node.project.isEmpty() ? null : Project.get( node.project );
+    }
+
+    /**
+     * @return The mastership of the stream, or null if the stream is unknown
+     */
+    public String getMastership( Stream stream ) {
+        Node node = nodes.get( stream.getFullyQualifiedName() );
+        return node == null ? null : node.mastership;
+    }
+
+    /**
+     * @return The streams having the stream as their default deliver target
+     */
+    public List<Stream> getDeliveringStreams( Stream target ) throws UnableToInitializeEntityException {
+        List<String> names = new ArrayList<String>();
+        for( Node node : nodes.values() ) {
+            if( node.target.equals( target.getFullyQualifiedName() ) ) {
+                names.add( node.name );
+            }
+        }
+
+        return toStreams( names );
+    }
+
+    /**
+     * The integration streams of other projects delivering to the stream by default, see {@link Stream#getSiblingStreams()}
+     * @return The sibling streams
+     */
+    public List<Stream> getSiblingStreams( Stream stream ) throws UnableToInitializeEntityException {
+        List<String> names = new ArrayList<String>();
+        for( Node node : nodes.values() ) {
+            if( integrationStreams.contains( node.name ) && node.target.equals( stream.getFullyQualifiedName() ) ) {
+                names.add( node.name );
+            }
+        }
+
+        return toStreams( names );
+    }
+
+    private static List<Stream> toStreams( Iterable<String> names ) throws UnableToInitializeEntityException {
+        List<Stream> streams = new ArrayList<Stream>();
+        for( String name : names ) {
+            streams.add( Stream.get( name ) );
+        }
+
+        return streams;
+    }
+
+    @Override
+    public String toString() {
+        return "StreamTopology[" + pvob + ", " + nodes.size() + " streams]";
+    }
+}
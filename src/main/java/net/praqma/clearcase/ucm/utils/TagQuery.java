@@ -2,10 +2,20 @@ package net.praqma.clearcase.ucm.utils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import net.praqma.util.structure.Tuple;
 
+/**
+ * A list of conditions, a key and a regular expression its value must contain.
+ * A missing key is treated as the empty string, which the whole expression must match.<br>
+ * The expressions are compiled once, when the query is first evaluated after a change, so a query can be reused for many tags.
+ */
 public class TagQuery extends ArrayList<Tuple<String, String>> {
+
+    private transient volatile Condition[] compiled = null;
+
     public TagQuery() {
     }
 
@@ -16,4 +26,71 @@ public class TagQuery extends ArrayList<Tuple<String, String>> {
     public void AddCondition( String key, String condition ) {
         this.add( new Tuple<String, String>( key, condition ) );
     }
-}
\ No newline at end of file
+
+    /**
+     * Evaluate the query
+     * @param keyval The key value pairs of a tag
+     * @return True if all conditions hold
+     */
+    public boolean matches( Map<String, String> keyval ) {
+        for( Condition c : getConditions() ) {
+            String value = keyval.get( c.key );
+            if( value != null ) {
+                if( !c.pattern.matcher( value ).find() ) {
+                    return false;
+                }
+            } else if( !c.matchesEmpty ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /* The compiled conditions, compiled again if a condition was added, removed or replaced */
+    private Condition[] getConditions() {
+        Condition[] conditions = compiled;
+        if( conditions != null && isCurrent( conditions ) ) {
+            return conditions;
+        }
+
+        conditions = new Condition[size()];
+        for( int i = 0 ; i < conditions.length ; ++i ) {
+            conditions[i] = new Condition( get( i ) );
+        }
+        compiled = conditions;
+
+        return conditions;
+    }
+
+    private boolean isCurrent( Condition[] conditions ) {
+        if( conditions.length != size() ) {
+            return false;
+        }
+
+        for( int i = 0 ; i < conditions.length ; ++i ) {
+            Tuple<String, String> t = get( i );
+            if( conditions[i].tuple != t || conditions[i].key != t.t1 || conditions[i].condition != t.t2 ) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static class Condition {
+        private final Tuple<String, String> tuple;
+        private final String key;
+        private final String condition;
+        private final Pattern pattern;
+        private final boolean matchesEmpty;
+
+        private Condition( Tuple<String, String> tuple ) {
+            this.tuple = tuple;
+            this.key = tuple.t1;
+            this.condition = tuple.t2;
+            this.pattern = Pattern.compile( condition );
+            this.matchesEmpty = pattern.matcher( "" ).matches();
+        }
+    }
+}
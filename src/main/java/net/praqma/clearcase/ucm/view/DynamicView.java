@@ -1,6 +1,7 @@
 package net.praqma.clearcase.ucm.view;
 
 import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.RetryPolicy;
 import net.praqma.clearcase.exceptions.ViewException;
 import net.praqma.clearcase.exceptions.ViewException.Type;
 import net.praqma.clearcase.ucm.entities.Stream;
@@ -36,18 +37,17 @@ public class DynamicView extends UCMView {
 	 * @return An instance of DynamicView
 	 * @throws ViewException Thrown when a ClearTool error occurs
 	 */
-	public static DynamicView create( String stgloc, String tagTag, Stream stream ) throws ViewException {
+	public static DynamicView create( final String stgloc, final String tagTag, final Stream stream ) throws ViewException {
  
-        try { 
-            UCMView.create( tagTag, stgloc, false, stream );
-        } catch (ViewException ex) {
-            try {              
-                Thread.sleep(10000);
-                UCMView.create(tagTag, stgloc, false, stream);
-            } catch (InterruptedException ex1) {
-               throw ex;
+        /* Creating a view right after another may fail while the view server starts, retry */
+        RetryPolicy policy = Cleartool.getRetryPolicy().copy().setAttempts( 2 ).setInitialDelay( 10000 ).retryOn( ViewException.class );
+        policy.execute( "mkview " + tagTag, new RetryPolicy.Attempt<Void, ViewException>() {
+            @Override
+            public Void run() throws ViewException {
+                UCMView.create( tagTag, stgloc, false, stream );
+                return null;
             }
-        } 
+        } );
         
 		DynamicView view = new DynamicView( stgloc, tagTag, stream );
 		return view;
@@ -7,7 +7,17 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -18,6 +28,7 @@ import net.praqma.clearcase.PVob;
 import net.praqma.clearcase.Vob;
 import net.praqma.clearcase.api.ListVob;
 import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.command.ListVobs;
 import net.praqma.clearcase.exceptions.ClearCaseException;
 import net.praqma.clearcase.exceptions.CleartoolException;
 import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
@@ -67,6 +78,7 @@ public class SnapshotView extends UCMView {
 	private String uuid = "";
 	private String globalPath = "";
 	private Stream stream;
+	private int swipeParallelism = Runtime.getRuntime().availableProcessors();
 
 	public enum Components {
 		ALL, MODIFIABLE
@@ -549,14 +561,27 @@ public class SnapshotView extends UCMView {
         return swipe(viewroot, excludeRoot, null);
     }
 
+	/**
+	 * Remove the view private files of a snapshot view.<br>
+	 * The returned map holds the number of files found(<code>total</code>), <code>files_deleted</code>, <code>dirs_deleted</code>,
+	 * <code>success</code>(1 or 0) and the milliseconds spent finding(<code>scan_time</code>) and deleting(<code>delete_time</code>) them.
+	 */
 	public Map<String, Integer> swipe( File viewroot, boolean excludeRoot, String loadrules) throws CleartoolException {
 		logger.fine( viewroot.toString() );
 
+		long start = System.currentTimeMillis();
+
 		File[] files = viewroot.listFiles();
 		List<File> notVobs = new ArrayList<File>();
 		List<File> rootVPFiles = new ArrayList<File>();
         List<File> vobfolders = new LinkedList<File>(  );
 
+        /* Without load rules, vobs are identified by their tags. They are listed once, instead of once per folder */
+        Set<String> vobTags = null;
+        if( loadrules == null ) {
+            vobTags = getVobTags();
+        }
+
 		/*
 		 * Scanning root folder for directories that are not vobs and files, not
 		 * view.dat
@@ -570,7 +595,7 @@ public class SnapshotView extends UCMView {
 			if( f.isDirectory() ) {
                 //TODO: The clearcase functionality should be removed once swipe 2.0 is ready. We should only use the one that checks with loadrules.
                 if(loadrules == null) {
-                    if( Vob.isVob( f ) ) {
+                    if( vobTags != null ? vobTags.contains( Cool.filesep + f.getName() ) : Vob.isVob( f ) ) {
                         vobfolders.add( f );
                     } else {
                         notVobs.add( f );
@@ -604,88 +629,117 @@ public class SnapshotView extends UCMView {
         info.put( "total", 0 );
         info.put( "dirs_deleted", 0 );
         info.put( "files_deleted", 0 );
+        info.put( "scan_time", 0 );
+        info.put( "delete_time", 0 );
 
-        logger.fine( "Finding view private files" );
-        List<File> vpFiles = new ArrayList<File>();
+        ForkJoinPool pool = new ForkJoinPool( swipeParallelism );
+        try {
+            logger.fine( "Finding view private files" );
+            List<File> vpFiles = new ArrayList<File>();
 
-        for( File folder : vobfolders ) {
-            logger.fine( "Finding view private files for " + folder );
-            //TODO: Once swipe 2.0 has been verified, this check needs to be removed, we only need to use the findViewPrivateFilesFromVobUsingFileFilter method.
-            if(loadrules == null) {
-                vpFiles.addAll( findViewPrivateFilesFromVob( folder ) );
-            } else {
-                vpFiles.addAll( findViewPrivateFilesFromVobUsingFileFilter( folder ));
+            for( File folder : vobfolders ) {
+                logger.fine( "Finding view private files for " + folder );
+                //TODO: Once swipe 2.0 has been verified, this check needs to be removed, we only need to use the findViewPrivateFilesFromVobUsingFileFilter method.
+                if(loadrules == null) {
+                    vpFiles.addAll( findViewPrivateFilesFromVob( folder ) );
+                } else {
+                    vpFiles.addAll( findViewPrivateFilesFromVobUsingFileFilter( folder, pool ));
+                }
             }
-        }
 
-        if( !excludeRoot ) {
-            vpFiles.addAll( rootVPFiles );
-        }
+            if( !excludeRoot ) {
+                vpFiles.addAll( rootVPFiles );
+            }
 
-		int total = vpFiles.size();
-        logger.finest( "Aggregated view private files: " + vpFiles );
+            int total = vpFiles.size();
+            info.put( "total", total );
+            logger.finest( "Aggregated view private files: " + vpFiles );
 
-        if( total == 0 ) {
-            logger.fine( "No files to delete" );
-            return info;
-        }
+            long deleteStart = System.currentTimeMillis();
+            info.put( "scan_time", (int) ( deleteStart - start ) );
 
-		logger.fine( "Found " + total + " files, of which " + ( total - vpFiles.size() ) + " were UPDT, CO, CTR or KEEP's." );
-
-		List<File> dirs = new ArrayList<File>();
-		int dircount = 0;
-		int filecount = 0;
-
-		/* Removing view private files, saving directories for later */
-		logger.fine( "Removing files" );
-		for( File f : vpFiles ) {
-			if( f.exists() ) {
-				if( f.isDirectory() ) {
-                    /* TODO The directory could just be recursively deleted?! All sub files are view private too as well. */
-					dirs.add( f );
-				} else {
-                    if(	f.delete() ) {
-                        logger.finest(String.format( "Deleted file: %s", f.getAbsolutePath() ));
-					    filecount++;
-                    } else {
-                        logger.warning( "Could not delete " + f );
-                    }
-				}
-			} else {
-				logger.fine( "The file " + f + " does not exist." );
-			}
-		}
+            if( total == 0 ) {
+                logger.fine( "No files to delete" );
+                return info;
+            }
 
-		info.put( "files_deleted", filecount );
+            logger.fine( "Found " + total + " files" );
 
-		/* TODO Remove the directories, somehow!? Only the empty!? */
-		logger.config( "Removing directories:" );
-		for( File d : dirs ) {
-			try {
-                if(	d.delete() ) {
-                    dircount++;
-                } else {
-                    logger.warning( "Could not delete " + d );
+            /* Removing view private files in parallel batches, saving directories for later */
+            logger.fine( "Removing files" );
+            DeleteTask deletion = new DeleteTask( vpFiles, 0, total );
+            pool.invoke( deletion );
+            int filecount = deletion.deleted.get();
+
+            info.put( "files_deleted", filecount );
+
+            /* Deepest first, a directory can only be deleted when empty */
+            List<File> dirs = new ArrayList<File>( deletion.dirs );
+            Collections.sort( dirs, new Comparator<File>() {
+                @Override
+                public int compare( File f1, File f2 ) {
+                    return f2.getAbsolutePath().length() - f1.getAbsolutePath().length();
                 }
-			} catch( SecurityException e ) {
-				logger.fine( "Unable to delete \"" + d + "\". Probably not empty." );
-			}
-		}
+            } );
 
-		info.put( "dirs_deleted", dircount );
+            int dircount = 0;
 
-		logger.fine( "Deleted " + dircount + " director" + ( dircount == 1 ? "y" : "ies" ) + " and " + filecount + " file" + ( filecount == 1 ? "" : "s" ) );
+            /* TODO Remove the directories, somehow!? Only the empty!? */
+            logger.config( "Removing directories:" );
+            for( File d : dirs ) {
+                try {
+                    if(	d.delete() ) {
+                        dircount++;
+                    } else {
+                        logger.warning( "Could not delete " + d );
+                    }
+                } catch( SecurityException e ) {
+                    logger.fine( "Unable to delete \"" + d + "\". Probably not empty." );
+                }
+            }
 
-		if( dircount + filecount == total ) {
-			info.put( "success", 1 );
-		} else {
-			logger.warning( "Some files were not deleted." );
-			info.put( "success", 0 );
-		}
+            info.put( "dirs_deleted", dircount );
+            info.put( "delete_time", (int) ( System.currentTimeMillis() - deleteStart ) );
 
-		return info;
+            logger.fine( "Deleted " + dircount + " director" + ( dircount == 1 ? "y" : "ies" ) + " and " + filecount + " file" + ( filecount == 1 ? "" : "s" ) );
+
+            if( dircount + filecount == total ) {
+                info.put( "success", 1 );
+            } else {
+                logger.warning( "Some files were not deleted." );
+                info.put( "success", 0 );
+            }
+
+            return info;
+        } finally {
+            pool.shutdown();
+        }
 	}
 
+    /**
+     * @return The tags of all vobs, or null if they could not be listed
+     */
+    private static Set<String> getVobTags() {
+        try {
+            Set<String> tags = new HashSet<String>();
+            for( Vob vob : new ListVobs().execute().get() ) {
+                tags.add( vob.getName() );
+            }
+            return tags;
+        } catch( Exception e ) {
+            logger.log( Level.FINE, "Unable to list the vobs, checking each folder", e );
+            return null;
+        }
+    }
+
+    /**
+     * Set the number of threads used to find and delete view private files, default is the number of processors.
+     * @param parallelism The number of threads
+     */
+    public void setSwipeParallelism( int parallelism ) {
+        this.swipeParallelism = Math.max( parallelism, 1 );
+    }
+
     /**
      * Returns a list of view private files from a {@link Vob} folder.
      * @param vobFolder The {@link File} path for the {@link Vob}
@@ -712,34 +766,121 @@ public class SnapshotView extends UCMView {
     /**
      * Filters files in any given VOB folder, based on the assumption that all files that are writable (Not-read-only)
      * in a given vob folder are are view-private and can be safely deleted. We also exclude all the special cases like view update
-     * and other files.
+     * and other files.<br>
+     * The directories are walked in parallel, each directory is a task in the pool.
      * @param vobFolder The vob to look for view private files
+     * @param pool The {@link ForkJoinPool} walking the directories
      * @return A list of view private {@link File}s 
      */
-    private List<File> findViewPrivateFilesFromVobUsingFileFilter( File vobFolder ) {
-        ArrayList<File> foldersToCheck = new ArrayList<File>();
-        findAllSubDirs(vobFolder, foldersToCheck);
-        
-        ViewPrivateFileFilter roff = new ViewPrivateFileFilter();
-        List<File> files = new ArrayList<File>(Arrays.asList(vobFolder.listFiles(roff)));
-        for(File f : foldersToCheck) {
-            files.addAll(Arrays.asList(f.listFiles(roff)));
-        }
-        
-        
+    private List<File> findViewPrivateFilesFromVobUsingFileFilter( File vobFolder, ForkJoinPool pool ) {
+        List<File> files = pool.invoke( new ScanTask( vobFolder.toPath() ) );
+
         logger.info(String.format( "Found %s view private files in vob folder %s", files.size(), vobFolder.getName() ));
         return files;
     }
-    
-    private List<File> findAllSubDirs(File rootFolder, List<File> folders) {
-        File[] allfiles = rootFolder.listFiles();
-        for (File file : allfiles) {
-            if (file.isDirectory()) {
-                folders.add(file);
-                findAllSubDirs(file, folders);
+
+    /**
+     * Lists a directory, forking a task per sub directory. Symbolic links to directories are not followed.
+     */
+    private static class ScanTask extends RecursiveTask<List<File>> {
+        private final Path dir;
+
+        private ScanTask( Path dir ) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected List<File> compute() {
+            List<File> files = new ArrayList<File>();
+            List<ScanTask> subdirs = new ArrayList<ScanTask>();
+
+            DirectoryStream<Path> stream = null;
+            try {
+                stream = Files.newDirectoryStream( dir );
+                for( Path path : stream ) {
+                    BasicFileAttributes attrs = Files.readAttributes( path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS );
+                    if( attrs.isDirectory() ) {
+                        ScanTask task = new ScanTask( path );
+                        task.fork();
+                        subdirs.add( task );
+                    } else if( attrs.isRegularFile() || ( attrs.isSymbolicLink() && Files.isRegularFile( path ) ) ) {
+                        String name = path.getFileName().toString();
+                        if( !SnapshotView.isSpecialFile( name ) && !name.equals( VIEW_DOT_DAT_FILE ) && Files.isWritable( path ) ) {
+                            files.add( path.toFile() );
+                        }
+                    }
+                }
+            } catch( IOException e ) {
+                logger.log( Level.WARNING, "Unable to list " + dir, e );
+            } finally {
+                if( stream != null ) {
+                    try {
+                        stream.close();
+                    } catch( IOException e ) {
+                        logger.log( Level.FINE, "Unable to close " + dir, e );
+                    }
+                }
+            }
+
+            for( ScanTask task : subdirs ) {
+                files.addAll( task.join() );
+            }
+
+            return files;
+        }
+    }
+
+    /**
+     * Deletes the files of a range, splitting it into batches. Directories are collected, they are deleted when the files are gone.
+     */
+    private static class DeleteTask extends RecursiveAction {
+        private static final int batchSize = 256;
+
+        private final List<File> files;
+        private final int from;
+        private final int to;
+        private final AtomicInteger deleted;
+        private final Queue<File> dirs;
+
+        private DeleteTask( List<File> files, int from, int to ) {
+            this( files, from, to, new AtomicInteger(), new ConcurrentLinkedQueue<File>() );
+        }
+
+        private DeleteTask( List<File> files, int from, int to, AtomicInteger deleted, Queue<File> dirs ) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+            this.deleted = deleted;
+            this.dirs = dirs;
+        }
+
+        @Override
+        protected void compute() {
+            if( to - from > batchSize ) {
+                int middle = ( from + to ) >>> 1;
+                invokeAll( new DeleteTask( files, from, middle, deleted, dirs ), new DeleteTask( files, middle, to, deleted, dirs ) );
+                return;
+            }
+
+            for( int i = from ; i < to ; ++i ) {
+                File f = files.get( i );
+                if( f.exists() ) {
+                    if( f.isDirectory() ) {
+                        /* TODO The directory could just be recursively deleted?! All sub files are view private too as well. */
+                        dirs.add( f );
+                    } else {
+                        if( f.delete() ) {
+                            logger.finest(String.format( "Deleted file: %s", f.getAbsolutePath() ));
+                            deleted.incrementAndGet();
+                        } else {
+                            logger.warning( "Could not delete " + f );
+                        }
+                    }
+                } else {
+                    logger.fine( "The file " + f + " does not exist." );
+                }
             }
         }
-        return folders;
     }
     
     public Map<String, Integer> swipe( boolean excludeRoot, String loadRules ) throws CleartoolException {
@@ -251,6 +251,7 @@ public class UpdateView {
     private void removeComponentFolders() throws ClearCaseException, IOException {
         List<Baseline> bls = view.getStream().getFoundationBaselines();
         logger.finest( "Baselines: " + bls );
+        Baseline.loadComponentRootDirs( bls );
         for( Baseline bl : bls ) {
             String dir = bl.getComponent().getRootDir();
             logger.finer( "Root directory: " + dir );
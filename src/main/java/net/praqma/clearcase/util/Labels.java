@@ -3,6 +3,7 @@ package net.praqma.clearcase.util;
 import net.praqma.clearcase.Branch;
 import net.praqma.clearcase.Label;
 import net.praqma.clearcase.api.ListVersionTree;
+import net.praqma.clearcase.cleartool.LineHandler;
 import net.praqma.clearcase.container.LabelsForVersion;
 import net.praqma.clearcase.exceptions.CleartoolException;
 import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
@@ -10,7 +11,10 @@ import net.praqma.clearcase.ucm.entities.Version;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 
@@ -50,4 +54,58 @@ public class Labels {
 
         return labels;
     }
+
+    /**
+     * Get the labels of several elements with a single lsvtree.
+     * @param pathnames The qualified file names of the elements, see {@link Version#getQualifiedFilename()}
+     * @param branch If not null, only labels on this {@link Branch} are included
+     * @return The labels per qualified file name, an element without labels maps to an empty list
+     */
+    public static Map<String, List<LabelsForVersion>> getLabels( Collection<String> pathnames, final Branch branch ) throws CleartoolException, UnableToInitializeEntityException {
+        final Map<String, List<LabelsForVersion>> labels = new HashMap<String, List<LabelsForVersion>>( pathnames.size() );
+        if( pathnames.isEmpty() ) {
+            return labels;
+        }
+
+        ListVersionTree lsvtree = new ListVersionTree();
+        for( String pathname : pathnames ) {
+            lsvtree.addPathName( pathname );
+            labels.put( pathname, new ArrayList<LabelsForVersion>() );
+        }
+
+        logger.fine( "Get labels from " + pathnames.size() + " elements" );
+
+        final UnableToInitializeEntityException[] error = new UnableToInitializeEntityException[1];
+        lsvtree.execute( new LineHandler() {
+            @Override
+            public boolean handle( String line ) {
+                Matcher m = Label.rx.matcher( line );
+                if( m.find() ) {
+                    try {
+                        Version v = Version.get( m.group( 1 ) );
+
+                        if( branch == null || branch.equals( v.getUltimateBranch() ) ) {
+                            List<LabelsForVersion> lfvs = labels.get( v.getQualifiedFilename() );
+                            if( lfvs == null ) {
+                                lfvs = new ArrayList<LabelsForVersion>();
+                                labels.put( v.getQualifiedFilename(), lfvs );
+                            }
+                            lfvs.add( new LabelsForVersion( v ).addLabels( Label.getLabels( m.group( 2 ) ) ) );
+                        }
+                    } catch( UnableToInitializeEntityException e ) {
+                        error[0] = e;
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+        } );
+
+        if( error[0] != null ) {
+            throw error[0];
+        }
+
+        return labels;
+    }
 }
@@ -9,6 +9,8 @@ import java.util.logging.Logger;
 import net.praqma.clearcase.PVob;
 import net.praqma.clearcase.Vob;
 import net.praqma.clearcase.api.RemoveView;
+import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.RetryPolicy;
 import net.praqma.clearcase.exceptions.CleartoolException;
 import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
 import net.praqma.clearcase.exceptions.ViewException;
@@ -19,7 +21,7 @@ public class SetupUtils {
 
     private static Logger logger = Logger.getLogger(SetupUtils.class.getName());
 
-    public static void tearDown(PVob pvob) throws CleartoolException, UnableToInitializeEntityException, ViewException {
+    public static void tearDown(final PVob pvob) throws CleartoolException, UnableToInitializeEntityException, ViewException {
         logger.info("Tearing down " + pvob);
 
         /* The pvob needs to be loaded */
@@ -70,12 +72,17 @@ public class SetupUtils {
         logger.info("Removing pvob");
         pvob.unmount();
         logger.info("Unmounted pvob");
-        try {
-            Thread.sleep(5000); // Give time for process to end
-        } catch (InterruptedException e) {
-            logger.log(Level.WARNING, "Interrup catched in thread sleep, logging exception", e);
-        }
-        pvob.remove();
+
+        /* The vob server may still be ending the processes of the pvob, retry until they are gone */
+        RetryPolicy policy = Cleartool.getRetryPolicy().copy().retryOn(CleartoolException.class);
+        policy.setAttempts(Math.max(3, policy.getAttempts())).setInitialDelay(5000);
+        policy.execute("remove " + pvob, new RetryPolicy.Attempt<Void, CleartoolException>() {
+            @Override
+            public Void run() throws CleartoolException {
+                pvob.remove();
+                return null;
+            }
+        });
         logger.info("Removal of pvob completed");
     }
 }
@@ -2,10 +2,13 @@ package net.praqma.cli;
 
 import net.praqma.clearcase.Branch;
 import net.praqma.clearcase.Find;
+import net.praqma.clearcase.api.Describe;
+import net.praqma.clearcase.cleartool.LineHandler;
 import net.praqma.clearcase.command.ListType;
 import net.praqma.clearcase.container.LabelsForVersion;
 import net.praqma.clearcase.exceptions.CleartoolException;
-import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
+import net.praqma.clearcase.exceptions.UnableToLoadEntityException;
+import net.praqma.clearcase.ucm.entities.UCMEntity;
 import net.praqma.clearcase.ucm.entities.Version;
 import net.praqma.clearcase.util.Labels;
 import net.praqma.util.option.Option;
@@ -15,8 +18,16 @@ import org.apache.commons.io.FileUtils;
 import java.io.File;
 import java.io.PrintStream;
 import java.text.DateFormat;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -35,10 +46,25 @@ public class Report extends CLI {
     private int lengthOfPath = 0;
     private boolean showFullPath = false;
 
-    private DateFormat dateFormatter;
+    private DateFormat dateFormatter = new SimpleDateFormat( "yyyy.MM.dd" );
 
     private boolean verbose = false;
 
+    /* The number of workers per stage */
+    private int branchWorkers = 1;
+    private int describeWorkers = 4;
+    private int labelWorkers = 4;
+
+    /**
+     * The number of versions per batch. Each batch is described and labeled with one cleartool command.
+     */
+    private int batchSize = 50;
+
+    /**
+     * The number of batches waiting between two stages
+     */
+    private int queueSize = 16;
+
     @Override
     public void perform( String[] arguments ) throws Exception {
         Options o = new Options( "1.0.0" );
@@ -49,6 +75,10 @@ public class Report extends CLI {
         Option odateFormat = new Option( "dateFormat", "d", false, 1, "Date format, default is \"yyyy.MM.dd\"" );
         Option oOutput = new Option( "outputFile", "o", false, 1, "Output the result to the specified file, otherwise dump it to the console." );
         Option oIgnore = new Option( "ignore", "i", false, 0, "Ignore this run, if the output file already exists." );
+        Option oBranchWorkers = new Option( "branchWorkers", "bw", false, 1, "The number of branches searched concurrently, default is 1" );
+        Option oDescribeWorkers = new Option( "describeWorkers", "dw", false, 1, "The number of concurrent describes, default is 4" );
+        Option oLabelWorkers = new Option( "labelWorkers", "lw", false, 1, "The number of concurrent version tree listings, default is 4" );
+        Option oBatchSize = new Option( "batchSize", "b", false, 1, "The number of versions handled per cleartool command, default is 50" );
 
 
         o.setOption( opath );
@@ -57,6 +87,10 @@ public class Report extends CLI {
         o.setOption( odateFormat );
         o.setOption( oOutput );
         o.setOption( oIgnore );
+        o.setOption( oBranchWorkers );
+        o.setOption( oDescribeWorkers );
+        o.setOption( oLabelWorkers );
+        o.setOption( oBatchSize );
 
         o.setDefaultOptions();
 
@@ -78,6 +112,22 @@ public class Report extends CLI {
             showFullPath = true;
         }
 
+        if( oBranchWorkers.isUsed() ) {
+            branchWorkers = Math.max( Integer.parseInt( oBranchWorkers.getString() ), 1 );
+        }
+
+        if( oDescribeWorkers.isUsed() ) {
+            describeWorkers = Math.max( Integer.parseInt( oDescribeWorkers.getString() ), 1 );
+        }
+
+        if( oLabelWorkers.isUsed() ) {
+            labelWorkers = Math.max( Integer.parseInt( oLabelWorkers.getString() ), 1 );
+        }
+
+        if( oBatchSize.isUsed() ) {
+            batchSize = Math.max( Integer.parseInt( oBatchSize.getString() ), 1 );
+        }
+
         if( o.isVerbose() || o.isDebug() ) {
             verbose = true;
         }
@@ -90,28 +140,18 @@ public class Report extends CLI {
             }
         }
 
+        File path;
         if( opath.isUsed() ) {
             path = new File( opath.getString() );
         } else {
             path = new File( System.getProperty( "user.dir" ) );
         }
-        lengthOfPath = path.getAbsolutePath().length();
-        logger.fine( "Path is " + path.getAbsolutePath() + ", " + lengthOfPath );
 
         if( odateFormat.isUsed()) {
             dateFormatter = new SimpleDateFormat( odateFormat.getString() );
-        } else {
-            dateFormatter = new SimpleDateFormat( "yyyy.MM.dd" );
         }
 
-        ListType ls = new ListType().setLocal().setBranchType().setViewRoot( path );
-        List<Branch> branches = ls.list();
-
-        Map<File, Entry> map = new HashMap<File, Entry>();
-
-        for( Branch branch : branches ) {
-            findBranch( path, branch, map );
-        }
+        Map<File, Entry> map = report( path );
 
         if( oOutput.isUsed() ) {
             File outputFile = new File( oOutput.getString() );
@@ -124,6 +164,26 @@ public class Report extends CLI {
         }
     }
 
+    /**
+     * Find the latest version of each element on the local branch types of a view, see {@link #dump(PrintStream, Map)}
+     * @param path The path to report
+     * @return The line of each file
+     */
+    public Map<File, Entry> report( File path ) throws Exception {
+        this.path = path;
+        lengthOfPath = path.getAbsolutePath().length();
+        logger.fine( "Path is " + path.getAbsolutePath() + ", " + lengthOfPath );
+
+        ListType ls = new ListType().setLocal().setBranchType().setViewRoot( path );
+        List<Branch> branches = ls.list();
+
+        Map<File, Entry> map = new HashMap<File, Entry>();
+
+        process( branches, map );
+
+        return map;
+    }
+
     public <K, V> void dump( PrintStream out, Map<K, V> map ) {
         /* Build header */
         StringBuilder b = new StringBuilder(  ).
@@ -198,140 +258,404 @@ public class Report extends CLI {
       */
     private Map<File, List<Branch>> branches = new HashMap<File, List<Branch>>();
 
-    private void findBranch( File path, Branch branch, Map<File, Entry> map ) throws Exception {
-        logger.info( "Processing " + branch );
+    private static final String describeFormat = "%On}{%u}{%Nd}{%[object_kind]p";
 
-        Find find = new Find().addPathName( "." ).setFindAll().print().setViewRoot( path ).setVersionQuery( "version(.../" + branch.getName() + "/LATEST)" ).acceptErrors();
+    /* Marks the end of a queue */
+    private static final Batch END = new Batch( null, Collections.<Row>emptyList() );
 
-        List<Version> versions = null;
-        try {
-            versions = find.find();
-        } catch( Exception e ) {
-            File[] fs = path.listFiles();
-            for( File f : fs ) {
-                logger.info( f.toString() );
-            }
+    /* The first error of any stage, it stops the pipeline */
+    private final AtomicReference<Exception> failure = new AtomicReference<Exception>();
+
+    private int processed = 0;
 
-            throw e;
+    /**
+     * Run the report as a pipeline. The stages are connected by bounded queues and each has its own workers:
+     * <ol>
+     *     <li>Find the latest versions of a branch, batches are handed on while find is running</li>
+     *     <li>Describe the versions and their elements, one describe of each per batch</li>
+     *     <li>Get the labels of the elements, one lsvtree per batch</li>
+     *     <li>Add the rows to the map</li>
+     * </ol>
+     */
+    private void process( List<Branch> branches, Map<File, Entry> map ) throws Exception {
+        BlockingQueue<Batch> found = new ArrayBlockingQueue<Batch>( queueSize );
+        BlockingQueue<Batch> described = new ArrayBlockingQueue<Batch>( queueSize );
+        BlockingQueue<Batch> labeled = new ArrayBlockingQueue<Batch>( queueSize );
+
+        ExecutorService finders = Executors.newFixedThreadPool( branchWorkers );
+        for( Branch branch : branches ) {
+            finders.submit( new Finder( branch, found ) );
         }
 
-        logger.fine( "I found " + versions.size() + " versions" );
+        ExecutorService describers = Executors.newFixedThreadPool( describeWorkers );
+        for( int i = 0 ; i < describeWorkers ; ++i ) {
+            describers.submit( new Describer( found, described ) );
+        }
 
-        //List<Entry> rows = new ArrayList<Entry>( versions.size() );
+        ExecutorService labelers = Executors.newFixedThreadPool( labelWorkers );
+        for( int i = 0 ; i < labelWorkers ; ++i ) {
+            labelers.submit( new Labeler( described, labeled ) );
+        }
 
-        long startTime = System.currentTimeMillis();
-        long elapsedTime = 0;
+        ExecutorService writer = Executors.newSingleThreadExecutor();
+        writer.submit( new Writer( labeled, map ) );
 
-        //for( Version v : versions ) {
-        int size = versions.size();
-        for( int i = 0 ; i < size ; ++i ) {
-            Version v = versions.get( i );
+        /* When a stage is done, signal the end to each worker of the next */
+        finish( finders, found, describeWorkers );
+        finish( describers, described, labelWorkers );
+        finish( labelers, labeled, 1 );
+        finish( writer, null, 0 );
 
-            if( !verbose ) {
-                elapsedTime = System.currentTimeMillis() - startTime;
-                double minutes = (double)elapsedTime / 60000;
-                //logger.info( "Elapsed: " + elapsedTime + ", minutes: " + minutes );
-                double minutePerVersion = minutes / ( i + 1 );
-                //logger.info( "Minutes per version: " + minutePerVersion );
-                int rest = size - i;
-                double timeLeft = ( rest * minutePerVersion );
+        if( failure.get() != null ) {
+            throw failure.get();
+        }
 
-                String str = Math.floor( timeLeft ) + " minutes";
-                if( timeLeft <= 1.0 ) {
-                    str = "Within a minute";
-                }
+        if( !verbose ) {
+            System.out.println( "\rProcessed " + processed + " versions [Done]                                           " );
+        }
+    }
 
-                System.out.print( "\rProcessing version #" + i + " , " + getPercentage( i, size, 10 ) + "% Estimated time left: " + str + "        " );
+    private void finish( ExecutorService stage, BlockingQueue<Batch> next, int consumers ) throws InterruptedException {
+        stage.shutdown();
+        stage.awaitTermination( Long.MAX_VALUE, TimeUnit.MILLISECONDS );
+
+        for( int i = 0 ; i < consumers ; ++i ) {
+            if( !send( next, END ) ) {
+                return;
             }
+        }
+    }
 
-            StringBuilder sb = new StringBuilder();
-            File file = v.getFile();
+    private void fail( Exception e ) {
+        if( failure.compareAndSet( null, e ) ) {
+            logger.log( Level.SEVERE, "Report failed", e );
+        }
+    }
 
-            Date now = new Date();
-            long secs = now.getTime();
+    /**
+     * @return False if the pipeline has failed
+     */
+    private boolean send( BlockingQueue<Batch> queue, Batch batch ) throws InterruptedException {
+        while( !queue.offer( batch, 100, TimeUnit.MILLISECONDS ) ) {
+            if( failure.get() != null ) {
+                return false;
+            }
+        }
 
-            logger.finer( "Version: " + v );
-            logger.finer( "Version: " + v.getDate() );
-            logger.finer( "Version: " + v.getRevision() );
+        return true;
+    }
 
-            /* Check for main/0 */
-            if( v.getUltimateBranch().getName().equals( "main" ) && v.getRevision().equals( 0 ) ) {
-                logger.finest( "Element was main/0, skipping it." );
-                continue;
+    /**
+     * @return The next {@link Batch}, or END if there are no more or the pipeline has failed
+     */
+    private Batch receive( BlockingQueue<Batch> queue ) throws InterruptedException {
+        Batch batch;
+        while( ( batch = queue.poll( 100, TimeUnit.MILLISECONDS ) ) == null ) {
+            if( failure.get() != null ) {
+                return END;
             }
+        }
+
+        return batch;
+    }
 
-            /* Get element oid */
-            sb.append( v.getElementObjectId() ).append( sep );
+    private class Finder implements Runnable, LineHandler {
+        private Branch branch;
+        private BlockingQueue<Batch> out;
+        private List<Row> rows;
 
-            /* Get version oid */
-            sb.append( v.getObjectId() ).append( sep );
+        private Finder( Branch branch, BlockingQueue<Batch> out ) {
+            this.branch = branch;
+            this.out = out;
+            this.rows = new ArrayList<Row>( batchSize );
+        }
 
-            /* Get file */
-            if( showFullPath ) {
-                sb.append( v.getFile().getAbsolutePath() ).append( sep ); // Name
-            } else {
-                sb.append( v.getFile().getAbsolutePath().substring( lengthOfPath ) ).append( sep ); // Name
+        @Override
+        public void run() {
+            if( failure.get() != null ) {
+                return;
             }
 
-            /* Get age */
-            long age = secs - v.getDate().getTime();
+            logger.info( "Processing " + branch );
 
-            /* Get type */
-            sb.append( v.isDirectory() ? "directory" : "file" ).append( sep ); // Absolute file
+            Find find = new Find().addPathName( "." ).setFindAll().print().setViewRoot( path ).setVersionQuery( "version(.../" + branch.getName() + "/LATEST)" ).acceptErrors();
 
-            /* Get user */
-            sb.append( v.getUser() ).append( sep ); // The user
+            try {
+                try {
+                    find.find( this );
+                } catch( CleartoolException e ) {
+                    File[] fs = path.listFiles();
+                    for( File f : fs ) {
+                        logger.info( f.toString() );
+                    }
 
-            /* Get branch name */
-            sb.append( branch.getName() ).append( sep );
+                    throw e;
+                }
 
-            /* The number of versions on the branch */
-            sb.append( v.getRevision() ).append( sep );
+                if( !rows.isEmpty() ) {
+                    send( out, new Batch( branch, rows ) );
+                }
+            } catch( Exception e ) {
+                fail( e );
+            }
+        }
 
-            /* TODO Labeled versions, case 9223 */
-            sb.append( getVersionNumbers( compileLabeledVersions( v.getQualifiedFilename(), branch ) ) ).append( sep );
+        @Override
+        public boolean handle( String line ) {
+            try {
+                logger.finest( "LINE: " + line );
+                Version v = Version.getVersion( line );
+
+                /* Check for main/0 */
+                if( v.getUltimateBranch().getName().equals( "main" ) && v.getRevision().equals( 0 ) ) {
+                    logger.finest( "Element was main/0, skipping it." );
+                    return true;
+                }
 
-            /* Get date */
-            sb.append( dateFormatter.format( v.getDate() ) ).append( sep );
+                rows.add( new Row( v ) );
+                if( rows.size() >= batchSize ) {
+                    if( !send( out, new Batch( branch, rows ) ) ) {
+                        return false;
+                    }
+                    rows = new ArrayList<Row>( batchSize );
+                }
+
+                return failure.get() == null;
+            } catch( Exception e ) {
+                fail( e );
+                return false;
+            }
+        }
+    }
 
-            /* Put to map */
-            if( map.containsKey( file ) ) {
-                logger.fine( "Ages " + age + "<" + map.get( file ).age );
-                if( map.get( file ).age > age ) {
-                    logger.fine( "Replaced!" );
-                    map.put( file, new Entry( sb.toString(), age ) );
+    /**
+     * A worker taking batches from one queue and handing them to the next
+     */
+    private abstract class Stage implements Runnable {
+        private BlockingQueue<Batch> in;
+        private BlockingQueue<Batch> out;
+
+        protected Stage( BlockingQueue<Batch> in, BlockingQueue<Batch> out ) {
+            this.in = in;
+            this.out = out;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Batch batch;
+                while( ( batch = receive( in ) ) != END ) {
+                    process( batch );
+                    if( out != null && !send( out, batch ) ) {
+                        return;
+                    }
                 }
-            } else {
-                map.put( file, new Entry( sb.toString(), age ) );
+            } catch( Exception e ) {
+                fail( e );
             }
+        }
 
-            /**/
-            if( branches.containsKey( file ) ) {
-                List<Branch> b = branches.get( file );
-                b.add( branch );
-            } else {
-                List<Branch> bs = new ArrayList<Branch>(  );
-                bs.add( branch );
-                branches.put( file, bs );
+        protected abstract void process( Batch batch ) throws Exception;
+    }
+
+    private class Describer extends Stage {
+        private Describer( BlockingQueue<Batch> in, BlockingQueue<Batch> out ) {
+            super( in, out );
+        }
+
+        @Override
+        protected void process( Batch batch ) throws Exception {
+            List<Version> versions = new ArrayList<Version>( batch.rows.size() );
+            Describe elements = null;
+            for( Row row : batch.rows ) {
+                versions.add( row.version );
+                if( elements == null ) {
+                    elements = new Describe( row.version.getQualifiedFilename() );
+                } else {
+                    elements.addObjectSelector( row.version.getQualifiedFilename() );
+                }
+            }
+
+            List<String> records;
+            List<String> oids;
+            try {
+                records = new Describe( versions ).setFormat( describeFormat ).executeRecords();
+                oids = elements.setFormat( "%On" ).executeRecords();
+            } catch( CleartoolException e ) {
+                /* A single broken version fails the batch, describe them one by one */
+                logger.fine( "Unable to describe " + versions.size() + " versions at once: " + e.getMessage() );
+                for( Row row : batch.rows ) {
+                    row.load();
+                }
+                return;
+            }
+
+            for( int i = 0 ; i < batch.rows.size() ; ++i ) {
+                Row row = batch.rows.get( i );
+                String[] fields = records.get( i ).split( "\\}\\{" );
+                row.elementOid = oids.get( i ).trim();
+                row.versionOid = fields[0].trim();
+                row.user = fields[1].trim();
+                row.directory = fields[3].trim().equals( "directory version" );
+                try {
+                    synchronized( UCMEntity.dateFormatter ) {
+                        row.date = UCMEntity.dateFormatter.parse( fields[2].trim() );
+                    }
+                } catch( ParseException e ) {
+                    row.date = row.version.getDate();
+                }
             }
         }
-        if( !verbose ) {
-            System.out.println( "\rProcessed " + size + " versions [Done]                                           " );
+    }
+
+    private class Labeler extends Stage {
+        private Labeler( BlockingQueue<Batch> in, BlockingQueue<Batch> out ) {
+            super( in, out );
+        }
+
+        @Override
+        protected void process( Batch batch ) throws Exception {
+            Set<String> pathnames = new LinkedHashSet<String>();
+            for( Row row : batch.rows ) {
+                pathnames.add( row.version.getQualifiedFilename() );
+            }
+
+            Map<String, List<LabelsForVersion>> labels = Labels.getLabels( pathnames, batch.branch );
+
+            for( Row row : batch.rows ) {
+                List<LabelsForVersion> lfvs = labels.get( row.version.getQualifiedFilename() );
+                row.labeled = new ArrayList<Integer>( lfvs != null ? lfvs.size() : 0 );
+                if( lfvs != null ) {
+                    for( LabelsForVersion lfv : lfvs ) {
+                        if( batch.branch.equals( lfv.getBranch() ) ) {
+                            row.labeled.add( lfv.getRevision() );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private class Writer extends Stage {
+        private Map<File, Entry> map;
+
+        private Writer( BlockingQueue<Batch> in, Map<File, Entry> map ) {
+            super( in, null );
+            this.map = map;
+        }
+
+        @Override
+        protected void process( Batch batch ) {
+            for( Row row : batch.rows ) {
+                write( row, batch.branch, map );
+            }
         }
     }
 
-    private List<Integer> compileLabeledVersions( String pathname, Branch branch ) throws UnableToInitializeEntityException, CleartoolException {
-        List<LabelsForVersion> lfvs = Labels.getLabels( pathname, branch );
+    private void write( Row row, Branch branch, Map<File, Entry> map ) {
+        Version v = row.version;
+        StringBuilder sb = new StringBuilder();
+        File file = v.getFile();
+
+        logger.finer( "Version: " + v );
+
+        /* Get element oid */
+        sb.append( row.elementOid ).append( sep );
+
+        /* Get version oid */
+        sb.append( row.versionOid ).append( sep );
+
+        /* Get file */
+        if( showFullPath ) {
+            sb.append( v.getFile().getAbsolutePath() ).append( sep ); // Name
+        } else {
+            sb.append( v.getFile().getAbsolutePath().substring( lengthOfPath ) ).append( sep ); // Name
+        }
+
+        /* Get age */
+        long age = System.currentTimeMillis() - row.date.getTime();
+
+        /* Get type */
+        sb.append( row.directory ? "directory" : "file" ).append( sep ); // Absolute file
+
+        /* Get user */
+        sb.append( row.user ).append( sep ); // The user
+
+        /* Get branch name */
+        sb.append( branch.getName() ).append( sep );
+
+        /* The number of versions on the branch */
+        sb.append( v.getRevision() ).append( sep );
 
-        List<Integer> versionNumbers = new ArrayList<Integer>( lfvs.size() );
+        /* TODO Labeled versions, case 9223 */
+        sb.append( getVersionNumbers( row.labeled ) ).append( sep );
 
-        for( LabelsForVersion lfv : lfvs ) {
-            if( branch.equals( lfv.getBranch() ) ) {
-                versionNumbers.add( lfv.getRevision() );
+        /* Get date */
+        sb.append( dateFormatter.format( row.date ) ).append( sep );
+
+        /* Put to map */
+        if( map.containsKey( file ) ) {
+            logger.fine( "Ages " + age + "<" + map.get( file ).age );
+            if( map.get( file ).age > age ) {
+                logger.fine( "Replaced!" );
+                map.put( file, new Entry( sb.toString(), age ) );
             }
+        } else {
+            map.put( file, new Entry( sb.toString(), age ) );
         }
 
-        return versionNumbers;
+        /**/
+        if( branches.containsKey( file ) ) {
+            List<Branch> b = branches.get( file );
+            b.add( branch );
+        } else {
+            List<Branch> bs = new ArrayList<Branch>(  );
+            bs.add( branch );
+            branches.put( file, bs );
+        }
+
+        processed++;
+        if( !verbose && processed % 100 == 0 ) {
+            System.out.print( "\rProcessed " + processed + " versions        " );
+        }
+    }
+
+    private static class Batch {
+        private Branch branch;
+        private List<Row> rows;
+
+        private Batch( Branch branch, List<Row> rows ) {
+            this.branch = branch;
+            this.rows = rows;
+        }
+    }
+
+    /**
+     * The data of one line of the report
+     */
+    private static class Row {
+        private Version version;
+        private String elementOid;
+        private String versionOid;
+        private String user;
+        private boolean directory;
+        private Date date;
+        private List<Integer> labeled;
+
+        private Row( Version version ) {
+            this.version = version;
+        }
+
+        /**
+         * Describe the version with separate cleartool commands
+         */
+        private void load() throws CleartoolException, UnableToLoadEntityException {
+            elementOid = version.getElementObjectId();
+            versionOid = version.getObjectId();
+            directory = version.isDirectory();
+            user = version.getUser();
+            date = version.getDate();
+        }
     }
 
     public static double getPercentage( int n, int m, int precision ) {
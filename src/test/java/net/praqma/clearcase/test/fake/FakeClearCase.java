@@ -0,0 +1,115 @@
+package net.praqma.clearcase.test.fake;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import net.praqma.clearcase.cleartool.Cleartool;
+
+/**
+ * Installs {@link FakeCleartool} as the cleartool executable of COOL, see {@link Cleartool#setExecutable(String)}.<br>
+ * The model and a launcher script are written to a temporary directory. Every cleartool command starts a JVM, which adds its start up
+ * time to each command, so measure the latencies relative to a run without latency. Only unix like systems are supported.
+ *
+ * <pre>
+ * FakeClearCase fake = new FakeClearCase( FakeSetup.seed( new File( "setup.xml" ) ) ).setLatency( "describe", 20 ).install();
+ * try {
+ *     ...
+ * } finally {
+ *     fake.uninstall();
+ * }
+ * </pre>
+ *
+ * @author cwolfgang
+ */
+public class FakeClearCase {
+
+    private static final Logger logger = Logger.getLogger( FakeClearCase.class.getName() );
+
+    private final FakeModel model;
+    private Map<String, Integer> latency = new LinkedHashMap<String, Integer>();
+    private File dir;
+
+    public FakeClearCase( FakeModel model ) {
+        this.model = model;
+    }
+
+    public FakeModel getModel() {
+        return model;
+    }
+
+    /**
+     * Set the latency of a sub command in milliseconds, * is the default for all sub commands
+     */
+    public FakeClearCase setLatency( String command, int millis ) {
+        latency.put( command, millis );
+        return this;
+    }
+
+    public String getLatency() {
+        StringBuilder sb = new StringBuilder();
+        for( Map.Entry<String, Integer> entry : latency.entrySet() ) {
+            if( sb.length() > 0 ) {
+                sb.append( "," );
+            }
+            sb.append( entry.getKey() ).append( "=" ).append( entry.getValue() );
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Write the model and the launcher script and make the script the cleartool executable
+     * @return The installed {@link FakeClearCase}
+     */
+    public FakeClearCase install() throws IOException {
+        dir = File.createTempFile( "fakecleartool", "" );
+        if( !dir.delete() || !dir.mkdir() ) {
+            throw new IOException( "Unable to create " + dir );
+        }
+
+        File modelFile = new File( dir, "model.ser" );
+        model.save( modelFile );
+
+        File script = new File( dir, "cleartool" );
+        FileWriter writer = new FileWriter( script );
+        try {
+            writer.write( "#!/bin/sh\n" );
+            writer.write( FakeCleartool.MODEL + "='" + modelFile.getAbsolutePath() + "'\n" );
+            writer.write( FakeCleartool.LATENCY + "='" + getLatency() + "'\n" );
+            writer.write( "export " + FakeCleartool.MODEL + " " + FakeCleartool.LATENCY + "\n" );
+            writer.write( "exec '" + new File( new File( System.getProperty( "java.home" ), "bin" ), "java" ) + "' -cp '" + System.getProperty( "java.class.path" ) + "' " + FakeCleartool.class.getName() + " \"$@\"\n" );
+        } finally {
+            writer.close();
+        }
+
+        if( !script.setExecutable( true ) ) {
+            throw new IOException( "Unable to make " + script + " executable" );
+        }
+
+        logger.fine( "Installing fake cleartool " + script );
+        Cleartool.setExecutable( script.getAbsolutePath() );
+
+        return this;
+    }
+
+    /**
+     * Restore the default cleartool executable and delete the temporary files
+     */
+    public void uninstall() {
+        Cleartool.setExecutable( null );
+        if( dir != null ) {
+            File[] files = dir.listFiles();
+            if( files != null ) {
+                for( File f : files ) {
+                    f.delete();
+                }
+            }
+            dir.delete();
+            dir = null;
+        }
+    }
+}
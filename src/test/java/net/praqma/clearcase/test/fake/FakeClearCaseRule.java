@@ -0,0 +1,112 @@
+package net.praqma.clearcase.test.fake;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.util.List;
+
+import net.praqma.clearcase.PVob;
+import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.CleartoolMetrics;
+import net.praqma.clearcase.cleartool.CleartoolStatistics;
+import net.praqma.clearcase.ucm.entities.UCMEntity;
+
+import org.apache.commons.lang.SystemUtils;
+import org.junit.Assume;
+import org.junit.rules.ExternalResource;
+
+/**
+ * Installs a {@link FakeClearCase} seeded from <code>setup.xml</code> for each test, and counts the cleartool commands of the test.<br>
+ * Tests are skipped on Windows. The model is written when installed, call {@link #update()} after changing it.
+ *
+ * <pre>
+ * &#64;Rule
+ * public FakeClearCaseRule fake = new FakeClearCaseRule();
+ * </pre>
+ *
+ * @author cwolfgang
+ */
+public class FakeClearCaseRule extends ExternalResource {
+
+    /**
+     * The name of the PVob of <code>setup.xml</code>
+     */
+    public static final String PVOB = "praqma_PVOB";
+
+    private FakeClearCase fake;
+    private CleartoolMetrics metrics;
+    private CleartoolStatistics statistics;
+
+    @Override
+    protected void before() throws Throwable {
+        Assume.assumeTrue( !SystemUtils.IS_OS_WINDOWS );
+
+        File setup = new File( URLDecoder.decode( getClass().getClassLoader().getResource( "setup.xml" ).getFile(), "UTF-8" ) );
+        fake = new FakeClearCase( FakeSetup.seed( setup ) ).install();
+
+        metrics = Cleartool.getMetrics();
+        statistics = new CleartoolStatistics();
+        Cleartool.setMetrics( statistics );
+    }
+
+    @Override
+    protected void after() {
+        Cleartool.setMetrics( metrics );
+        if( fake != null ) {
+            fake.uninstall();
+        }
+    }
+
+    /**
+     * Write the model again, after changing it
+     */
+    public void update() throws IOException {
+        fake.uninstall();
+        fake.install();
+    }
+
+    public FakeModel getModel() {
+        return fake.getModel();
+    }
+
+    public CleartoolStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return The number of times the sub commands ran in the test
+     */
+    public long getCount( String ... commands ) {
+        long count = 0;
+        for( String command : commands ) {
+            CleartoolStatistics.Snapshot snapshot = statistics.getSnapshot().get( command );
+            if( snapshot != null ) {
+                count += snapshot.getCount();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * @return The tag of the PVob, see {@link #PVOB}
+     */
+    public String getTag() {
+        return getModel().getTag( PVOB );
+    }
+
+    public PVob getPVob() {
+        return new PVob( getTag() );
+    }
+
+    /**
+     * @return The short names of the entities, as in <code>[one_dev, one_dev2]</code>
+     */
+    public static String names( List<? extends UCMEntity> entities ) {
+        StringBuilder sb = new StringBuilder( "[" );
+        for( UCMEntity entity : entities ) {
+            sb.append( sb.length() > 1 ? ", " : "" ).append( entity.getShortname() );
+        }
+        return sb.append( "]" ).toString();
+    }
+}
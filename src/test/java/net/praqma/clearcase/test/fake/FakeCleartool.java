@@ -0,0 +1,631 @@
+package net.praqma.clearcase.test.fake;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.praqma.clearcase.test.fake.FakeModel.Entity;
+
+/**
+ * A fake cleartool answering the read only queries of COOL from a {@link FakeModel}.<br>
+ * It is run as a separate process, see {@link FakeClearCase}, so process and parsing costs are the same as with cleartool.
+ * The model file is given by the environment variable <code>COOL_FAKE_MODEL</code>. A latency per sub command is given by
+ * <code>COOL_FAKE_LATENCY</code>, for example <code>describe=20,lsbl=50,*=5</code> in milliseconds.
+ *
+ * Supported are describe, lsbl, lsstream, lsproject, lscomp, lsvob, diffbl, deliver -status, lstype -kind brtype, find with a branch LATEST version query
+ * and lsvtree, and the interactive mode started with <code>-status</code>.
+ * Streams and projects with an <code>obsolete</code> property are listed with <code>-obsolete</code> only.
+ * A version or element with a <code>batch_error</code> property can only be described alone, a describe of several objects including it fails.
+ * Versions are listed by lsvtree with the labels of their <code>labels</code> property.
+ * A deliver is in progress from a stream with a <code>deliver_activity</code> and a <code>deliver_view</code>, and it is posted if the stream has a <code>deliver_posted</code> site.
+ * Other commands fail like an unknown cleartool command.
+ *
+ * @author cwolfgang
+ */
+public class FakeCleartool {
+
+    public static final String MODEL = "COOL_FAKE_MODEL";
+    public static final String LATENCY = "COOL_FAKE_LATENCY";
+
+    /* Options taking a value */
+    private static final Set<String> valueOptions = new LinkedHashSet<String>( Arrays.asList( "-fmt", "-component", "-stream", "-level", "-in", "-invob", "-view", "-c", "-headline", "-kind", "-branch" ) );
+
+    /* For find, -version takes the query. For diffbl it is a switch */
+    private static final Set<String> findOptions = new LinkedHashSet<String>( Arrays.asList( "-version" ) );
+
+    private static final Pattern rx_latest = Pattern.compile( "^version\\(\\.\\.\\.[/\\\\](\\w+)[/\\\\]LATEST\\)$" );
+
+    private final FakeModel model;
+    private Map<String, Integer> latency = new HashMap<String, Integer>();
+    private File dir = new File( System.getProperty( "user.dir" ) );
+
+    public FakeCleartool( FakeModel model ) {
+        this.model = model;
+    }
+
+    public static void main( String[] args ) throws IOException {
+        String file = System.getenv( MODEL );
+        if( file == null ) {
+            System.err.println( "cleartool: Error: " + MODEL + " is not set" );
+            System.exit( 1 );
+        }
+
+        FakeCleartool cleartool = new FakeCleartool( FakeModel.load( new File( file ) ) ).setLatency( System.getenv( LATENCY ) );
+
+        if( args.length > 0 && args[0].equals( "-status" ) ) {
+            cleartool.interactive( System.in, System.out, System.err );
+            System.exit( 0 );
+        }
+
+        int status = cleartool.run( args, System.out, System.err );
+        System.out.flush();
+        System.exit( status );
+    }
+
+    /**
+     * Set the latencies from a specification like <code>describe=20,lsbl=50,*=5</code>
+     */
+    public FakeCleartool setLatency( String spec ) {
+        if( spec != null ) {
+            for( String s : spec.split( "," ) ) {
+                String[] kv = s.trim().split( "=" );
+                if( kv.length == 2 ) {
+                    latency.put( kv[0].trim(), Integer.parseInt( kv[1].trim() ) );
+                }
+            }
+        }
+
+        return this;
+    }
+
+    public FakeCleartool setDirectory( File dir ) {
+        this.dir = dir;
+        return this;
+    }
+
+    /**
+     * Run a single command
+     * @return The exit status
+     */
+    public int run( String[] args, PrintStream out, PrintStream err ) {
+        if( args.length == 0 ) {
+            err.println( "cleartool: Error: No command given" );
+            return 1;
+        }
+
+        String command = args[0];
+        delay( command );
+
+        Arguments a = new Arguments( Arrays.asList( args ).subList( 1, args.length ), command.equals( "find" ) ? findOptions : Collections.<String>emptySet() );
+        try {
+            if( command.equals( "describe" ) || command.equals( "desc" ) ) {
+                return describe( a, out, err );
+            } else if( command.equals( "lsbl" ) ) {
+                lsbl( a, out );
+            } else if( command.equals( "lsstream" ) ) {
+                lsstream( a, out );
+            } else if( command.equals( "lsproject" ) || command.equals( "lsproj" ) ) {
+                lsproject( a, out );
+            } else if( command.equals( "lscomp" ) ) {
+                lscomp( a, out );
+            } else if( command.equals( "lsvob" ) ) {
+                lsvob( a, out );
+            } else if( command.equals( "diffbl" ) ) {
+                diffbl( a, out );
+            } else if( command.equals( "deliver" ) && a.has( "-status" ) ) {
+                deliverStatus( a, out );
+            } else if( command.equals( "lstype" ) && "brtype".equals( a.get( "-kind" ) ) ) {
+                lsbrtype( out );
+            } else if( command.equals( "find" ) ) {
+                find( a, out );
+            } else if( command.equals( "lsvtree" ) ) {
+                lsvtree( a, out );
+            } else {
+                throw new FakeException( "Unrecognized command: \"" + command + "\"" );
+            }
+        } catch( FakeException e ) {
+            err.println( "cleartool: Error: " + e.getMessage() );
+            return 1;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Read commands from the input until quit, printing the status after each like <code>cleartool -status</code>
+     */
+    public void interactive( InputStream in, PrintStream out, PrintStream err ) throws IOException {
+        BufferedReader reader = new BufferedReader( new InputStreamReader( in ) );
+        String line;
+        int n = 0;
+        while( ( line = reader.readLine() ) != null ) {
+            List<String> args = tokenize( line );
+            if( args.isEmpty() ) {
+                continue;
+            }
+
+            if( args.get( 0 ).equals( "quit" ) || args.get( 0 ).equals( "exit" ) ) {
+                break;
+            }
+
+            int status = 0;
+            if( args.get( 0 ).equals( "cd" ) ) {
+                File d = args.size() > 1 ? new File( args.get( 1 ) ) : dir;
+                if( d.isDirectory() ) {
+                    dir = d;
+                } else {
+                    err.println( "cleartool: Error: Unable to change directory to \"" + d + "\"" );
+                    status = 1;
+                }
+            } else {
+                status = run( args.toArray( new String[args.size()] ), out, err );
+            }
+
+            err.flush();
+            out.println( "Command " + ( ++n ) + " returned status " + status );
+            out.flush();
+        }
+    }
+
+    /**
+     * Split a command line into arguments, double quotes group words
+     */
+    public static List<String> tokenize( String line ) {
+        List<String> args = new ArrayList<String>();
+        StringBuilder sb = null;
+        boolean quoted = false;
+        for( int i = 0 ; i < line.length() ; ++i ) {
+            char c = line.charAt( i );
+            if( c == '"' ) {
+                quoted = !quoted;
+                if( sb == null ) {
+                    sb = new StringBuilder();
+                }
+            } else if( Character.isWhitespace( c ) && !quoted ) {
+                if( sb != null ) {
+                    args.add( sb.toString() );
+                    sb = null;
+                }
+            } else {
+                if( sb == null ) {
+                    sb = new StringBuilder();
+                }
+                sb.append( c );
+            }
+        }
+
+        if( sb != null ) {
+            args.add( sb.toString() );
+        }
+
+        return args;
+    }
+
+    private void delay( String command ) {
+        Integer millis = latency.get( command );
+        if( millis == null ) {
+            millis = latency.get( "*" );
+        }
+
+        if( millis != null && millis > 0 ) {
+            try {
+                Thread.sleep( millis );
+            } catch( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private int describe( Arguments a, PrintStream out, PrintStream err ) {
+        int status = 0;
+        String fmt = a.get( "-fmt" );
+        if( a.operands.size() > 1 ) {
+            for( String selector : a.operands ) {
+                Entity entity = model.find( selector );
+                if( entity != null && !entity.getFirst( "batch_error" ).isEmpty() ) {
+                    err.println( "cleartool: Error: " + entity.getFirst( "batch_error" ) );
+                    return 1;
+                }
+            }
+        }
+
+        for( String selector : a.operands ) {
+            Entity entity = model.find( selector );
+            if( entity == null ) {
+                err.println( "cleartool: Error: Unable to determine object for \"" + selector + "\"." );
+                status = 1;
+                continue;
+            }
+
+            if( fmt != null ) {
+                out.print( model.format( entity, fmt ) );
+            } else {
+                out.println( entity.getType() + " \"" + entity.getName() + "\"" );
+            }
+        }
+
+        return status;
+    }
+
+    private void lsbl( Arguments a, PrintStream out ) throws FakeException {
+        Entity stream = resolve( a.get( "-stream" ), "stream" );
+        Entity component = resolve( a.get( "-component" ), "component" );
+        String level = a.get( "-level" );
+
+        for( Entity bl : model.list( "baseline" ) ) {
+            if( stream != null && !bl.getFirst( "bl_stream" ).equals( stream.getKey() ) ) {
+                continue;
+            }
+            if( component != null && !bl.getFirst( "component" ).equals( component.getKey() ) ) {
+                continue;
+            }
+            if( level != null && !FakeModel.isAtLeast( bl.getFirst( "plevel" ), level ) ) {
+                continue;
+            }
+
+            print( bl, a, out );
+        }
+    }
+
+    private void lsstream( Arguments a, PrintStream out ) throws FakeException {
+        if( a.has( "-view" ) ) {
+            Entity stream = model.getViewStream( a.get( "-view" ) );
+            if( stream == null ) {
+                throw new FakeException( "View tag not found: \"" + a.get( "-view" ) + "\"." );
+            }
+            print( stream, a, out );
+            return;
+        }
+
+        Entity project = a.has( "-in" ) ? resolve( a.get( "-in" ), "project" ) : null;
+        String pvob = a.has( "-invob" ) ? FakeModel.getVobName( a.get( "-invob" ) ) : null;
+        List<Entity> streams = new ArrayList<Entity>();
+        for( String operand : a.operands ) {
+            streams.add( resolve( operand, "stream" ) );
+        }
+        if( streams.isEmpty() ) {
+            for( Entity stream : model.list( "stream" ) ) {
+                if( ( project == null || stream.getFirst( "project" ).equals( project.getKey() ) ) && ( pvob == null || stream.getPVob().equals( pvob ) ) && isListed( stream, a ) ) {
+                    streams.add( stream );
+                }
+            }
+        }
+
+        for( Entity stream : streams ) {
+            print( stream, a, out );
+        }
+    }
+
+    private void lsproject( Arguments a, PrintStream out ) throws FakeException {
+        List<Entity> projects = new ArrayList<Entity>();
+        for( String operand : a.operands ) {
+            projects.add( resolve( operand, "project" ) );
+        }
+        if( projects.isEmpty() ) {
+            String pvob = a.has( "-invob" ) ? FakeModel.getVobName( a.get( "-invob" ) ) : null;
+            for( Entity project : model.list( "project" ) ) {
+                if( ( pvob == null || project.getPVob().equals( pvob ) ) && isListed( project, a ) ) {
+                    projects.add( project );
+                }
+            }
+        }
+
+        for( Entity project : projects ) {
+            print( project, a, out );
+        }
+    }
+
+    private void lscomp( Arguments a, PrintStream out ) throws FakeException {
+        List<Entity> components = new ArrayList<Entity>();
+        for( String operand : a.operands ) {
+            components.add( resolve( operand, "component" ) );
+        }
+        if( components.isEmpty() ) {
+            String pvob = a.has( "-invob" ) ? FakeModel.getVobName( a.get( "-invob" ) ) : null;
+            for( Entity component : model.list( "component" ) ) {
+                if( pvob == null || component.getPVob().equals( pvob ) ) {
+                    components.add( component );
+                }
+            }
+        }
+
+        for( Entity component : components ) {
+            print( component, a, out );
+        }
+    }
+
+    private void deliverStatus( Arguments a, PrintStream out ) throws FakeException {
+        Entity stream = resolve( a.get( "-stream" ), "stream" );
+        if( stream == null ) {
+            throw new FakeException( "A stream must be given" );
+        }
+
+        String activity = stream.getFirst( "deliver_activity" );
+        if( activity.isEmpty() ) {
+            out.println( "No deliver operation in progress on stream \"" + stream.getName() + "\"." );
+            return;
+        }
+
+        out.println( "Deliver operation in progress on stream \"" + model.getExtendedName( stream ) + "\"" );
+        if( !stream.getFirst( "deliver_posted" ).isEmpty() ) {
+            out.println( "    Operation posted from replica \"" + stream.getFirst( "deliver_posted" ) + "\"" );
+        }
+        out.println( "    Started by \"" + stream.getUser() + "\" on \"" + new SimpleDateFormat( "yyyy-MM-dd'T'HH:mm:ssZ" ).format( stream.getDate() ) + "\"" );
+        out.println( "    Using integration activity \"" + activity + "\"." );
+        out.println( "    Using view \"" + stream.getFirst( "deliver_view" ) + "\"." );
+        Entity target = model.get( stream.getFirst( "def_deliver_tgt" ) );
+        if( target != null ) {
+            out.println( "    Baselines will be delivered to the default target stream \"" + model.getExtendedName( target ) + "\"" );
+            out.println( "in project \"" + model.getExtendedName( model.get( target.getFirst( "project" ) ) ) + "\"." );
+        }
+        out.println();
+        out.println( "Baselines to be delivered:" );
+    }
+
+    private void lsvob( Arguments a, PrintStream out ) throws FakeException {
+        Map<String, String> vobs = model.getVobs();
+        List<String> names = new ArrayList<String>();
+        for( String operand : a.operands ) {
+            String name = FakeModel.getVobName( operand );
+            if( !vobs.containsKey( name ) ) {
+                throw new FakeException( "Unable to find VOB tag \"" + operand + "\"." );
+            }
+            names.add( name );
+        }
+        if( names.isEmpty() ) {
+            names.addAll( vobs.keySet() );
+        }
+
+        for( String name : names ) {
+            String tag = vobs.get( name );
+            if( a.has( "-s" ) ) {
+                out.println( tag );
+            } else {
+                out.println( "* " + tag + " " + new File( dir, name + ".vbs" ).getPath() + " public" + ( model.isUcmVob( name ) ? " (ucmvob)" : "" ) );
+            }
+        }
+    }
+
+    private void diffbl( Arguments a, PrintStream out ) throws FakeException {
+        boolean versions = a.has( "-versions" ) || a.has( "-version" );
+        boolean pre = a.has( "-pre" ) || a.has( "-predecessor" );
+
+        if( a.operands.isEmpty() ) {
+            throw new FakeException( "No baselines or streams given" );
+        }
+
+        Entity right = resolve( a.operands.get( a.operands.size() - 1 ), null );
+        Entity left = null;
+        if( a.operands.size() > 1 ) {
+            left = resolve( a.operands.get( 0 ), null );
+        } else if( pre ) {
+            left = getPredecessor( right );
+        }
+
+        List<String> leftVersions = left != null ? getConfiguration( left ) : new ArrayList<String>();
+        List<String> rightVersions = getConfiguration( right );
+
+        out.println( "Comparing the following:" );
+        out.println( "  " + ( left != null ? model.getExtendedName( left ) : "(initial)" ) );
+        out.println( "  " + model.getExtendedName( right ) );
+        out.println( "Differences:" );
+
+        printDifferences( "<<", leftVersions, rightVersions, versions, out );
+        printDifferences( ">>", rightVersions, leftVersions, versions, out );
+    }
+
+    /**
+     * Print the versions of one side that are not in the other, grouped by activity
+     */
+    private void printDifferences( String symbol, List<String> these, List<String> others, boolean versions, PrintStream out ) {
+        Map<String, List<Entity>> activities = new LinkedHashMap<String, List<Entity>>();
+        for( String key : these ) {
+            if( others.contains( key ) ) {
+                continue;
+            }
+            Entity version = model.get( key );
+            String activity = version.getFirst( "activity" );
+            List<Entity> vs = activities.get( activity );
+            if( vs == null ) {
+                vs = new ArrayList<Entity>();
+                activities.put( activity, vs );
+            }
+            vs.add( version );
+        }
+
+        for( Map.Entry<String, List<Entity>> entry : activities.entrySet() ) {
+            Entity activity = model.get( entry.getKey() );
+            if( activity != null ) {
+                out.println( symbol + " " + activity.getName() + "@" + model.getTag( activity.getPVob() ) + " \"" + activity.getFirst( "headline" ) + "\"" );
+            } else {
+                out.println( symbol + " no_activity" );
+            }
+
+            if( versions ) {
+                for( Entity version : entry.getValue() ) {
+                    out.println( "\t" + new File( dir, version.getName() ).getPath() );
+                }
+            }
+        }
+    }
+
+    /**
+     * List the branch types of the versions, the format is ignored
+     */
+    private void lsbrtype( PrintStream out ) {
+        Set<String> branches = new LinkedHashSet<String>();
+        for( Entity version : model.list( "version" ) ) {
+            String[] segments = version.getFirst( "version" ).split( "[/\\\\]" );
+            for( int i = 0 ; i < segments.length - 1 ; ++i ) {
+                if( !segments[i].isEmpty() ) {
+                    branches.add( segments[i] );
+                }
+            }
+        }
+
+        for( String branch : branches ) {
+            out.println( branch );
+        }
+    }
+
+    /**
+     * Print the latest version of each element on the branch of a <code>version(.../branch/LATEST)</code> query, relative to the current directory
+     */
+    private void find( Arguments a, PrintStream out ) throws FakeException {
+        String query = a.get( "-version" );
+        Matcher m = query != null ? rx_latest.matcher( query ) : null;
+        if( m == null || !m.matches() ) {
+            throw new FakeException( "Unsupported version query: \"" + query + "\"" );
+        }
+
+        Map<String, Entity> latest = new LinkedHashMap<String, Entity>();
+        for( Entity version : model.list( "version" ) ) {
+            String id = version.getFirst( "version" ).replace( '\\', '/' );
+            int last = id.lastIndexOf( '/' );
+            if( last < 0 || !id.substring( 0, last ).endsWith( "/" + m.group( 1 ) ) ) {
+                continue;
+            }
+
+            String element = getElement( version );
+            Entity other = latest.get( element );
+            if( other == null || getRevision( other ) < getRevision( version ) ) {
+                latest.put( element, version );
+            }
+        }
+
+        for( Entity version : latest.values() ) {
+            out.println( new File( dir, version.getName() ).getPath() );
+        }
+    }
+
+    /**
+     * Print the versions of the elements, with their labels
+     */
+    private void lsvtree( Arguments a, PrintStream out ) throws FakeException {
+        for( String operand : a.operands ) {
+            String pathname = operand.endsWith( "@@" ) ? operand : operand + "@@";
+            Entity element = resolve( pathname, null );
+            for( Entity version : model.list( "version" ) ) {
+                if( getElement( version ).equals( element.getName() ) ) {
+                    List<String> labels = version.get( "labels" );
+                    StringBuilder sb = new StringBuilder( pathname ).append( version.getFirst( "version" ) );
+                    if( !labels.isEmpty() ) {
+                        sb.append( " (" );
+                        for( int i = 0 ; i < labels.size() ; ++i ) {
+                            sb.append( i > 0 ? ", " : "" ).append( labels.get( i ) );
+                        }
+                        sb.append( ")" );
+                    }
+                    out.println( sb );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The name of the element of a version, ending with @@
+     */
+    private static String getElement( Entity version ) {
+        return version.getName().substring( 0, version.getName().indexOf( "@@" ) + 2 );
+    }
+
+    private static int getRevision( Entity version ) {
+        String id = version.getFirst( "version" );
+        return Integer.parseInt( id.substring( Math.max( id.lastIndexOf( '/' ), id.lastIndexOf( '\\' ) ) + 1 ) );
+    }
+
+    private List<String> getConfiguration( Entity entity ) {
+        return entity.getType().equals( "stream" ) ? entity.get( "config" ) : entity.get( "versions" );
+    }
+
+    /**
+     * @return The previous baseline of the same component on the same stream
+     */
+    private Entity getPredecessor( Entity bl ) {
+        Entity predecessor = null;
+        for( Entity other : model.list( "baseline" ) ) {
+            if( other.getSequence() < bl.getSequence() && other.getFirst( "bl_stream" ).equals( bl.getFirst( "bl_stream" ) ) && other.getFirst( "component" ).equals( bl.getFirst( "component" ) ) ) {
+                predecessor = other;
+            }
+        }
+
+        return predecessor;
+    }
+
+    private Entity resolve( String selector, String type ) throws FakeException {
+        if( selector == null ) {
+            return null;
+        }
+
+        Entity entity = model.find( type != null && !selector.contains( ":" ) ? type + ":" + selector : selector );
+        if( entity == null ) {
+            throw new FakeException( "Unable to determine object for \"" + selector + "\"." );
+        }
+
+        return entity;
+    }
+
+    /* Obsolete objects are only listed when asked for */
+    private static boolean isListed( Entity entity, Arguments a ) {
+        return entity.getFirst( "obsolete" ).isEmpty() || a.has( "-obsolete" );
+    }
+
+    private void print( Entity entity, Arguments a, PrintStream out ) {
+        if( a.has( "-fmt" ) ) {
+            out.print( model.format( entity, a.get( "-fmt" ) ) );
+        } else if( a.has( "-s" ) || a.has( "-short" ) ) {
+            out.println( entity.getName() );
+        } else {
+            out.println( model.format( entity, "%d  %n  %u" ) );
+        }
+    }
+
+    private static class Arguments {
+        private Map<String, String> options = new HashMap<String, String>();
+        private List<String> operands = new ArrayList<String>();
+
+        private Arguments( List<String> args, Set<String> commandOptions ) {
+            for( int i = 0 ; i < args.size() ; ++i ) {
+                String arg = args.get( i );
+                if( arg.startsWith( "-" ) ) {
+                    if( ( valueOptions.contains( arg ) || commandOptions.contains( arg ) ) && i + 1 < args.size() ) {
+                        options.put( arg, args.get( ++i ) );
+                    } else {
+                        options.put( arg, "" );
+                    }
+                } else {
+                    operands.add( arg );
+                }
+            }
+        }
+
+        private boolean has( String option ) {
+            return options.containsKey( option );
+        }
+
+        private String get( String option ) {
+            return options.get( option );
+        }
+    }
+
+    private static class FakeException extends Exception {
+        private FakeException( String message ) {
+            super( message );
+        }
+    }
+}
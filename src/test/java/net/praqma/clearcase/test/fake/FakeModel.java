@@ -0,0 +1,424 @@
+package net.praqma.clearcase.test.fake;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * An in memory UCM model answering the -fmt queries of {@link FakeCleartool}.<br>
+ * Entities have a type, a name and a PVob. Their properties are lists of strings, a value which is the key of another entity is a reference.
+ * The model is serialized to a file, so each fake cleartool process can read it.
+ *
+ * @author cwolfgang
+ */
+public class FakeModel implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public static final String[] plevels = { "REJECTED", "INITIAL", "BUILT", "TESTED", "RELEASED" };
+
+    /* Entities by key, in order of creation */
+    private Map<String, Entity> entities = new LinkedHashMap<String, Entity>();
+
+    /* Vob tags by bare vob name */
+    private Map<String, String> vobs = new LinkedHashMap<String, String>();
+    private Set<String> ucmvobs = new LinkedHashSet<String>();
+
+    /* Streams by view tag */
+    private Map<String, String> views = new LinkedHashMap<String, String>();
+
+    private long clock = System.currentTimeMillis();
+
+    public static class Entity implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String type;
+        private final String name;
+        private final String pvob;
+        private final int sequence;
+        private final Date date;
+        private String user = System.getProperty( "user.name" );
+        private Map<String, List<String>> properties = new LinkedHashMap<String, List<String>>();
+
+        private Entity( String type, String name, String pvob, int sequence, Date date ) {
+            this.type = type;
+            this.name = name;
+            this.pvob = pvob;
+            this.sequence = sequence;
+            this.date = date;
+        }
+
+        public String getKey() {
+            return getKey( type, name, pvob );
+        }
+
+        public static String getKey( String type, String name, String pvob ) {
+            return type + ":" + name + "@" + pvob;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPVob() {
+            return pvob;
+        }
+
+        public int getSequence() {
+            return sequence;
+        }
+
+        public Date getDate() {
+            return date;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public List<String> get( String property ) {
+            List<String> values = properties.get( property );
+            return values != null ? values : Collections.<String>emptyList();
+        }
+
+        public String getFirst( String property ) {
+            List<String> values = get( property );
+            return values.isEmpty() ? "" : values.get( 0 );
+        }
+
+        public Entity set( String property, String... values ) {
+            List<String> list = new ArrayList<String>();
+            Collections.addAll( list, values );
+            properties.put( property, list );
+            return this;
+        }
+
+        public Entity set( String property, List<String> values ) {
+            properties.put( property, new ArrayList<String>( values ) );
+            return this;
+        }
+
+        public Entity add( String property, String value ) {
+            List<String> values = properties.get( property );
+            if( values == null ) {
+                values = new ArrayList<String>();
+                properties.put( property, values );
+            }
+            if( !values.contains( value ) ) {
+                values.add( value );
+            }
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return getKey();
+        }
+    }
+
+    /**
+     * Get the bare name of a vob from a tag, <code>\pvob</code> and <code>/vobs/pvob</code> are both <code>pvob</code>
+     */
+    public static String getVobName( String tag ) {
+        String t = tag.trim();
+        int i = Math.max( t.lastIndexOf( '/' ), t.lastIndexOf( '\\' ) );
+        return i >= 0 ? t.substring( i + 1 ) : t;
+    }
+
+    public void addVob( String tag, boolean ucm ) {
+        String name = getVobName( tag );
+        vobs.put( name, tag );
+        if( ucm ) {
+            ucmvobs.add( name );
+        }
+    }
+
+    public Map<String, String> getVobs() {
+        return vobs;
+    }
+
+    public boolean isUcmVob( String name ) {
+        return ucmvobs.contains( getVobName( name ) );
+    }
+
+    public String getTag( String pvob ) {
+        String tag = vobs.get( pvob );
+        return tag != null ? tag : pvob;
+    }
+
+    public void addView( String tag, Entity stream ) {
+        views.put( tag, stream != null ? stream.getKey() : null );
+        if( stream != null ) {
+            stream.add( "views", tag );
+        }
+    }
+
+    public Entity getViewStream( String tag ) {
+        String key = views.get( tag );
+        return key != null ? entities.get( key ) : null;
+    }
+
+    /**
+     * Create an entity, or return the existing with the same key
+     */
+    public Entity create( String type, String name, String pvob ) {
+        String key = Entity.getKey( type, name, getVobName( pvob ) );
+        Entity entity = entities.get( key );
+        if( entity == null ) {
+            /* A second apart, so dates order the entities */
+            clock += 1000;
+            entity = new Entity( type, name, getVobName( pvob ), entities.size(), new Date( clock ) );
+            entities.put( key, entity );
+        }
+
+        return entity;
+    }
+
+    public Entity get( String key ) {
+        return entities.get( key );
+    }
+
+    public List<Entity> list( String type ) {
+        List<Entity> list = new ArrayList<Entity>();
+        for( Entity entity : entities.values() ) {
+            if( entity.type.equals( type ) ) {
+                list.add( entity );
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * Resolve an object selector as cleartool would, <code>type:name@pvob</code>, <code>name@pvob</code>, a version extended path or
+     * an element path ending with @@
+     * @return The {@link Entity} or null
+     */
+    public Entity find( String selector ) {
+        if( selector.contains( "@@" ) ) {
+            String path = selector.replace( '\\', '/' );
+            for( Entity entity : list( path.endsWith( "@@" ) ? "element" : "version" ) ) {
+                if( path.endsWith( entity.name.replace( '\\', '/' ) ) ) {
+                    return entity;
+                }
+            }
+            return null;
+        }
+
+        int at = selector.lastIndexOf( '@' );
+        if( at < 0 ) {
+            return null;
+        }
+
+        String name = selector.substring( 0, at );
+        String pvob = getVobName( selector.substring( at + 1 ) );
+
+        int colon = name.indexOf( ':' );
+        if( colon > 0 ) {
+            return entities.get( Entity.getKey( name.substring( 0, colon ), name.substring( colon + 1 ), pvob ) );
+        }
+
+        for( Entity entity : entities.values() ) {
+            if( entity.name.equals( name ) && entity.pvob.equals( pvob ) ) {
+                return entity;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return The name as cleartool prints it with an X modifier
+     */
+    public String getExtendedName( Entity entity ) {
+        if( entity.type.equals( "version" ) ) {
+            return entity.name;
+        }
+        return entity.type + ":" + entity.name + "@" + getTag( entity.pvob );
+    }
+
+    public String getObjectId( Entity entity ) {
+        return UUID.nameUUIDFromBytes( entity.getKey().getBytes() ).toString().replace( '-', '.' );
+    }
+
+    /**
+     * Render a -fmt string for an entity. The usual cleartool directives are supported, %n, %Xn, %u, %d, %Nd, %On, %Vn, %PVn, %c and
+     * %[property]p with the C and X modifiers.
+     */
+    public String format( Entity entity, String fmt ) {
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while( i < fmt.length() ) {
+            char c = fmt.charAt( i++ );
+            if( c == '\\' && i < fmt.length() ) {
+                char e = fmt.charAt( i++ );
+                sb.append( e == 'n' ? "\n" : e == 't' ? "\t" : String.valueOf( e ) );
+                continue;
+            }
+
+            if( c != '%' || i >= fmt.length() ) {
+                sb.append( c );
+                continue;
+            }
+
+            /* Modifiers in front of the directive */
+            StringBuilder modifiers = new StringBuilder();
+            while( i < fmt.length() && "NCXOPV0123456789".indexOf( fmt.charAt( i ) ) >= 0 ) {
+                modifiers.append( fmt.charAt( i++ ) );
+            }
+
+            if( i < fmt.length() && fmt.charAt( i ) == '[' ) {
+                int end = fmt.indexOf( ']', i );
+                String property = fmt.substring( i + 1, end );
+                i = end + 1;
+                while( i < fmt.length() && fmt.charAt( i ) != 'p' ) {
+                    modifiers.append( fmt.charAt( i++ ) );
+                }
+                i++;
+                sb.append( getProperty( entity, property, modifiers.indexOf( "X" ) >= 0, modifiers.indexOf( "C" ) >= 0 ) );
+                continue;
+            }
+
+            char directive = i < fmt.length() ? fmt.charAt( i++ ) : ' ';
+            String m = modifiers.toString();
+            switch( directive ) {
+                case 'n':
+                    if( m.contains( "O" ) ) {
+                        sb.append( getObjectId( entity ) );
+                    } else if( m.contains( "PV" ) ) {
+                        sb.append( entity.getFirst( "predecessor" ) );
+                    } else if( m.contains( "V" ) ) {
+                        sb.append( entity.getFirst( "version" ) );
+                    } else if( m.contains( "X" ) ) {
+                        sb.append( getExtendedName( entity ) );
+                    } else {
+                        sb.append( entity.name );
+                    }
+                    break;
+                case 'u':
+                    sb.append( entity.user );
+                    break;
+                case 'd':
+                    sb.append( new SimpleDateFormat( m.contains( "N" ) ? "yyyyMMdd.HHmmss" : "yyyy-MM-dd'T'HH:mm:ss" ).format( entity.date ) );
+                    break;
+                case 'c':
+                    sb.append( entity.getFirst( "comment" ) );
+                    break;
+                default:
+                    sb.append( '%' ).append( m ).append( directive );
+            }
+        }
+
+        return sb.toString();
+    }
+
+    public String getProperty( Entity entity, String property, boolean extended, boolean commas ) {
+        List<String> values;
+        if( property.equals( "name" ) ) {
+            values = Collections.singletonList( entity.name );
+        } else if( property.equals( "depends_on_closure" ) ) {
+            values = new ArrayList<String>( getClosure( entity, new LinkedHashSet<String>() ) );
+        } else if( property.equals( "member_of" ) ) {
+            values = new ArrayList<String>();
+            for( Entity other : list( entity.type ) ) {
+                if( other.get( "depends_on" ).contains( entity.getKey() ) ) {
+                    values.add( other.getKey() );
+                }
+            }
+        } else if( property.equals( "member_of_closure" ) ) {
+            values = new ArrayList<String>();
+            for( Entity other : list( entity.type ) ) {
+                if( getClosure( other, new LinkedHashSet<String>() ).contains( entity.getKey() ) ) {
+                    values.add( other.getKey() );
+                }
+            }
+        } else {
+            values = entity.get( property );
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for( String value : values ) {
+            if( sb.length() > 0 ) {
+                sb.append( commas ? ", " : " " );
+            }
+
+            Entity ref = entities.get( value );
+            if( ref != null ) {
+                sb.append( extended ? getExtendedName( ref ) : ref.name );
+            } else {
+                sb.append( value );
+            }
+        }
+
+        return sb.toString();
+    }
+
+    private Set<String> getClosure( Entity entity, Set<String> closure ) {
+        for( String key : entity.get( "depends_on" ) ) {
+            if( closure.add( key ) ) {
+                Entity dependency = entities.get( key );
+                if( dependency != null ) {
+                    getClosure( dependency, closure );
+                }
+            }
+        }
+
+        return closure;
+    }
+
+    /**
+     * Determine whether a promotion level is at or above another
+     */
+    public static boolean isAtLeast( String plevel, String minimum ) {
+        int p = -1, m = -1;
+        for( int i = 0 ; i < plevels.length ; ++i ) {
+            if( plevels[i].equalsIgnoreCase( plevel ) ) {
+                p = i;
+            }
+            if( plevels[i].equalsIgnoreCase( minimum ) ) {
+                m = i;
+            }
+        }
+
+        return p >= m;
+    }
+
+    public void save( File file ) throws IOException {
+        ObjectOutputStream out = new ObjectOutputStream( new FileOutputStream( file ) );
+        try {
+            out.writeObject( this );
+        } finally {
+            out.close();
+        }
+    }
+
+    public static FakeModel load( File file ) throws IOException {
+        ObjectInputStream in = new ObjectInputStream( new FileInputStream( file ) );
+        try {
+            return (FakeModel) in.readObject();
+        } catch( ClassNotFoundException e ) {
+            throw new IOException( "Unable to read the model from " + file + ": " + e.getMessage() );
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package net.praqma.clearcase.test.fake;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import net.praqma.clearcase.Cool;
+import net.praqma.clearcase.test.fake.FakeModel.Entity;
+import net.praqma.util.execute.CommandLineInterface.OperatingSystem;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Seeds a {@link FakeModel} from the setup xml files used by the functional tests, see {@link net.praqma.clearcase.util.setup.EnvironmentParser}.<br>
+ * The tasks are replayed against the model instead of ClearCase. Tasks only changing file contents, like checkout and content, are ignored.
+ *
+ * @author cwolfgang
+ */
+public class FakeSetup {
+
+    private static final Logger logger = Logger.getLogger( FakeSetup.class.getName() );
+
+    private static final Pattern rx_variable = Pattern.compile( "(\\$\\{(.*?)\\})" );
+
+    private final FakeModel model;
+
+    private Map<String, String> variables = new HashMap<String, String>();
+    private Entity stream;
+    private Entity activity;
+    private String vob;
+
+    public FakeSetup( FakeModel model ) {
+        this.model = model;
+    }
+
+    public static FakeModel seed( File setup ) throws Exception {
+        FakeModel model = new FakeModel();
+        new FakeSetup( model ).parse( setup );
+        return model;
+    }
+
+    public FakeSetup parse( File setup ) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse( setup );
+        for( Element e : getChildren( doc.getDocumentElement() ) ) {
+            parse( e );
+        }
+
+        return this;
+    }
+
+    private void parse( Element e ) {
+        String task = e.getTagName();
+        if( task.equals( "var" ) ) {
+            variables.put( e.getAttribute( "name" ), get( e, "value" ) );
+        } else if( task.equals( "vob" ) ) {
+            model.addVob( getTag( e ), e.getAttribute( "ucmproject" ).length() > 0 );
+        } else if( task.equals( "view" ) ) {
+            Element s = getChild( e, "stream" );
+            model.addView( get( e, "tag" ), s != null ? model.get( Entity.getKey( "stream", get( s, "name" ), get( s, "pvob" ) ) ) : null );
+        } else if( task.equals( "context" ) ) {
+            stream = model.getViewStream( get( e, "view" ) );
+            vob = get( e, "vob" );
+        } else if( task.equals( "component" ) ) {
+            component( e );
+        } else if( task.equals( "project" ) ) {
+            project( e );
+        } else if( task.equals( "stream" ) ) {
+            stream( e );
+        } else if( task.equals( "baseline" ) ) {
+            baseline( e );
+        } else if( task.equals( "activity" ) ) {
+            Entity a = model.create( "activity", get( e, "name" ), get( e, "pvob" ) );
+            a.set( "headline", get( e, "headline" ) );
+            Entity in = model.get( Entity.getKey( "stream", get( e, "in" ), get( e, "pvob" ) ) );
+            if( in != null ) {
+                a.set( "stream", in.getKey() );
+                in.add( "activities", a.getKey() );
+            }
+        } else if( task.equals( "setactivity" ) ) {
+            activity = model.get( Entity.getKey( "activity", get( e, "activity" ), get( e, "pvob" ) ) );
+        } else if( task.equals( "add" ) || task.equals( "checkin" ) ) {
+            version( get( e, "file" ) );
+        } else if( task.equals( "rebase" ) ) {
+            rebase( e );
+        } else {
+            logger.fine( "Ignoring " + task );
+        }
+    }
+
+    private void component( Element e ) {
+        String pvob = get( e, "pvob" );
+        Entity c = model.create( "component", get( e, "name" ), pvob );
+        String root = get( e, "root" );
+        if( root.length() > 0 ) {
+            c.set( "root_dir", Cool.filesep + ( vob != null ? vob + Cool.filesep : "" ) + root );
+        }
+
+        /* mkcomp creates an initial baseline */
+        Entity initial = model.create( "baseline", c.getName() + "_INITIAL", pvob );
+        initial.set( "component", c.getKey() ).set( "plevel", "INITIAL" ).set( "label_status", "Not Labeled" ).set( "master", "original" );
+    }
+
+    private void project( Element e ) {
+        String pvob = get( e, "pvob" );
+        Entity p = model.create( "project", get( e, "name" ), pvob );
+        Element components = getChild( e, "components" );
+        if( components != null ) {
+            for( Element c : getChildren( components ) ) {
+                p.add( "mod_comps", Entity.getKey( "component", get( c, "name" ), get( c, "pvob" ) ) );
+            }
+        }
+    }
+
+    private void stream( Element e ) {
+        String pvob = get( e, "pvob" );
+        Entity s = model.create( "stream", get( e, "name" ), pvob );
+        s.set( "master", "original" );
+
+        String in = get( e, "in" );
+        Entity project = model.get( Entity.getKey( "project", in, pvob ) );
+        if( project != null ) {
+            s.set( "project", project.getKey() );
+            if( get( e, "type" ).equals( "integration" ) ) {
+                project.set( "istream", s.getKey() );
+            }
+        } else {
+            Entity parent = model.get( Entity.getKey( "stream", in, pvob ) );
+            if( parent != null ) {
+                s.set( "project", parent.getFirst( "project" ) );
+                s.set( "def_deliver_tgt", parent.getKey() );
+                parent.add( "dstreams", s.getKey() );
+            }
+        }
+
+        Element baselines = getChild( e, "baselines" );
+        if( baselines != null ) {
+            for( Element b : getChildren( baselines ) ) {
+                Entity bl = model.get( Entity.getKey( "baseline", get( b, "name" ), get( b, "pvob" ) ) );
+                if( bl != null ) {
+                    foundation( s, bl );
+                }
+            }
+        }
+        s.set( "rec_bls", s.get( "found_bls" ) );
+    }
+
+    private void baseline( Element e ) {
+        String pvob = get( e, "pvob" );
+        Entity bl = model.create( "baseline", get( e, "name" ), pvob );
+        Entity component = model.get( Entity.getKey( "component", get( e, "component" ), pvob ) );
+        bl.set( "component", component != null ? component.getKey() : "" );
+        bl.set( "plevel", "INITIAL" ).set( "master", "original" );
+
+        String label = get( e, "label" );
+        bl.set( "label_status", label.equals( "full" ) ? "Fully Labeled" : label.equals( "incremental" ) ? "Incrementally Labeled" : "Not Labeled" );
+
+        if( stream != null ) {
+            bl.set( "bl_stream", stream.getKey() );
+            bl.set( "versions", stream.get( "config" ) );
+
+            /* Replace the latest baseline of the component */
+            List<String> latest = stream.get( "latest_bls" );
+            for( String key : latest.toArray( new String[latest.size()] ) ) {
+                if( model.get( key ).getFirst( "component" ).equals( bl.getFirst( "component" ) ) ) {
+                    latest.remove( key );
+                }
+            }
+            stream.add( "latest_bls", bl.getKey() );
+        }
+
+        Element dependencies = getChild( e, "dependencies" );
+        if( dependencies != null ) {
+            for( Element c : getChildren( dependencies ) ) {
+                Entity dependency = latest( Entity.getKey( "component", get( c, "name" ), get( c, "pvob" ) ) );
+                if( dependency != null ) {
+                    bl.add( "depends_on", dependency.getKey() );
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The most recent baseline of a component
+     */
+    private Entity latest( String component ) {
+        Entity latest = null;
+        for( Entity bl : model.list( "baseline" ) ) {
+            if( bl.getFirst( "component" ).equals( component ) ) {
+                latest = bl;
+            }
+        }
+
+        return latest;
+    }
+
+    private void version( String file ) {
+        if( stream == null || activity == null ) {
+            logger.fine( "No stream or activity for " + file );
+            return;
+        }
+
+        String element = vob + Cool.filesep + file.replace( '/', Cool.filesep.charAt( 0 ) );
+        String branch = Cool.filesep + "main" + Cool.filesep + stream.getName() + Cool.filesep;
+
+        /* The next version number on the stream's branch */
+        int number = 1;
+        String predecessor = Cool.filesep + "main" + Cool.filesep + "0";
+        for( String key : stream.get( "config" ) ) {
+            Entity v = model.get( key );
+            if( v.getName().startsWith( element + "@@" ) ) {
+                String id = v.getFirst( "version" );
+                if( id.startsWith( branch ) ) {
+                    number = Integer.parseInt( id.substring( branch.length() ) ) + 1;
+                }
+                predecessor = id;
+            }
+        }
+
+        model.create( "element", element + "@@", "" ).set( "object_kind", "file element" );
+        Entity v = model.create( "version", element + "@@" + branch + number, "" );
+        v.set( "version", branch + number ).set( "predecessor", predecessor ).set( "object_kind", "file element" );
+        v.set( "activity", activity.getKey() );
+        activity.add( "versions", v.getKey() );
+        configure( stream, v );
+    }
+
+    /**
+     * Make a version the selected version of its element in a stream
+     */
+    private void configure( Entity s, Entity version ) {
+        String element = version.getName().substring( 0, version.getName().indexOf( "@@" ) + 2 );
+        List<String> config = s.get( "config" );
+        for( String key : config.toArray( new String[config.size()] ) ) {
+            if( model.get( key ).getName().startsWith( element ) ) {
+                config.remove( key );
+            }
+        }
+        s.add( "config", version.getKey() );
+    }
+
+    private void foundation( Entity s, Entity bl ) {
+        List<String> found = s.get( "found_bls" );
+        for( String key : found.toArray( new String[found.size()] ) ) {
+            if( model.get( key ).getFirst( "component" ).equals( bl.getFirst( "component" ) ) ) {
+                found.remove( key );
+            }
+        }
+        s.add( "found_bls", bl.getKey() );
+
+        for( String key : bl.get( "versions" ) ) {
+            configure( s, model.get( key ) );
+        }
+    }
+
+    private void rebase( Element e ) {
+        String pvob = get( e, "pvob" );
+        Entity s = model.get( Entity.getKey( "stream", get( e, "stream" ), pvob ) );
+        Entity bl = model.get( Entity.getKey( "baseline", get( e, "baseline" ), pvob ) );
+        if( s != null && bl != null ) {
+            foundation( s, bl );
+        }
+    }
+
+    private String getTag( Element e ) {
+        if( Cool.getOS().equals( OperatingSystem.WINDOWS ) ) {
+            String tag = get( e, "tag" );
+            return tag.startsWith( "\\" ) ? tag : "\\" + tag;
+        } else {
+            return get( e, "linuxtag" );
+        }
+    }
+
+    /**
+     * Get an attribute with the variables substituted
+     */
+    private String get( Element e, String name ) {
+        String value = e.getAttribute( name );
+        Matcher m = rx_variable.matcher( value );
+        while( m.find() ) {
+            String var = variables.get( m.group( 2 ) );
+            value = value.replace( m.group( 1 ), var != null ? var : "" );
+        }
+
+        return value;
+    }
+
+    private static Element getChild( Element e, String name ) {
+        for( Element child : getChildren( e ) ) {
+            if( child.getTagName().equals( name ) ) {
+                return child;
+            }
+        }
+
+        return null;
+    }
+
+    private static List<Element> getChildren( Element e ) {
+        List<Element> children = new ArrayList<Element>();
+        NodeList nodes = e.getChildNodes();
+        for( int i = 0 ; i < nodes.getLength() ; ++i ) {
+            if( nodes.item( i ).getNodeType() == Node.ELEMENT_NODE ) {
+                children.add( (Element) nodes.item( i ) );
+            }
+        }
+
+        return children;
+    }
+}
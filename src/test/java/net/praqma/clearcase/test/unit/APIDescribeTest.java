@@ -87,6 +87,13 @@ public class APIDescribeTest {
         assertThat( cmd, is( "describe -fmt %On a" ) );
     }
 
+    @Test
+    public void testMultipleSelectorsWithFormat() {
+        String cmd = new Describe( "a" ).addObjectSelector( "b c" ).setFormat( "%u::%Nd" ).getCommandLine();
+
+        assertThat( cmd, is( "describe -fmt %u::%Nd" + Describe.recordSeparator + " a \"b c\"" ) );
+    }
+
     @Test
     public void testHasWhiteSpaces() {
         String s = "cleartool describe -fmt %On M:\\vobadm_view\\saminfo\\.@@\\main\\sam_work\\1\\0_Start\\main\\sam_work\\2\\03_Business Case.lnk@@\\main\\sam_work\\";
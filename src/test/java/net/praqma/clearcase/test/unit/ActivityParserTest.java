@@ -0,0 +1,112 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.praqma.clearcase.api.DiffBl;
+import net.praqma.clearcase.cleartool.LineHandler;
+import net.praqma.clearcase.exceptions.CleartoolException;
+import net.praqma.clearcase.test.fake.FakeClearCaseRule;
+import net.praqma.clearcase.ucm.entities.Activity;
+import net.praqma.clearcase.ucm.entities.Version;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static net.praqma.clearcase.test.fake.FakeClearCaseRule.names;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class ActivityParserTest {
+
+    @Rule
+    public FakeClearCaseRule fake = new FakeClearCaseRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /* The activities handed to the listener */
+    private final List<Activity> handed = new ArrayList<Activity>();
+
+    /**
+     * Plays back recorded diffbl output, recording the number of activities handed over after each line
+     */
+    private class RecordedDiffBl extends DiffBl {
+        private final List<String> lines;
+        private final List<Integer> progress = new ArrayList<Integer>();
+
+        private RecordedDiffBl( File root, List<String> lines ) {
+            super( null, null );
+            setViewRoot( root );
+            this.lines = lines;
+        }
+
+        @Override
+        public boolean execute( LineHandler handler ) throws CleartoolException {
+            for( String line : lines ) {
+                boolean more = handler.handle( line );
+                progress.add( handed.size() );
+                if( !more ) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    @Test
+    public void testParse() throws Exception {
+        String tag = fake.getTag();
+        File root = folder.getRoot().getAbsoluteFile();
+        String dir = root + File.separator + "praqma" + File.separator;
+
+        List<String> lines = new ArrayList<String>();
+        lines.add( "Comparing the following:" );
+        lines.add( "  baseline:model-1@" + tag );
+        lines.add( "  baseline:client-1@" + tag );
+        lines.add( "Differences:" );
+        lines.add( "<< left_only@" + tag + " \"Not wanted\"" );
+        lines.add( "\t" + root + File.separator + "left.h@@/main/1" );
+        lines.add( ">> initial_files@" + tag + " \"Adding initial files into components\"" );
+        lines.add( "\t" + dir + "Clientapp" + File.separator + "client.h@@/main/one_int/1" );
+        lines.add( "\t" + dir + "Model" + File.separator + "model.h@@/main/one_int/2" );
+        lines.add( ">> later_files@" + tag + " \"Changing the files\"" );
+        lines.add( "\t" + dir + "Model" + File.separator + "model.h@@/main/one_int/3" );
+
+        RecordedDiffBl diff = new RecordedDiffBl( root, lines );
+        Activity.Parser parser = new Activity.Parser( diff ).addDirection( Activity.Parser.Direction.RIGHT ).setBatchSize( 2 ).addListener( new Activity.Parser.Listener() {
+            @Override
+            public void onActivity( Activity activity ) {
+                handed.add( activity );
+            }
+        } ).parse();
+
+        /* The first activity fills a batch, it is handed over when the next activity starts, while the diff is running */
+        assertThat( diff.progress.get( 8 ), is( 0 ) );
+        assertThat( diff.progress.get( 9 ), is( 1 ) );
+        assertThat( diff.progress.get( 10 ), is( 1 ) );
+
+        /* The rest when the diff has ended */
+        List<Activity> activities = parser.getActivities();
+        assertThat( names( activities ), is( "[initial_files, later_files]" ) );
+        assertThat( handed, is( activities ) );
+
+        List<Version> versions = activities.get( 0 ).changeset.versions;
+        assertThat( versions.size(), is( 2 ) );
+        assertThat( versions.get( 0 ).getSFile(), is( File.separator + "praqma" + File.separator + "Clientapp" + File.separator + "client.h" ) );
+        assertThat( versions.get( 1 ).getSFile(), is( File.separator + "praqma" + File.separator + "Model" + File.separator + "model.h" ) );
+        for( Activity activity : activities ) {
+            for( Version version : activity.changeset.versions ) {
+                assertThat( version.getActivity(), is( activity ) );
+                assertTrue( version.isLoaded() );
+            }
+        }
+        assertThat( activities.get( 1 ).changeset.versions.size(), is( 1 ) );
+
+        /* One describe per batch */
+        assertThat( fake.getCount( "describe" ), is( 2L ) );
+    }
+}
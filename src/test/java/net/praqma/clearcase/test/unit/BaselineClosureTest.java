@@ -0,0 +1,59 @@
+package net.praqma.clearcase.test.unit;
+
+import net.praqma.clearcase.PVob;
+import net.praqma.clearcase.test.fake.FakeClearCaseRule;
+import net.praqma.clearcase.ucm.entities.Baseline;
+import net.praqma.clearcase.ucm.entities.BaselineClosure;
+import net.praqma.clearcase.ucm.entities.Component;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import static net.praqma.clearcase.test.fake.FakeClearCaseRule.names;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class BaselineClosureTest {
+
+    @Rule
+    public FakeClearCaseRule fake = new FakeClearCaseRule();
+
+    @Test
+    public void testClosure() throws Exception {
+        PVob pvob = fake.getPVob();
+        Baseline system = Baseline.get( "_System_1.0", pvob );
+
+        BaselineClosure closure = system.getCompositeDependantClosure();
+        assertThat( names( closure.getBaselines() ), is( "[_Server_1.0, Service_INITIAL, Model_INITIAL, _Client_1.0, Clientapp_INITIAL]" ) );
+        assertThat( names( closure.getLinkedBaselines( system ) ), is( "[_Server_1.0, _Client_1.0]" ) );
+        assertThat( names( closure.getLinkedBaselines( Baseline.get( "_Client_1.0", pvob ) ) ), is( "[Clientapp_INITIAL, Model_INITIAL]" ) );
+        assertThat( fake.getCount( "describe" ), is( 2L ) );
+
+        /* Filtered in memory */
+        Component model = Component.get( "Model", pvob );
+        assertThat( names( closure.getBaselines( model ) ), is( "[Model_INITIAL]" ) );
+        assertThat( closure.getComponents().size(), is( 5 ) );
+        assertThat( closure.getBaselines().get( 0 ).getStream().getShortname(), is( "bootstrap_int" ) );
+        assertThat( fake.getCount( "describe" ), is( 2L ) );
+        assertThat( fake.getCount( "desc" ), is( 0L ) );
+
+        Baseline modelBaseline = Baseline.get( "Model_INITIAL", pvob );
+        assertThat( names( modelBaseline.getCompositeMemberBaselines( Component.get( "_System", pvob ) ) ), is( "[_System_1.0]" ) );
+        assertThat( names( modelBaseline.getCompositeMemberClosure().getLinkedBaselines( modelBaseline ) ), is( "[_Server_1.0, _Client_1.0]" ) );
+    }
+
+    @Test
+    public void testUnfiltered() throws Exception {
+        PVob pvob = fake.getPVob();
+        Baseline system = Baseline.get( "_System_1.0", pvob );
+
+        /* Not filtered, only the closure is read */
+        assertThat( names( system.getCompositeDependantBaselines() ), is( "[_Server_1.0, Service_INITIAL, Model_INITIAL, _Client_1.0, Clientapp_INITIAL]" ) );
+        assertThat( fake.getCount( "describe" ), is( 1L ) );
+
+        /* The rooted baseline loads the closure and the root directories once */
+        Baseline server = Baseline.get( "_Server_1.0", pvob );
+        assertNull( server.getRootedBaseline() );
+        assertThat( fake.getCount( "describe" ), is( 4L ) );
+    }
+}
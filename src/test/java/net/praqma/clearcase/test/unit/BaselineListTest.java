@@ -0,0 +1,144 @@
+package net.praqma.clearcase.test.unit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.praqma.clearcase.test.fake.FakeClearCaseRule;
+import net.praqma.clearcase.test.fake.FakeModel;
+import net.praqma.clearcase.test.fake.FakeModel.Entity;
+import net.praqma.clearcase.ucm.entities.Baseline;
+import net.praqma.clearcase.ucm.entities.Component;
+import net.praqma.clearcase.ucm.entities.Stream;
+import net.praqma.clearcase.ucm.utils.BaselineList;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static net.praqma.clearcase.test.fake.FakeClearCaseRule.PVOB;
+import static net.praqma.clearcase.test.fake.FakeClearCaseRule.names;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class BaselineListTest {
+
+    @Rule
+    public FakeClearCaseRule fake = new FakeClearCaseRule();
+
+    private Stream stream;
+    private Component component;
+
+    /**
+     * Runs every load in a thread of its own, counting the loads and the threads left interrupted
+     */
+    private static class StubExecutor extends AbstractExecutorService {
+        private final AtomicInteger submitted = new AtomicInteger();
+        private final AtomicInteger interrupted = new AtomicInteger();
+        private final List<Thread> threads = Collections.synchronizedList( new ArrayList<Thread>() );
+
+        @Override
+        public void execute( final Runnable command ) {
+            submitted.incrementAndGet();
+            Thread thread = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    command.run();
+                    if( Thread.currentThread().isInterrupted() ) {
+                        interrupted.incrementAndGet();
+                    }
+                }
+            } );
+            threads.add( thread );
+            thread.start();
+        }
+
+        private void join() throws InterruptedException {
+            for( Thread thread : new ArrayList<Thread>( threads ) ) {
+                thread.join();
+            }
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination( long timeout, TimeUnit unit ) {
+            return true;
+        }
+    }
+
+    @Before
+    public void before() throws Exception {
+        FakeModel model = fake.getModel();
+        Entity c = model.create( "component", "Listed", PVOB );
+        String streamKey = Entity.getKey( "stream", "one_int", PVOB );
+        for( int i = 1 ; i <= 5 ; ++i ) {
+            Entity bl = model.create( "baseline", "listed_" + i, PVOB );
+            bl.set( "component", c.getKey() ).set( "bl_stream", streamKey ).set( "plevel", "INITIAL" ).set( "label_status", "Not Labeled" ).set( "master", "original" );
+        }
+        fake.update();
+
+        stream = Stream.get( "one_int@" + fake.getTag() );
+        component = Component.get( "Listed", fake.getPVob() );
+    }
+
+    @Test
+    public void testOrder() throws Exception {
+        StubExecutor executor = new StubExecutor();
+        List<Baseline> baselines = new BaselineList( stream, component, null ).setSorting( new BaselineList.DescendingDateSort() ).load( 3 ).setLoadExecutor( executor ).apply();
+
+        /* Loaded concurrently, in the order of the list */
+        assertThat( names( baselines ), is( "[listed_5, listed_4, listed_3, listed_2, listed_1]" ) );
+        for( Baseline baseline : baselines ) {
+            assertThat( baseline.getComponent(), is( component ) );
+        }
+        assertThat( executor.submitted.get(), is( 5 ) );
+
+        executor.join();
+        assertThat( executor.interrupted.get(), is( 0 ) );
+    }
+
+    @Test
+    public void testPruning() throws Exception {
+        StubExecutor executor = new StubExecutor();
+        BaselineList list = new BaselineList( stream, component, null ).load( 3 ).setLoadExecutor( executor );
+        list.ensureBaseline( Baseline.get( "missing", fake.getPVob() ) );
+
+        /* The baseline failing to load is removed */
+        assertThat( names( list.apply() ), is( "[listed_1, listed_2, listed_3, listed_4, listed_5]" ) );
+        assertThat( executor.submitted.get(), is( 6 ) );
+    }
+
+    @Test
+    public void testLimit() throws Exception {
+        StubExecutor executor = new StubExecutor();
+        List<Baseline> baselines = new BaselineList( stream, component, null ).setLimit( 2 ).load( 3 ).setLoadExecutor( executor ).apply();
+
+        /* No more loads than the limit requires */
+        assertThat( names( baselines ), is( "[listed_1, listed_2]" ) );
+        assertThat( executor.submitted.get(), is( 2 ) );
+
+        executor.join();
+        assertThat( executor.interrupted.get(), is( 0 ) );
+    }
+}
@@ -0,0 +1,93 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.praqma.clearcase.Cool;
+import net.praqma.clearcase.changeset.ChangeSet2;
+import net.praqma.clearcase.ucm.entities.Version;
+import net.praqma.clearcase.ucm.entities.Version.Status;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class ChangeSetOverlapTest {
+
+    private static final String sep = Cool.filesep;
+
+    /* Answers the describes from a table and counts them */
+    private static class FakeChangeSet extends ChangeSet2 {
+        private Map<String, String> answers = new HashMap<String, String>();
+        private int describes = 0;
+
+        @Override
+        protected Map<String, String> describe( Collection<String> selectors, String format ) {
+            describes++;
+            Map<String, String> results = new HashMap<String, String>();
+            for( String selector : selectors ) {
+                if( answers.containsKey( format + selector ) ) {
+                    results.put( selector, answers.get( format + selector ) );
+                }
+            }
+            return results;
+        }
+    }
+
+    private static String path( String ... parts ) {
+        StringBuilder sb = new StringBuilder();
+        for( String part : parts ) {
+            sb.append( sep ).append( part );
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testMoved() throws Exception {
+        FakeChangeSet cs = new FakeChangeSet();
+        Version dir1 = Version.get( path( "vobs", "dir1" ) + "@@" + path( "main", "2" ) );
+        Version dir2 = Version.get( path( "vobs", "dir2" ) + "@@" + path( "main", "1" ) );
+
+        File moved1 = new File( path( "vobs", "dir1", "a.c" ) );
+        File moved2 = new File( path( "vobs", "dir2", "a.c" ) );
+        File deleted = new File( path( "vobs", "dir1", "b.c" ) );
+        File added = new File( path( "vobs", "dir2", "b.c" ) );
+
+        cs.addElement( moved1, Status.DELETED, dir1 );
+        cs.addElement( moved2, Status.ADDED, dir2 );
+        cs.addElement( deleted, Status.DELETED, dir1 );
+        cs.addElement( added, Status.ADDED, dir2 );
+
+        cs.answers.put( "%PVn" + dir1.getFullyQualifiedName(), path( "main", "1" ) );
+        cs.answers.put( "%On" + dir1.getFile().getAbsolutePath() + "@@" + path( "main", "1" ) + sep + "a.c@@", "oid-a" );
+        cs.answers.put( "%On" + dir2.getFullyQualifiedName() + sep + "a.c@@", "oid-a" );
+        cs.answers.put( "%On" + dir1.getFile().getAbsolutePath() + "@@" + path( "main", "1" ) + sep + "b.c@@", "oid-b1" );
+        cs.answers.put( "%On" + dir2.getFullyQualifiedName() + sep + "b.c@@", "oid-b2" );
+
+        cs.checkOverlap();
+
+        assertThat( cs.describes, is( 2 ) );
+        assertThat( cs.getElements().size(), is( 3 ) );
+        assertFalse( cs.getElements().containsKey( moved1 ) );
+        assertThat( cs.getElements().get( moved2 ).getStatus(), is( Status.CHANGED ) );
+        assertThat( cs.getElements().get( moved2 ).getOldFile(), is( moved1 ) );
+        assertThat( cs.getElements().get( deleted ).getStatus(), is( Status.DELETED ) );
+        assertThat( cs.getElements().get( added ).getStatus(), is( Status.ADDED ) );
+    }
+
+    @Test
+    public void testNothingToDescribe() throws Exception {
+        FakeChangeSet cs = new FakeChangeSet();
+        Version dir = Version.get( path( "vobs", "dir" ) + "@@" + path( "main", "2" ) );
+        cs.addElement( new File( path( "vobs", "dir", "a.c" ) ), Status.DELETED, dir );
+        cs.addElement( new File( path( "vobs", "dir", "b.c" ) ), Status.ADDED, dir );
+
+        cs.checkOverlap();
+
+        assertThat( cs.describes, is( 0 ) );
+        assertThat( cs.getElements().size(), is( 2 ) );
+    }
+}
@@ -0,0 +1,66 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.File;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.CleartoolCoalescer;
+import net.praqma.clearcase.test.fake.FakeClearCase;
+import net.praqma.clearcase.test.fake.FakeSetup;
+
+import org.apache.commons.lang.SystemUtils;
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class CleartoolCoalescerTest {
+
+    @Test
+    public void testAccepts() {
+        CleartoolCoalescer coalescer = new CleartoolCoalescer();
+        assertTrue( coalescer.accepts( "describe -fmt %[latest_bls]Xp stream:one_int@\\pvob" ) );
+        assertTrue( coalescer.accepts( "deliver -status -stream stream:one_dev@\\pvob" ) );
+        assertFalse( coalescer.accepts( "deliver -stream stream:one_dev@\\pvob -target stream:one_int@\\pvob -force" ) );
+        assertFalse( coalescer.accepts( "mkbl -nc -component component:c@\\pvob bl" ) );
+        assertFalse( coalescer.accepts( "find . -exec \"cleartool rmname $CLEARCASE_PN\"" ) );
+    }
+
+    @Test
+    public void testConcurrent() throws Exception {
+        Assume.assumeTrue( !SystemUtils.IS_OS_WINDOWS );
+
+        File setup = new File( URLDecoder.decode( getClass().getClassLoader().getResource( "setup.xml" ).getFile(), "UTF-8" ) );
+        FakeClearCase fake = new FakeClearCase( FakeSetup.seed( setup ) ).setLatency( "describe", 2000 ).install();
+        Cleartool.setCoalescing( true );
+        ExecutorService pool = Executors.newFixedThreadPool( 4 );
+        try {
+            final String cmd = "describe -fmt %[plevel]p baseline:model-1@" + fake.getModel().getTag( "praqma_PVOB" );
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for( int i = 0 ; i < 4 ; ++i ) {
+                results.add( pool.submit( new Callable<String>() {
+                    @Override
+                    public String call() throws Exception {
+                        return Cleartool.run( cmd ).stdoutBuffer.toString();
+                    }
+                } ) );
+            }
+
+            for( Future<String> result : results ) {
+                assertThat( result.get(), is( "INITIAL" ) );
+            }
+            assertThat( Cleartool.getCoalescer().getCoalesced(), is( 3L ) );
+        } finally {
+            pool.shutdown();
+            Cleartool.setCoalescing( false );
+            fake.uninstall();
+        }
+    }
+}
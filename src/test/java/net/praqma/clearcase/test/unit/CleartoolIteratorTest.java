@@ -0,0 +1,75 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.CleartoolIterator;
+import net.praqma.util.execute.AbnormalProcessTerminationException;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class CleartoolIteratorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void after() {
+        Cleartool.setExecutable( null );
+    }
+
+    private void install( String body ) throws IOException {
+        File script = new File( folder.getRoot(), "cleartool" );
+        FileWriter writer = new FileWriter( script );
+        try {
+            writer.write( "#!/bin/sh\n" + body + "\n" );
+        } finally {
+            writer.close();
+        }
+        assertTrue( script.setExecutable( true ) );
+        Cleartool.setExecutable( script.getAbsolutePath() );
+    }
+
+    @Test
+    public void testIterate() throws IOException {
+        install( "i=1; while [ $i -le 3000 ]; do echo \"line $i\"; i=$((i+1)); done" );
+
+        CleartoolIterator it = Cleartool.iterate( "ls -recurse", null );
+        int count = 0;
+        while( it.hasNext() ) {
+            assertThat( it.next(), is( "line " + ++count ) );
+        }
+
+        assertThat( count, is( 3000 ) );
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        install( "while true; do echo line; done" );
+
+        CleartoolIterator it = Cleartool.iterate( "ls -recurse", null );
+        for( int i = 0 ; i < 10 ; ++i ) {
+            assertThat( it.next(), is( "line" ) );
+        }
+        it.close();
+
+        assertFalse( it.hasNext() );
+    }
+
+    @Test( expected = AbnormalProcessTerminationException.class )
+    public void testFailure() throws IOException {
+        install( "echo first; echo 'cleartool: Error: Unable to access \"nothing\"' >&2; exit 1" );
+
+        CleartoolIterator it = Cleartool.iterate( "ls nothing", null );
+        assertThat( it.next(), is( "first" ) );
+        it.hasNext();
+    }
+}
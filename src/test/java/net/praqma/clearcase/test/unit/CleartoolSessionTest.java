@@ -0,0 +1,201 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.CleartoolSessionPool;
+import net.praqma.clearcase.exceptions.NoLicenseServerException;
+import net.praqma.util.execute.AbnormalProcessTerminationException;
+import net.praqma.util.execute.CmdResult;
+
+import org.apache.commons.lang.SystemUtils;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class CleartoolSessionTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File starts;
+
+    /**
+     * An interactive cleartool started with -status: a prompt, the output of the command and a status line per command
+     */
+    @Before
+    public void before() throws IOException {
+        Assume.assumeTrue( !SystemUtils.IS_OS_WINDOWS );
+
+        File script = new File( folder.getRoot(), "cleartool" );
+        starts = new File( folder.getRoot(), "starts" );
+        FileWriter writer = new FileWriter( script );
+        try {
+            writer.write( "#!/bin/sh\n" );
+            writer.write( "echo start >> '" + starts.getAbsolutePath() + "'\n" );
+            writer.write( "n=0\n" );
+            writer.write( "while printf 'cleartool> ' && IFS= read -r line; do\n" );
+            writer.write( "  n=$((n+1))\n" );
+            writer.write( "  case \"$line\" in\n" );
+            writer.write( "    quit) exit 0;;\n" );
+            writer.write( "    cd\\ *) d=${line#cd }; d=${d#\\\"}; d=${d%\\\"}; if cd \"$d\" 2>/dev/null; then s=0; else echo \"cleartool: Error: Unable to change directory to $d\" >&2; s=1; fi;;\n" );
+            writer.write( "    pwd) pwd; s=0;;\n" );
+            writer.write( "    fail) echo 'cleartool: Error: Unable to find the stream' >&2; s=1;;\n" );
+            writer.write( "    partial) printf 'no newline'; s=0;;\n" );
+            writer.write( "    lookalike) echo 'Command 99 returned status 1'; s=0;;\n" );
+            writer.write( "    license) echo 'cleartool: Error: FLEXnet Licensing error:-15,570' >&2; exit 1;;\n" );
+            writer.write( "    *) echo \"$line\"; echo \"$line\"; s=0;;\n" );
+            writer.write( "  esac\n" );
+            writer.write( "  echo \"Command $n returned status $s\"\n" );
+            writer.write( "done\n" );
+        } finally {
+            writer.close();
+        }
+        assertTrue( script.setExecutable( true ) );
+
+        Cleartool.setExecutable( script.getAbsolutePath() );
+        Cleartool.setSessionPoolSize( 1 );
+    }
+
+    @After
+    public void after() {
+        Cleartool.setSessionPoolSize( 0 );
+        Cleartool.setExecutable( null );
+    }
+
+    @Test
+    public void testStatusFraming() throws Exception {
+        assertThat( Cleartool.run( "lsvob -s" ).stdoutList.size(), is( 2 ) );
+        assertThat( Cleartool.run( "lsvob -s" ).stdoutList.get( 0 ), is( "lsvob -s" ) );
+
+        /* Output not terminated by a newline is in front of the status line */
+        assertThat( Cleartool.run( "partial" ).stdoutBuffer.toString(), is( "no newline" ) );
+
+        try {
+            Cleartool.run( "fail" );
+            fail( "Expected the command to fail" );
+        } catch( AbnormalProcessTerminationException e ) {
+            assertThat( e.getMessage(), is( "cleartool: Error: Unable to find the stream" ) );
+        }
+
+        /* The error output is merged when asked to, and a failure can be ignored */
+        assertThat( Cleartool.run( "fail", null, true, true ).stdoutBuffer.toString(), is( "cleartool: Error: Unable to find the stream" ) );
+
+        /* All in one session */
+        assertThat( Cleartool.run( "lsvob -s" ).stdoutList.size(), is( 2 ) );
+        assertThat( countStarts(), is( 1 ) );
+    }
+
+    @Test
+    public void testStatusNumber() throws Exception {
+        /* Output looking like the status line of another command is output */
+        CmdResult result = Cleartool.run( "lookalike" );
+        assertThat( result.stdoutList.size(), is( 1 ) );
+        assertThat( result.stdoutList.get( 0 ), is( "Command 99 returned status 1" ) );
+        assertThat( Cleartool.run( "lsvob -s" ).stdoutList.size(), is( 2 ) );
+    }
+
+    @Test
+    public void testSessionDied() throws Exception {
+        /* The error output of a dead session is kept, so the failure is recognized */
+        try {
+            Cleartool.run( "license" );
+            fail( "Expected the session to die" );
+        } catch( NoLicenseServerException e ) {
+            assertTrue( e.getCause().getMessage().contains( "FLEXnet Licensing error:-15,570" ) );
+        }
+
+        /* A new session is started */
+        assertThat( Cleartool.run( "lsvob -s" ).stdoutList.size(), is( 2 ) );
+        assertThat( countStarts(), is( 2 ) );
+    }
+
+    @Test
+    public void testDirectory() throws Exception {
+        File one = folder.newFolder( "one" );
+        File two = folder.newFolder( "two" );
+        String jvm = new File( System.getProperty( "user.dir" ) ).getCanonicalPath();
+
+        assertThat( pwd( one ), is( one.getCanonicalPath() ) );
+        /* Without a directory the command runs in the directory of the JVM, not where the previous command ran */
+        assertThat( pwd( null ), is( jvm ) );
+        assertThat( pwd( two ), is( two.getCanonicalPath() ) );
+        assertThat( pwd( two ), is( two.getCanonicalPath() ) );
+        assertThat( pwd( null ), is( jvm ) );
+
+        try {
+            pwd( new File( folder.getRoot(), "missing" ) );
+            fail( "Expected the directory change to fail" );
+        } catch( AbnormalProcessTerminationException e ) {
+            assertTrue( e.getMessage().contains( "Unable to change directory" ) );
+        }
+        assertThat( pwd( null ), is( jvm ) );
+        assertThat( pwd( one ), is( one.getCanonicalPath() ) );
+        assertThat( countStarts(), is( 1 ) );
+    }
+
+    @Test
+    public void testPool() throws Exception {
+        Cleartool.setSessionPoolSize( 2 );
+        CleartoolSessionPool pool = new CleartoolSessionPool( 2 );
+        assertTrue( pool.accepts( "describe -fmt %n stream:one_int@/vobs/pvob" ) );
+        assertFalse( pool.accepts( "lsvob -s | sort" ) );
+        pool.close();
+        assertFalse( pool.accepts( "lsvob -s" ) );
+
+        /* Never more sessions than the size of the pool */
+        final AtomicInteger failures = new AtomicInteger();
+        List<Thread> threads = new ArrayList<Thread>();
+        for( int i = 0 ; i < 6 ; ++i ) {
+            final String cmd = "lsvob " + i;
+            Thread thread = new Thread( new Runnable() {
+                @Override
+                public void run() {
+                    for( int j = 0 ; j < 10 ; ++j ) {
+                        if( !Cleartool.run( cmd ).stdoutList.get( 0 ).equals( cmd ) ) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            } );
+            threads.add( thread );
+            thread.start();
+        }
+        for( Thread thread : threads ) {
+            thread.join();
+        }
+
+        assertThat( failures.get(), is( 0 ) );
+        assertTrue( countStarts() <= 2 );
+    }
+
+    private static String pwd( File dir ) throws IOException {
+        return new File( Cleartool.run( "pwd", dir ).stdoutBuffer.toString() ).getCanonicalPath();
+    }
+
+    private int countStarts() throws IOException {
+        int runs = 0;
+        BufferedReader reader = new BufferedReader( new FileReader( starts ) );
+        try {
+            while( reader.readLine() != null ) {
+                runs++;
+            }
+        } finally {
+            reader.close();
+        }
+        return runs;
+    }
+}
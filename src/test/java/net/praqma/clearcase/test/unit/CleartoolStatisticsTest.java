@@ -0,0 +1,58 @@
+package net.praqma.clearcase.test.unit;
+
+import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.CleartoolStatistics;
+
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class CleartoolStatisticsTest {
+
+    @Test
+    public void testSubCommand() {
+        assertThat( Cleartool.getSubCommand( "describe -fmt %u baseline:bl@\\pvob" ), is( "describe" ) );
+        assertThat( Cleartool.getSubCommand( " lsbl" ), is( "lsbl" ) );
+    }
+
+    @Test
+    public void testRecord() {
+        CleartoolStatistics stats = new CleartoolStatistics();
+        stats.record( "describe", 3000000L, 10, false );
+        stats.record( "describe", 7000000L, 20, true );
+        stats.record( "lsbl", 1000000L, 5, false );
+
+        Map<String, CleartoolStatistics.Snapshot> snapshot = stats.getSnapshot();
+
+        assertThat( snapshot.size(), is( 2 ) );
+
+        CleartoolStatistics.Snapshot describe = snapshot.get( "describe" );
+        assertThat( describe.getCount(), is( 2L ) );
+        assertThat( describe.getFailures(), is( 1L ) );
+        assertThat( describe.getOutput(), is( 30L ) );
+        assertThat( describe.getTotalMillis(), is( 10L ) );
+        assertThat( describe.getMaxMillis(), is( 7L ) );
+
+        /* 3ms and 7ms end up in the 5 and 10 buckets */
+        long[] histogram = describe.getHistogram();
+        assertThat( histogram[2], is( 1L ) );
+        assertThat( histogram[3], is( 1L ) );
+        assertThat( histogram.length, is( CleartoolStatistics.getBuckets().length + 1 ) );
+
+        /* The buckets cannot be changed */
+        CleartoolStatistics.getBuckets()[2] = 1;
+        assertThat( CleartoolStatistics.getBuckets()[2], is( 5L ) );
+    }
+
+    @Test
+    public void testReset() {
+        CleartoolStatistics stats = new CleartoolStatistics();
+        stats.record( "describe", 1, 1, false );
+        stats.reset();
+
+        assertTrue( stats.getSnapshot().isEmpty() );
+    }
+}
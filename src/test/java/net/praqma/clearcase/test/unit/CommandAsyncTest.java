@@ -0,0 +1,148 @@
+package net.praqma.clearcase.test.unit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import net.praqma.clearcase.api.Command;
+import net.praqma.clearcase.cleartool.CleartoolExecutor;
+import net.praqma.clearcase.exceptions.CleartoolException;
+import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
+import net.praqma.clearcase.ucm.entities.Stream;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class CommandAsyncTest {
+
+    private static class Echo extends Command<String> {
+        private final String value;
+
+        private Echo( String value ) {
+            this.value = value;
+        }
+
+        @Override
+        public String execute() throws CleartoolException {
+            if( value == null ) {
+                throw new CleartoolException( "No value" );
+            }
+            return value;
+        }
+
+        @Override
+        public String getCommandLine() {
+            return "echo " + value;
+        }
+
+        @Override
+        public String getCommand() {
+            return "echo";
+        }
+    }
+
+    @Test
+    public void testExecuteAsync() throws CleartoolException {
+        assertThat( CleartoolExecutor.get( new Echo( "one" ).executeAsync() ), is( "one" ) );
+    }
+
+    @Test
+    public void testExecuteAll() throws CleartoolException {
+        List<Echo> commands = new ArrayList<Echo>();
+        for( String s : Arrays.asList( "a", "b", "c", "d" ) ) {
+            commands.add( new Echo( s ) );
+        }
+
+        assertThat( Command.executeAll( commands ), is( Arrays.asList( "a", "b", "c", "d" ) ) );
+    }
+
+    @Test( expected = CleartoolException.class )
+    public void testFailure() throws CleartoolException {
+        Command.executeAll( Arrays.asList( new Echo( "a" ), new Echo( null ) ) );
+    }
+
+    @Test
+    public void testInvokeAll() throws Exception {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger most = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for( int i = 0 ; i < 20 ; ++i ) {
+            final int n = i;
+            tasks.add( new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    int now = running.incrementAndGet();
+                    synchronized( most ) {
+                        most.set( Math.max( most.get(), now ) );
+                    }
+                    Thread.sleep( 5 );
+                    running.decrementAndGet();
+                    return n;
+                }
+            } );
+        }
+
+        List<Integer> results = CleartoolExecutor.invokeAll( tasks, 3 );
+        for( int i = 0 ; i < 20 ; ++i ) {
+            assertThat( results.get( i ), is( i ) );
+        }
+        assertTrue( most.get() <= 3 );
+    }
+
+    @Test
+    public void testInvokeAllNested() throws Exception {
+        /* All threads of the executor are busy, the tasks are run by the caller */
+        ExecutorService single = Executors.newFixedThreadPool( 1 );
+        CleartoolExecutor.setExecutor( single );
+        try {
+            Future<List<String>> outer = single.submit( new Callable<List<String>>() {
+                @Override
+                public List<String> call() throws Exception {
+                    List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+                    for( final String value : Arrays.asList( "a", "b", "c" ) ) {
+                        tasks.add( new Callable<String>() {
+                            @Override
+                            public String call() throws Exception {
+                                return value;
+                            }
+                        } );
+                    }
+                    return CleartoolExecutor.invokeAll( tasks, 2 );
+                }
+            } );
+
+            assertThat( outer.get( 10, TimeUnit.SECONDS ), is( Arrays.asList( "a", "b", "c" ) ) );
+        } finally {
+            CleartoolExecutor.setExecutor( null );
+            single.shutdownNow();
+        }
+    }
+
+    @Test( expected = UnableToInitializeEntityException.class )
+    public void testInvokeAllFailure() throws Exception {
+        List<Callable<String>> tasks = new ArrayList<Callable<String>>();
+        tasks.add( new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                return "a";
+            }
+        } );
+        tasks.add( new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                /* Not wrapped */
+                throw new UnableToInitializeEntityException( Stream.class, new IllegalArgumentException( "b" ) );
+            }
+        } );
+
+        CleartoolExecutor.invokeAll( tasks, 2 );
+    }
+}
@@ -0,0 +1,58 @@
+package net.praqma.clearcase.test.unit;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.praqma.clearcase.Cool;
+import net.praqma.clearcase.PVob;
+import net.praqma.clearcase.test.fake.FakeClearCaseRule;
+import net.praqma.clearcase.ucm.entities.Component;
+import net.praqma.clearcase.ucm.entities.UCMEntity;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class ComponentRootDirTest {
+
+    @Rule
+    public FakeClearCaseRule fake = new FakeClearCaseRule();
+
+    @Test
+    public void testLoadRootDirs() throws Exception {
+        PVob pvob = fake.getPVob();
+        Component model = Component.get( "Model", pvob );
+        Component system = Component.get( "_System", pvob );
+        Component model2 = Component.get( "Model", pvob );
+
+        Component.loadRootDirs( Arrays.asList( model, system, model2 ) );
+        assertThat( fake.getCount( "describe" ), is( 1L ) );
+
+        assertTrue( model.getRootDir().endsWith( Cool.filesep + "Model" ) );
+        assertThat( model2.getRootDir(), is( model.getRootDir() ) );
+        assertTrue( system.isRootLess() );
+        assertThat( fake.getCount( "desc" ), is( 0L ) );
+
+        /* Read once */
+        Component client = Component.get( "Clientapp", pvob );
+        assertTrue( client.getRootDir().endsWith( Cool.filesep + "Clientapp" ) );
+        client.getRootDir();
+        assertThat( fake.getCount( "desc" ), is( 1L ) );
+    }
+
+    @Test
+    public void testDescribeAll() throws Exception {
+        String tag = fake.getTag();
+        List<String> selectors = Arrays.asList( "component:Model@" + tag, "component:Missing@" + tag, "component:Clientapp@" + tag );
+
+        /* The failing batch is described one by one */
+        List<String> records = UCMEntity.describeAll( selectors, "%[root_dir]p", null );
+        assertThat( records.size(), is( 3 ) );
+        assertTrue( records.get( 0 ).endsWith( Cool.filesep + "Model" ) );
+        assertNull( records.get( 1 ) );
+        assertTrue( records.get( 2 ).endsWith( Cool.filesep + "Clientapp" ) );
+        assertThat( fake.getCount( "describe" ), is( 4L ) );
+    }
+}
@@ -0,0 +1,89 @@
+package net.praqma.clearcase.test.unit;
+
+import java.util.Map;
+
+import net.praqma.clearcase.Deliver;
+import net.praqma.clearcase.DeliverSnapshot;
+import net.praqma.clearcase.test.fake.FakeClearCaseRule;
+import net.praqma.clearcase.test.fake.FakeModel.Entity;
+import net.praqma.clearcase.ucm.entities.Project;
+import net.praqma.clearcase.ucm.entities.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static net.praqma.clearcase.test.fake.FakeClearCaseRule.PVOB;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class DeliverSnapshotTest {
+
+    @Rule
+    public FakeClearCaseRule fake = new FakeClearCaseRule();
+
+    private long ttl;
+
+    @Before
+    public void before() throws Exception {
+        fake.getModel().get( Entity.getKey( "stream", "one_dev2", PVOB ) ).set( "deliver_activity", "deliver.one_dev2" ).set( "deliver_view", "one_int_view" );
+        fake.update();
+        ttl = DeliverSnapshot.getTimeToLive();
+    }
+
+    @After
+    public void after() {
+        DeliverSnapshot.setTimeToLive( ttl );
+        DeliverSnapshot.clear();
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        String tag = fake.getTag();
+        Project project = Project.get( "one@" + tag );
+        DeliverSnapshot snapshot = DeliverSnapshot.get( project );
+
+        assertThat( snapshot.getStreams().size(), is( 3 ) );
+        Map<Stream, Deliver.Status> deliveries = snapshot.getDeliveries();
+        assertThat( deliveries.size(), is( 1 ) );
+
+        Stream source = Stream.get( "one_dev2@" + tag );
+        Deliver.Status status = deliveries.get( source );
+        assertThat( status.getActivity().getShortname(), is( "deliver.one_dev2" ) );
+        assertThat( status.getViewTag(), is( "one_int_view" ) );
+        assertThat( status.getTargetStream().getShortname(), is( "one_int" ) );
+
+        /* Not reused by default */
+        assertNotSame( snapshot, DeliverSnapshot.get( project ) );
+
+        try {
+            deliveries.clear();
+            fail( "The deliveries must not change" );
+        } catch( UnsupportedOperationException e ) {
+            /* Immutable */
+        }
+
+        /* Reused within the time to live, and dropped when it expires */
+        DeliverSnapshot.setTimeToLive( 60000 );
+        snapshot = DeliverSnapshot.get( project );
+        assertSame( snapshot, DeliverSnapshot.get( project ) );
+        DeliverSnapshot.setTimeToLive( 1 );
+        Thread.sleep( 5 );
+        assertNotSame( snapshot, DeliverSnapshot.get( project ) );
+    }
+
+    @Test
+    public void testDeliveringStream() throws Exception {
+        String tag = fake.getTag();
+        Stream source = Stream.get( "one_dev2@" + tag );
+
+        /* A child is delivering, the other streams of the project are not asked */
+        assertThat( Stream.get( "one_int@" + tag ).getDeliveringStream( false ), is( source ) );
+        assertThat( fake.getCount( "deliver" ), is( 2L ) );
+
+        /* No children, all the streams of the project are asked once */
+        assertThat( Stream.get( "one_dev@" + tag ).getDeliveringStream( false ), is( source ) );
+        assertThat( fake.getCount( "deliver" ), is( 5L ) );
+    }
+}
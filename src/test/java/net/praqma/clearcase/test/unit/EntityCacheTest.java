@@ -0,0 +1,74 @@
+package net.praqma.clearcase.test.unit;
+
+import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
+import net.praqma.clearcase.ucm.entities.Baseline;
+import net.praqma.clearcase.ucm.entities.EntityCache;
+import net.praqma.clearcase.ucm.entities.Stream;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EntityCacheTest {
+
+    @After
+    public void disable() {
+        EntityCache.configure( 0, 0 );
+    }
+
+    @Test
+    public void testDisabled() throws UnableToInitializeEntityException {
+        EntityCache.configure( 0, 0 );
+
+        assertNotSame( Baseline.get( "bl1@\\pvob" ), Baseline.get( "bl1@\\pvob" ) );
+    }
+
+    @Test
+    public void testSameInstance() throws UnableToInitializeEntityException {
+        EntityCache.configure( 10, 0 );
+
+        Baseline bl = Baseline.get( "bl1@\\pvob" );
+        assertSame( bl, Baseline.get( "baseline:bl1@\\pvob" ) );
+        assertNotSame( bl, Baseline.get( "bl2@\\pvob" ) );
+    }
+
+    @Test
+    public void testClassIsPartOfTheKey() throws UnableToInitializeEntityException {
+        EntityCache.configure( 10, 0 );
+
+        Stream s1 = Stream.get( "stream:s1@\\pvob" );
+        assertSame( s1, Stream.get( "s1@\\pvob" ) );
+        assertEquals( 1, EntityCache.size() );
+    }
+
+    @Test
+    public void testInvalidate() throws UnableToInitializeEntityException {
+        EntityCache.configure( 10, 0 );
+
+        Baseline bl = Baseline.get( "bl1@\\pvob" );
+        EntityCache.invalidate( bl );
+        assertNotSame( bl, Baseline.get( "bl1@\\pvob" ) );
+    }
+
+    @Test
+    public void testEviction() throws UnableToInitializeEntityException {
+        EntityCache.configure( 2, 0 );
+
+        Baseline bl1 = Baseline.get( "bl1@\\pvob" );
+        Baseline.get( "bl2@\\pvob" );
+        Baseline.get( "bl3@\\pvob" );
+
+        assertEquals( 2, EntityCache.size() );
+        assertNotSame( bl1, Baseline.get( "bl1@\\pvob" ) );
+    }
+
+    @Test
+    public void testTimeToLive() throws UnableToInitializeEntityException, InterruptedException {
+        EntityCache.configure( 10, 1 );
+
+        Baseline bl = Baseline.get( "bl1@\\pvob" );
+        Thread.sleep( 10 );
+        assertNotSame( bl, Baseline.get( "bl1@\\pvob" ) );
+    }
+}
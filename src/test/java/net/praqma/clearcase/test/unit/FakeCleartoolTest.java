@@ -0,0 +1,75 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URLDecoder;
+import java.util.Arrays;
+
+import net.praqma.clearcase.test.fake.FakeCleartool;
+import net.praqma.clearcase.test.fake.FakeModel;
+import net.praqma.clearcase.test.fake.FakeSetup;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class FakeCleartoolTest {
+
+    private static FakeModel model;
+
+    @BeforeClass
+    public static void seed() throws Exception {
+        model = FakeSetup.seed( new File( URLDecoder.decode( FakeCleartoolTest.class.getClassLoader().getResource( "setup.xml" ).getFile(), "UTF-8" ) ) );
+    }
+
+    private String run( int status, String... args ) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        assertThat( new FakeCleartool( model ).run( args, new PrintStream( out, true ), new PrintStream( err, true ) ), is( status ) );
+        return status == 0 ? out.toString() : err.toString();
+    }
+
+    @Test
+    public void testTokenize() {
+        assertThat( FakeCleartool.tokenize( "describe -fmt \"%n %u\" baseline:bl@\\pvob" ), is( Arrays.asList( "describe", "-fmt", "%n %u", "baseline:bl@\\pvob" ) ) );
+    }
+
+    @Test
+    public void testDescribe() {
+        String pvob = model.getTag( "praqma_PVOB" );
+        assertThat( run( 0, "describe", "-fmt", "%n::%X[component]p::%[plevel]p::%[label_status]p", "baseline:model-1@" + pvob ), is( "model-1::component:_System@" + pvob + "::INITIAL::Fully Labeled" ) );
+        assertThat( run( 0, "describe", "-fmt", "%[depends_on]p", "baseline:_System_1.0@" + pvob ), is( "_Server_1.0 _Client_1.0" ) );
+    }
+
+    @Test
+    public void testDescribeUnknown() {
+        assertThat( run( 1, "describe", "-fmt", "%n", "baseline:nothing@" + model.getTag( "praqma_PVOB" ) ), containsString( "cleartool: Error:" ) );
+    }
+
+    @Test
+    public void testListBaselines() {
+        String pvob = model.getTag( "praqma_PVOB" );
+        String output = run( 0, "lsbl", "-fmt", "%Xn\\n", "-component", "_System@" + pvob, "-stream", "one_int@" + pvob );
+        assertThat( output, containsString( "baseline:model-1@" + pvob ) );
+        assertThat( output, containsString( "baseline:client-1@" + pvob ) );
+        assertThat( output, not( containsString( "_System_1.0" ) ) );
+    }
+
+    @Test
+    public void testDiffbl() {
+        String output = run( 0, "diffbl", "-pre", "-act", "-ver", "-versions", "baseline:client-1@" + model.getTag( "praqma_PVOB" ) );
+        assertThat( output, containsString( ">> initial_files@" ) );
+        assertThat( output, containsString( "client.h@@" ) );
+        assertThat( output, not( containsString( "model.h@@" ) ) );
+    }
+
+    @Test
+    public void testUnsupported() {
+        assertThat( run( 1, "mkbl", "-nc", "bl" ), containsString( "Unrecognized command" ) );
+    }
+}
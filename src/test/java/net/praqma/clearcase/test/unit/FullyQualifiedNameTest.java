@@ -0,0 +1,110 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.praqma.clearcase.ucm.entities.FullyQualifiedName;
+import net.praqma.clearcase.ucm.entities.UCMEntity;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * The parser must accept and split names exactly as the pattern of {@link UCMEntity} does
+ */
+public class FullyQualifiedNameTest {
+
+    private static Pattern pattern;
+
+    @BeforeClass
+    public static void getPattern() throws Exception {
+        Field field = UCMEntity.class.getDeclaredField( "pattern_std_fqname" );
+        field.setAccessible( true );
+        pattern = (Pattern) field.get( null );
+    }
+
+    private static void assertEquivalent( String fqname ) {
+        Matcher m = pattern.matcher( fqname );
+        FullyQualifiedName name = FullyQualifiedName.parse( fqname );
+        String display = fqname.replace( "\n", "\\n" ).replace( "\r", "\\r" );
+
+        if( m.find() ) {
+            assertNotNull( "Should parse " + display, name );
+            assertThat( display, name.getKind(), is( m.group( 1 ) ) );
+            assertThat( display, name.getShortname(), is( m.group( 2 ) ) );
+            assertThat( display, name.getPVob(), is( m.group( 3 ) ) );
+        } else {
+            assertNull( "Should not parse " + display, name );
+        }
+    }
+
+    private static List<String> getCorpus() throws IOException {
+        List<String> corpus = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader( new InputStreamReader( FullyQualifiedNameTest.class.getClassLoader().getResourceAsStream( "fqnames.txt" ), "UTF-8" ) );
+        try {
+            String line;
+            while( ( line = reader.readLine() ) != null ) {
+                corpus.add( line );
+            }
+        } finally {
+            reader.close();
+        }
+
+        return corpus;
+    }
+
+    @Test
+    public void testCorpus() throws IOException {
+        String[] suffixes = { "", "\n", "\r", "\r\n", "\n\n", " ", "\t", "\u000B", "\u0085", "\u2028", "@" };
+        for( String fqname : getCorpus() ) {
+            for( String suffix : suffixes ) {
+                assertEquivalent( fqname + suffix );
+            }
+        }
+    }
+
+    @Test
+    public void testRandom() {
+        Random random = new Random( 4711 );
+        for( int i = 0 ; i < 50000 ; ++i ) {
+            /* Mostly names of the right shape, with random parts */
+            assertEquivalent( getRandom( random ) + ":" + getRandom( random ) + "@" + getRandom( random ) );
+            assertEquivalent( getRandom( random ) + getRandom( random ) + getRandom( random ) );
+        }
+    }
+
+    private static final char[] alphabet = { 'a', 'Z', '0', '_', '-', '.', ':', '@', '\\', '/', ' ', '\t', '\n', '\r', '\u0085', '\u2028', '\u00f8' };
+
+    private static String getRandom( Random random ) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt( 5 );
+        for( int j = 0 ; j < length ; ++j ) {
+            /* Word characters are the most common */
+            if( random.nextBoolean() ) {
+                sb.append( alphabet[random.nextInt( 4 )] );
+            } else {
+                sb.append( alphabet[random.nextInt( alphabet.length )] );
+            }
+        }
+
+        return sb.toString();
+    }
+
+    @Test
+    public void testKind() {
+        assertTrue( FullyQualifiedName.isKind( "baseline:bl@\\pvob", "baseline" ) );
+        assertFalse( FullyQualifiedName.isKind( "baselines:bl@\\pvob", "baseline" ) );
+        assertFalse( FullyQualifiedName.isKind( "baseline", "baseline" ) );
+        assertFalse( FullyQualifiedName.isKind( "stream:bl@\\pvob", "baseline" ) );
+    }
+}
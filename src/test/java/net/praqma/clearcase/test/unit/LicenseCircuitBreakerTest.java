@@ -0,0 +1,158 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.LicenseCircuitBreaker;
+import net.praqma.clearcase.cleartool.RetryPolicy;
+import net.praqma.clearcase.exceptions.NoLicensesException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class LicenseCircuitBreakerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File script;
+    private File count;
+
+    @Before
+    public void before() throws IOException {
+        script = new File( folder.getRoot(), "cleartool" );
+        count = new File( folder.getRoot(), "count" );
+        Cleartool.setExecutable( script.getAbsolutePath() );
+        /* With a timeout the command runs as its own process, and the error output becomes the message */
+        Cleartool.setRetryPolicy( new RetryPolicy().setAttempts( 1 ).setTimeout( 10000 ) );
+    }
+
+    @After
+    public void after() {
+        Cleartool.setExecutable( null );
+        Cleartool.setRetryPolicy( null );
+        Cleartool.setLicenseCircuitBreaker( LicenseCircuitBreaker.fromSystemProperties() );
+    }
+
+    private void write( boolean licensed ) throws IOException {
+        FileWriter writer = new FileWriter( script );
+        try {
+            writer.write( "#!/bin/sh\n" );
+            writer.write( "echo run >> '" + count.getAbsolutePath() + "'\n" );
+            if( licensed ) {
+                writer.write( "echo licensed\n" );
+            } else {
+                writer.write( "echo 'FLEXnet Licensing error:-18,147' >&2\n" );
+                writer.write( "exit 1\n" );
+            }
+        } finally {
+            writer.close();
+        }
+        assertTrue( script.setExecutable( true ) );
+    }
+
+    private int getRuns() throws IOException {
+        int runs = 0;
+        BufferedReader reader = new BufferedReader( new FileReader( count ) );
+        try {
+            while( reader.readLine() != null ) {
+                runs++;
+            }
+        } finally {
+            reader.close();
+        }
+        return runs;
+    }
+
+    @Test
+    public void testOpenAndClose() throws Exception {
+        LicenseCircuitBreaker breaker = new LicenseCircuitBreaker( 500 );
+        Cleartool.setLicenseCircuitBreaker( breaker );
+        write( false );
+
+        try {
+            Cleartool.run( "lsvob" );
+            fail( "Expected no licenses" );
+        } catch( NoLicensesException e ) {
+            assertFalse( LicenseCircuitBreaker.isRejection( e ) );
+        }
+        assertThat( breaker.getState(), is( LicenseCircuitBreaker.State.OPEN ) );
+        assertThat( breaker.getTrips(), is( 1L ) );
+
+        /* Fails fast, without running cleartool */
+        try {
+            Cleartool.run( "lsvob" );
+            fail( "Expected no licenses" );
+        } catch( NoLicensesException e ) {
+            assertTrue( LicenseCircuitBreaker.isRejection( e ) );
+        }
+        assertThat( breaker.getRejected(), is( 1L ) );
+        assertThat( getRuns(), is( 1 ) );
+
+        /* The probe after the cool down closes the circuit */
+        write( true );
+        Thread.sleep( 600 );
+        assertThat( Cleartool.run( "lsvob" ).stdoutBuffer.toString(), is( "licensed" ) );
+        assertThat( breaker.getState(), is( LicenseCircuitBreaker.State.CLOSED ) );
+        assertThat( getRuns(), is( 2 ) );
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        if( System.getProperty( "cool.cleartool.license.cooldown" ) == null ) {
+            assertNull( LicenseCircuitBreaker.fromSystemProperties() );
+        }
+    }
+
+    @Test
+    public void testNotRetried() throws Exception {
+        Cleartool.setRetryPolicy( new RetryPolicy().setAttempts( 3 ).setInitialDelay( 1 ).setTimeout( 10000 ) );
+
+        LicenseCircuitBreaker breaker = new LicenseCircuitBreaker( 500 );
+        Cleartool.setLicenseCircuitBreaker( breaker );
+        write( false );
+
+        /* The caller gets the error of cleartool, not a rejection of a retry */
+        try {
+            Cleartool.run( "lsvob" );
+            fail( "Expected no licenses" );
+        } catch( NoLicensesException e ) {
+            assertFalse( LicenseCircuitBreaker.isRejection( e ) );
+            assertTrue( e.getCause().getMessage().contains( "FLEXnet Licensing error:-18,147" ) );
+        }
+        assertThat( getRuns(), is( 1 ) );
+        assertThat( breaker.getRejected(), is( 0L ) );
+    }
+
+    @Test
+    public void testFailedProbe() throws Exception {
+        LicenseCircuitBreaker breaker = new LicenseCircuitBreaker( 200 );
+        Cleartool.setLicenseCircuitBreaker( breaker );
+        write( false );
+
+        for( int i = 0 ; i < 2 ; ++i ) {
+            try {
+                Cleartool.run( "lsvob" );
+                fail( "Expected no licenses" );
+            } catch( NoLicensesException e ) {
+                assertFalse( LicenseCircuitBreaker.isRejection( e ) );
+            }
+            assertThat( breaker.getState(), is( LicenseCircuitBreaker.State.OPEN ) );
+            Thread.sleep( 300 );
+        }
+
+        assertThat( getRuns(), is( 2 ) );
+        assertThat( breaker.getTrips(), is( 1L ) );
+        assertThat( breaker.getLastFailure() instanceof NoLicensesException, is( true ) );
+    }
+}
@@ -0,0 +1,50 @@
+package net.praqma.clearcase.test.unit;
+
+import java.util.Arrays;
+import java.util.List;
+
+import net.praqma.clearcase.exceptions.UnableToLoadEntityException;
+import net.praqma.clearcase.test.fake.FakeClearCaseRule;
+import net.praqma.clearcase.ucm.entities.Stream;
+import net.praqma.clearcase.ucm.entities.UCMEntity;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class LoadAllTest {
+
+    @Rule
+    public FakeClearCaseRule fake = new FakeClearCaseRule();
+
+    @Test
+    public void testLoadAll() throws Exception {
+        String tag = fake.getTag();
+        List<Stream> streams = Arrays.asList( Stream.get( "one_int@" + tag ), Stream.get( "one_dev@" + tag ) );
+        UCMEntity.loadAll( streams );
+
+        assertTrue( streams.get( 0 ).isLoaded() );
+        assertTrue( streams.get( 1 ).isLoaded() );
+        assertThat( fake.getCount( "describe" ), is( 1L ) );
+    }
+
+    @Test
+    public void testMissing() throws Exception {
+        String tag = fake.getTag();
+        Stream missing = Stream.get( "missing@" + tag );
+        List<Stream> streams = Arrays.asList( Stream.get( "one_int@" + tag ), missing, Stream.get( "one_dev@" + tag ) );
+
+        try {
+            UCMEntity.loadAll( streams );
+            fail( "Expected the missing stream to fail" );
+        } catch( UnableToLoadEntityException e ) {
+            assertThat( (Stream) e.getEntity(), is( missing ) );
+        }
+
+        /* The failed bulk describe and one describe of each stream, the missing one is not described again */
+        assertThat( fake.getCount( "describe" ), is( 4L ) );
+        assertTrue( streams.get( 0 ).isLoaded() );
+    }
+}
@@ -0,0 +1,57 @@
+package net.praqma.clearcase.test.unit;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import net.praqma.clearcase.test.fake.FakeClearCaseRule;
+import net.praqma.clearcase.test.fake.FakeModel.Entity;
+import net.praqma.clearcase.ucm.entities.Baseline;
+import net.praqma.clearcase.ucm.entities.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import static net.praqma.clearcase.test.fake.FakeClearCaseRule.PVOB;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class RecommendedBaselinesTest {
+
+    @Rule
+    public FakeClearCaseRule fake = new FakeClearCaseRule();
+
+    @Test
+    public void testRecommendedBaselines() throws Exception {
+        String tag = fake.getTag();
+        Stream oneInt = Stream.get( "one_int@" + tag );
+        Stream oneDev = Stream.get( "one_dev@" + tag );
+        Stream oneDev2 = Stream.get( "one_dev2@" + tag );
+
+        Map<Stream, List<Baseline>> baselines = Stream.getRecommendedBaselines( Arrays.asList( oneInt, oneDev, oneDev2 ), false );
+        assertThat( baselines.size(), is( 3 ) );
+        assertThat( count(), is( 1L ) );
+        assertThat( baselines.get( oneDev ), is( oneDev.getRecommendedBaselines() ) );
+        assertThat( baselines.get( oneInt ).isEmpty(), is( false ) );
+
+        /* Known streams are not read again */
+        Stream.getRecommendedBaselines( Arrays.asList( oneInt, oneDev ), false );
+        oneDev2.getRecommendedBaselines();
+        assertThat( count(), is( 1L ) );
+
+        /* Read again when reset */
+        fake.getModel().get( Entity.getKey( "stream", "one_dev", PVOB ) ).set( "rec_bls" );
+        fake.update();
+        oneDev.resetRecommendedBaselines();
+        assertTrue( oneDev.getRecommendedBaselines().isEmpty() );
+        assertThat( count(), is( 2L ) );
+
+        Stream.getRecommendedBaselines( Arrays.asList( oneInt, oneDev ), true );
+        assertThat( count(), is( 3L ) );
+    }
+
+    /* The batches run describe, a single stream desc */
+    private long count() {
+        return fake.getCount( "describe", "desc" );
+    }
+}
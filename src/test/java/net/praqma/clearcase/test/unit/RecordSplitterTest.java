@@ -0,0 +1,57 @@
+package net.praqma.clearcase.test.unit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import net.praqma.clearcase.cleartool.LineHandler;
+import net.praqma.clearcase.cleartool.RecordSplitter;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class RecordSplitterTest {
+
+    private static class Collector implements LineHandler {
+        private final List<String> records = new ArrayList<String>();
+        private final int max;
+
+        private Collector( int max ) {
+            this.max = max;
+        }
+
+        @Override
+        public boolean handle( String record ) {
+            records.add( record );
+            return max <= 0 || records.size() < max;
+        }
+    }
+
+    @Test
+    public void testSplit() {
+        Collector collector = new Collector( 0 );
+        RecordSplitter splitter = new RecordSplitter( "@@@", collector );
+
+        splitter.handle( "activity:a1::first line" );
+        splitter.handle( "second line@@@activity:a2::single@@@activity:a3::" );
+        splitter.handle( "last@@@" );
+        splitter.handle( "trailing" );
+        splitter.flush();
+
+        assertThat( collector.records, is( Arrays.asList( "activity:a1::first line\nsecond line", "activity:a2::single", "activity:a3::\nlast", "trailing" ) ) );
+    }
+
+    @Test
+    public void testStop() {
+        Collector collector = new Collector( 2 );
+        RecordSplitter splitter = new RecordSplitter( ";", collector );
+
+        assertTrue( splitter.handle( "a;" ) );
+        assertFalse( splitter.handle( "b;c;d" ) );
+        assertTrue( splitter.flush() );
+
+        assertThat( collector.records, is( Arrays.asList( "a", "b" ) ) );
+    }
+}
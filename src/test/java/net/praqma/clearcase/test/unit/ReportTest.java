@@ -0,0 +1,104 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import net.praqma.cli.Report;
+import net.praqma.clearcase.test.fake.FakeClearCaseRule;
+import net.praqma.clearcase.test.fake.FakeModel;
+import net.praqma.clearcase.test.fake.FakeModel.Entity;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class ReportTest {
+
+    private static final String model = "praqma/Model/model.h@@";
+    private static final String client = "praqma/Clientapp/client.h@@";
+
+    @Rule
+    public FakeClearCaseRule fake = new FakeClearCaseRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void before() throws Exception {
+        version( model, 1 ).set( "labels", "REL_1" );
+        version( model, 3 ).set( "labels", "REL_2", "REL_3" );
+        fake.update();
+    }
+
+    private Entity version( String element, int revision ) {
+        return fake.getModel().get( Entity.getKey( "version", element.replace( '/', File.separatorChar ) + "/main/one_int/" + revision, "" ) );
+    }
+
+    /**
+     * @return The expected line of the latest version of an element
+     */
+    private String line( String element, int revision, String labeled ) {
+        FakeModel m = fake.getModel();
+        Entity version = version( element, revision );
+        Entity e = m.get( Entity.getKey( "element", element.replace( '/', File.separatorChar ), "" ) );
+        String file = File.separator + element.substring( 0, element.length() - 2 ).replace( '/', File.separatorChar );
+
+        return m.getObjectId( e ) + ";" + m.getObjectId( version ) + ";" + file + ";file;" + version.getUser() + ";one_int;" + revision + ";" + labeled + ";" +
+                new SimpleDateFormat( "yyyy.MM.dd" ).format( version.getDate() ) + ";one_int";
+    }
+
+    private List<String> expected() {
+        List<String> lines = Arrays.asList( line( client, 3, "" ), line( model, 3, "1, 3" ) );
+        Collections.sort( lines );
+
+        return lines;
+    }
+
+    private List<String> report() throws Exception {
+        Report report = new Report();
+        Map<File, Report.Entry> map = report.report( folder.getRoot() );
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        report.dump( new PrintStream( bytes, true ), map );
+
+        List<String> lines = new ArrayList<String>( Arrays.asList( bytes.toString().split( "\\r?\\n" ) ) );
+        assertTrue( lines.remove( 0 ).startsWith( "Element oid" ) );
+        Collections.sort( lines );
+
+        return lines;
+    }
+
+    @Test
+    public void testReport() throws Exception {
+        List<String> lines = report();
+
+        assertThat( lines, is( expected() ) );
+
+        /* One batch, one describe of the versions and one of the elements */
+        assertThat( fake.getCount( "describe" ), is( 2L ) );
+        assertThat( fake.getCount( "lsvtree" ), is( 1L ) );
+    }
+
+    @Test
+    public void testDescribeFallback() throws Exception {
+        version( client, 3 ).set( "batch_error", "Unable to access \"client.h\"" );
+        fake.update();
+
+        List<String> lines = report();
+
+        /* The versions are described one by one instead */
+        assertThat( lines, is( expected() ) );
+        assertTrue( fake.getCount( "describe" ) > 2L );
+    }
+}
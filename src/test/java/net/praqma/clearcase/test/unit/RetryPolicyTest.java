@@ -0,0 +1,96 @@
+package net.praqma.clearcase.test.unit;
+
+import net.praqma.clearcase.cleartool.RetryPolicy;
+import net.praqma.clearcase.exceptions.CleartoolException;
+import net.praqma.clearcase.exceptions.NoLicensesException;
+import net.praqma.util.execute.AbnormalProcessTerminationException;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testDelay() {
+        RetryPolicy policy = new RetryPolicy().setInitialDelay( 100 ).setMaxDelay( 1000 ).setMultiplier( 2 ).setJitter( 0 );
+
+        assertThat( policy.getDelay( 1 ), is( 100L ) );
+        assertThat( policy.getDelay( 2 ), is( 200L ) );
+        assertThat( policy.getDelay( 4 ), is( 800L ) );
+        assertThat( policy.getDelay( 10 ), is( 1000L ) );
+    }
+
+    @Test
+    public void testJitter() {
+        RetryPolicy policy = new RetryPolicy().setInitialDelay( 1000 ).setJitter( 0.2 );
+        for( int i = 0 ; i < 100 ; ++i ) {
+            long delay = policy.getDelay( 1 );
+            assertTrue( delay >= 800 && delay <= 1200 );
+        }
+    }
+
+    @Test
+    public void testTimeout() {
+        RetryPolicy policy = new RetryPolicy().setTimeout( 60000 ).setTimeout( "lshistory", 600000 );
+
+        assertThat( policy.getTimeout( "lshistory -r ." ), is( 600000L ) );
+        assertThat( policy.getTimeout( "describe -fmt %n baseline:bl@\\pvob" ), is( 60000L ) );
+    }
+
+    @Test
+    public void testRetryable() {
+        RetryPolicy policy = new RetryPolicy();
+
+        assertTrue( policy.isRetryable( new NoLicensesException( "No licenses available", new AbnormalProcessTerminationException( "FLEXnet Licensing error:-18,147", "describe" ) ) ) );
+        assertTrue( policy.isRetryable( new CleartoolException( "Unable to run describe", new RuntimeException( "cleartool: Error: Unable to contact albd_server on host" ) ) ) );
+        assertFalse( policy.isRetryable( new CleartoolException( "No results found" ) ) );
+
+        /* The timeout is the longest a command may run */
+        assertFalse( policy.isRetryable( new AbnormalProcessTerminationException( "Timed out after 1000 ms: describe -fmt %n stream:s@\\pvob", "describe" ) ) );
+    }
+
+    @Test
+    public void testDefaults() {
+        RetryPolicy policy = new RetryPolicy();
+
+        assertThat( policy.getAttempts(), is( 1 ) );
+        assertThat( policy.getTimeout( "describe" ), is( 0L ) );
+    }
+
+    @Test
+    public void testExecute() throws CleartoolException {
+        RetryPolicy policy = new RetryPolicy().setAttempts( 3 ).setInitialDelay( 1 ).clearRetryable().addRetryable( "No results found" );
+        final int[] count = { 0 };
+
+        String result = policy.execute( "test", new RetryPolicy.Attempt<String, CleartoolException>() {
+            @Override
+            public String run() throws CleartoolException {
+                if( ++count[0] < 3 ) {
+                    throw new CleartoolException( "No results found" );
+                }
+                return "found";
+            }
+        } );
+
+        assertThat( result, is( "found" ) );
+        assertThat( count[0], is( 3 ) );
+    }
+
+    @Test( expected = CleartoolException.class )
+    public void testNotRetryable() throws CleartoolException {
+        final int[] count = { 0 };
+        try {
+            new RetryPolicy().setInitialDelay( 1 ).execute( "test", new RetryPolicy.Attempt<String, CleartoolException>() {
+                @Override
+                public String run() throws CleartoolException {
+                    count[0]++;
+                    throw new CleartoolException( "Element not found" );
+                }
+            } );
+        } finally {
+            assertThat( count[0], is( 1 ) );
+        }
+    }
+}
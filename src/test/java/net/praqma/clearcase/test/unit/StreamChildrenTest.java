@@ -0,0 +1,51 @@
+package net.praqma.clearcase.test.unit;
+
+import java.util.List;
+
+import net.praqma.clearcase.test.fake.FakeClearCaseRule;
+import net.praqma.clearcase.test.fake.FakeModel;
+import net.praqma.clearcase.test.fake.FakeModel.Entity;
+import net.praqma.clearcase.ucm.entities.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import static net.praqma.clearcase.test.fake.FakeClearCaseRule.PVOB;
+import static net.praqma.clearcase.test.fake.FakeClearCaseRule.names;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class StreamChildrenTest {
+
+    @Rule
+    public FakeClearCaseRule fake = new FakeClearCaseRule();
+
+    private static Entity addChild( FakeModel model, Entity parent, String name ) {
+        Entity child = model.create( "stream", name, PVOB );
+        child.set( "master", "original" ).set( "project", parent.getFirst( "project" ) ).set( "def_deliver_tgt", parent.getKey() );
+        parent.add( "dstreams", child.getKey() );
+        return child;
+    }
+
+    @Test
+    public void testChildStreams() throws Exception {
+        FakeModel model = fake.getModel();
+        Entity parent = model.get( Entity.getKey( "stream", "one_int", PVOB ) );
+        for( int i = 3 ; i <= 8 ; ++i ) {
+            addChild( model, parent, "one_dev" + i );
+        }
+        model.get( Entity.getKey( "stream", "one_dev3", PVOB ) ).set( "master", "elsewhere" );
+        model.get( Entity.getKey( "stream", "one_dev5", PVOB ) ).set( "deliver_activity", "deliver.one_dev5" ).set( "deliver_view", "one_int_view" ).set( "deliver_posted", "remote" );
+        fake.update();
+
+        Stream stream = Stream.get( "one_int@\\" + PVOB );
+
+        List<Stream> sequential = stream.getChildStreams( false );
+        List<Stream> concurrent = stream.getChildStreams( false, 4 );
+        assertThat( concurrent, is( sequential ) );
+        assertThat( names( concurrent ), is( "[one_dev, one_dev2, one_dev4, one_dev6, one_dev7, one_dev8]" ) );
+
+        /* Posted deliveries are kept when polling multisite */
+        assertThat( names( stream.getChildStreams( true, 4 ) ), is( "[one_dev, one_dev2, one_dev4, one_dev5, one_dev6, one_dev7, one_dev8]" ) );
+    }
+}
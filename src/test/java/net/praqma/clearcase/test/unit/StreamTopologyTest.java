@@ -0,0 +1,71 @@
+package net.praqma.clearcase.test.unit;
+
+import net.praqma.clearcase.test.fake.FakeClearCaseRule;
+import net.praqma.clearcase.test.fake.FakeModel;
+import net.praqma.clearcase.test.fake.FakeModel.Entity;
+import net.praqma.clearcase.ucm.entities.Stream;
+import net.praqma.clearcase.ucm.utils.StreamTopology;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static net.praqma.clearcase.test.fake.FakeClearCaseRule.PVOB;
+import static net.praqma.clearcase.test.fake.FakeClearCaseRule.names;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class StreamTopologyTest {
+
+    @Rule
+    public FakeClearCaseRule fake = new FakeClearCaseRule();
+
+    @After
+    public void after() {
+        StreamTopology.invalidate( fake.getPVob() );
+    }
+
+    @Test
+    public void testTopology() throws Exception {
+        FakeModel model = fake.getModel();
+
+        /* A second project delivering to the integration stream of the first */
+        Entity project = model.create( "project", "two", PVOB );
+        Entity integration = model.create( "stream", "two_int", PVOB );
+        integration.set( "master", "original" ).set( "project", project.getKey() ).set( "def_deliver_tgt", Entity.getKey( "stream", "one_int", PVOB ) );
+        project.set( "istream", integration.getKey() );
+
+        /* The child of an obsolete stream is not an integration stream */
+        Entity one = model.get( Entity.getKey( "stream", "one_int", PVOB ) );
+        Entity old = model.create( "stream", "one_old", PVOB );
+        old.set( "master", "original" ).set( "project", one.getFirst( "project" ) ).set( "obsolete", "true" );
+        one.add( "dstreams", old.getKey() );
+        Entity child = model.create( "stream", "one_old_dev", PVOB );
+        child.set( "master", "original" ).set( "project", one.getFirst( "project" ) ).set( "def_deliver_tgt", one.getKey() );
+        old.add( "dstreams", child.getKey() );
+        fake.update();
+
+        String tag = fake.getTag();
+        StreamTopology topology = StreamTopology.get( fake.getPVob() );
+        Stream oneInt = Stream.get( "one_int@" + tag );
+        Stream oneDev = Stream.get( "one_dev@" + tag );
+        Stream twoInt = Stream.get( "two_int@" + tag );
+
+        assertThat( names( topology.getChildStreams( oneInt ) ), is( "[one_dev, one_dev2]" ) );
+        assertThat( topology.getParentStream( oneDev ), is( oneInt ) );
+        assertNull( topology.getParentStream( oneInt ) );
+        assertThat( topology.getDefaultTarget( oneDev ), is( oneInt ) );
+        assertThat( topology.getProject( twoInt ).getShortname(), is( "two" ) );
+        assertThat( topology.getMastership( twoInt ), is( "original" ) );
+        assertThat( names( topology.getSiblingStreams( oneInt ) ), is( "[two_int]" ) );
+        assertThat( names( oneInt.getSiblingStreams() ), is( "[two_int]" ) );
+        assertThat( names( topology.getIntegrationStreams() ), is( "[bootstrap_int, one_int, jenkins_int, two_int]" ) );
+        assertNull( topology.getParentStream( Stream.get( "one_old_dev@" + tag ) ) );
+
+        /* Remembered until refreshed */
+        assertSame( topology, StreamTopology.get( fake.getPVob() ) );
+        StreamTopology refreshed = topology.refresh();
+        assertFalse( refreshed == topology );
+        assertSame( refreshed, StreamTopology.get( fake.getPVob() ) );
+    }
+}
@@ -0,0 +1,128 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+
+import net.praqma.clearcase.ucm.view.SnapshotView;
+
+import org.apache.commons.lang.SystemUtils;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class SwipeTest {
+
+    /* Only the vob folder is named in the load rules */
+    private static final String loadRules = " -add_loadrules vob";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File root;
+    private File outside;
+
+    private File file( File parent, String name ) throws IOException {
+        File file = new File( parent, name );
+        file.getParentFile().mkdirs();
+        FileWriter writer = new FileWriter( file );
+        try {
+            writer.write( name );
+        } finally {
+            writer.close();
+        }
+
+        return file;
+    }
+
+    @Before
+    public void before() throws IOException {
+        Assume.assumeTrue( !SystemUtils.IS_OS_WINDOWS );
+
+        root = folder.newFolder( "view" );
+        outside = folder.newFolder( "outside" );
+
+        file( root, ".view.dat" );
+        file( root, "root.txt" );
+        file( root, "build/out/build.o" );
+
+        File vob = new File( root, "vob" );
+        file( vob, "src/a.c" );
+        file( vob, "src/deep/b.c" );
+        file( vob, "src/file.keep" );
+        file( vob, "src/file.contrib" );
+        file( vob, "src/file.updt" );
+        file( vob, "src/file.c.CHECKEDOUT" );
+
+        /* Links out of the view */
+        file( outside, "secret.txt" );
+        File target = file( outside, "target.txt" );
+        Files.createSymbolicLink( new File( vob, "linked" ).toPath(), outside.toPath() );
+        Files.createSymbolicLink( new File( vob, "src/link.txt" ).toPath(), target.toPath() );
+    }
+
+    @Test
+    public void testSwipe() throws Exception {
+        SnapshotView view = new SnapshotView();
+        view.setSwipeParallelism( 3 );
+        Map<String, Integer> info = view.swipe( root, false, loadRules );
+
+        /* The view private files, including the link to a file */
+        assertThat( info.get( "total" ), is( 4 ) );
+        assertThat( info.get( "files_deleted" ), is( 4 ) );
+        assertThat( info.get( "dirs_deleted" ), is( 0 ) );
+        assertThat( info.get( "success" ), is( 1 ) );
+
+        assertFalse( new File( root, "root.txt" ).exists() );
+        assertFalse( new File( root, "vob/src/a.c" ).exists() );
+        assertFalse( new File( root, "vob/src/deep/b.c" ).exists() );
+        assertFalse( Files.exists( new File( root, "vob/src/link.txt" ).toPath() ) );
+
+        /* Folders that are not vobs are deleted */
+        assertFalse( new File( root, "build" ).exists() );
+
+        /* The vob folders and the special files are kept */
+        assertTrue( new File( root, ".view.dat" ).exists() );
+        assertTrue( new File( root, "vob/src/deep" ).isDirectory() );
+        assertTrue( new File( root, "vob/src/file.keep" ).exists() );
+        assertTrue( new File( root, "vob/src/file.contrib" ).exists() );
+        assertTrue( new File( root, "vob/src/file.updt" ).exists() );
+        assertTrue( new File( root, "vob/src/file.c.CHECKEDOUT" ).exists() );
+
+        /* Links are not followed */
+        assertTrue( new File( outside, "secret.txt" ).exists() );
+        assertTrue( new File( outside, "target.txt" ).exists() );
+        assertTrue( Files.isSymbolicLink( new File( root, "vob/linked" ).toPath() ) );
+    }
+
+    @Test
+    public void testExcludeRoot() throws Exception {
+        SnapshotView view = new SnapshotView();
+        view.setSwipeParallelism( 1 );
+        Map<String, Integer> info = view.swipe( root, true, loadRules );
+
+        assertThat( info.get( "total" ), is( 3 ) );
+        assertThat( info.get( "files_deleted" ), is( 3 ) );
+        assertTrue( new File( root, "root.txt" ).exists() );
+        assertFalse( new File( root, "build" ).exists() );
+    }
+
+    @Test
+    public void testReadOnly() throws Exception {
+        File readOnly = file( new File( root, "vob" ), "src/read_only.c" );
+        readOnly.setWritable( false );
+        Assume.assumeTrue( !readOnly.canWrite() );
+
+        /* Loaded files are read only */
+        Map<String, Integer> info = new SnapshotView().swipe( root, false, loadRules );
+        assertThat( info.get( "total" ), is( 4 ) );
+        assertTrue( readOnly.exists() );
+    }
+}
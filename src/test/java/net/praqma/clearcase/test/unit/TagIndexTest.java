@@ -0,0 +1,135 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import net.praqma.clearcase.cleartool.Cleartool;
+import net.praqma.clearcase.cleartool.RetryPolicy;
+import net.praqma.clearcase.ucm.entities.Baseline;
+import net.praqma.clearcase.ucm.entities.Tag;
+import net.praqma.clearcase.ucm.utils.TagQuery;
+import net.praqma.util.structure.Tuple;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+public class TagIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File script;
+    private File log;
+
+    @Before
+    public void before() throws IOException {
+        script = new File( folder.getRoot(), "cleartool" );
+        log = new File( folder.getRoot(), "log" );
+
+        FileWriter writer = new FileWriter( script );
+        try {
+            writer.write( "#!/bin/sh\n" );
+            writer.write( "echo \"$1\" >> '" + log.getAbsolutePath() + "'\n" );
+            writer.write( "case \"$1\" in\n" );
+            writer.write( "describe) echo 'baseline \"bl1\"'; echo '  Hyperlinks:';\n" );
+            writer.write( "  echo '    tag@12@/pvob -> \"tagtype=build&tagid=1&status=SUCCESS\"';\n" );
+            writer.write( "  echo '    tag@13@/pvob -> \"tagtype=build&tagid=2&status=FAILURE\"';;\n" );
+            writer.write( "mkhlink) echo 'Created hyperlink \"tag@14@/pvob\".';;\n" );
+            writer.write( "esac\n" );
+        } finally {
+            writer.close();
+        }
+        assertTrue( script.setExecutable( true ) );
+
+        Cleartool.setExecutable( script.getAbsolutePath() );
+        Cleartool.setRetryPolicy( new RetryPolicy().setAttempts( 1 ).setTimeout( 10000 ) );
+    }
+
+    @After
+    public void after() {
+        Cleartool.setExecutable( null );
+        Cleartool.setRetryPolicy( null );
+    }
+
+    private List<String> getCommands() throws IOException {
+        List<String> commands = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader( new FileReader( log ) );
+        try {
+            String line;
+            while( ( line = reader.readLine() ) != null ) {
+                commands.add( line );
+            }
+        } finally {
+            reader.close();
+        }
+        return commands;
+    }
+
+    @Test
+    public void testIndex() throws Exception {
+        Baseline baseline = Baseline.get( "bl1@/pvob" );
+
+        assertThat( Tag.getTag( baseline, "build", "2", false ).getEntry( "status" ), is( "FAILURE" ) );
+        assertThat( Tag.getTag( baseline, "build", "1", false ).getEntry( "status" ), is( "SUCCESS" ) );
+        assertNull( Tag.getTag( baseline, "build", "3", false ) );
+        assertThat( getCommands().size(), is( 1 ) );
+
+        TagQuery query = new TagQuery();
+        query.AddCondition( "status", "^SUCC" );
+        assertThat( Tag.getIndex( baseline ).query( query ).size(), is( 1 ) );
+    }
+
+    @Test
+    public void testPersist() throws Exception {
+        Baseline baseline = Baseline.get( "bl1@/pvob" );
+
+        Tag tag = Tag.getTag( baseline, "build", "1", false );
+        tag.setEntry( "status", "UNSTABLE" );
+        Tag persisted = tag.persist();
+
+        assertThat( persisted.getFullyQualifiedName(), is( "tag@14@/pvob" ) );
+        assertThat( Tag.getTag( baseline, "build", "1", false ), is( persisted ) );
+        assertThat( Tag.getTag( baseline, "build", "1", false ).getEntry( "status" ), is( "UNSTABLE" ) );
+        assertThat( Tag.getTags( baseline ).size(), is( 2 ) );
+        assertThat( getCommands().toString(), is( "[describe, rmhlink, mkhlink]" ) );
+    }
+
+    @Test
+    public void testQuery() {
+        TagQuery query = new TagQuery();
+        query.AddCondition( "status", "SUCCESS|UNSTABLE" );
+        query.AddCondition( "missing", "^$" );
+
+        Map<String, String> keyval = Tag.CGIToHash( "tagtype=build&tagid=1&status=UNSTABLE" );
+        assertTrue( query.matches( keyval ) );
+
+        /* Changed conditions are compiled again */
+        query.set( 1, new Tuple<String, String>( "missing", "x" ) );
+        assertFalse( query.matches( keyval ) );
+        query.remove( 1 );
+        assertTrue( query.matches( keyval ) );
+    }
+
+    @Test
+    public void testCGIToHash() {
+        Map<String, String> keyval = Tag.CGIToHash( " a = 1 &b=2=3&noentry&=4&c=&" );
+
+        assertThat( keyval.size(), is( 4 ) );
+        assertThat( keyval.get( "a" ), is( "1" ) );
+        assertThat( keyval.get( "b" ), is( "2" ) );
+        assertThat( keyval.get( "" ), is( "4" ) );
+        assertThat( keyval.get( "c" ), is( "" ) );
+    }
+}
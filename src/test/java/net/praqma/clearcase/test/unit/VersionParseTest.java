@@ -0,0 +1,165 @@
+package net.praqma.clearcase.test.unit;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.praqma.clearcase.Branch;
+import net.praqma.clearcase.Cool;
+import net.praqma.clearcase.exceptions.UnableToInitializeEntityException;
+import net.praqma.clearcase.ucm.entities.Version;
+import net.praqma.util.execute.CommandLineInterface.OperatingSystem;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.*;
+
+/**
+ * The scanner of {@link Version} must give the same results as the regular expressions it replaced, which are kept here as the reference
+ */
+public class VersionParseTest {
+
+    private static class Reference {
+        private String shortname = "";
+        private String pvob;
+        private String version;
+        private String fullfile;
+        private File file;
+        private String qualifiedFilename;
+        private String branch;
+        private List<String> branches = new ArrayList<String>();
+        private int revision = 0;
+        private Version.Status status;
+
+        private Reference( String fqname ) {
+            Matcher match = Pattern.compile( "^(.+)@@(.+)$" ).matcher( fqname );
+            if( match.find() ) {
+                shortname = match.group( 1 );
+                pvob = match.group( 2 );
+            }
+
+            if( Cool.getOS().equals( OperatingSystem.WINDOWS ) ) {
+                fqname = fqname.matches( "^\\S:\\\\.*" ) ? fqname : System.getProperty( "user.dir" ) + Cool.filesep + fqname;
+            } else {
+                fqname = fqname.startsWith( "/" ) ? fqname : System.getProperty( "user.dir" ) + Cool.filesep + fqname;
+            }
+
+            Matcher m = Pattern.compile( "@@(.*)$" ).matcher( fqname );
+            version = m.find() ? m.group( 1 ) : "0";
+
+            String tmp = fqname;
+            tmp = tmp.replaceFirst( "(?m)@@.*$", "" );
+            tmp = tmp.replaceFirst( "(?m)^\\s+", "" );
+            fullfile = tmp.trim();
+
+            if( fullfile.matches( ".*" + Cool.qfsor + "\\.$" ) ) {
+                fullfile = fullfile.substring( 0, fullfile.length() - 1 );
+            }
+
+            status = Version.Status.CHANGED;
+            Matcher ma = Pattern.compile( Cool.qfs + ".*?" + Cool.qfs + "(\\d+)" + Cool.qfs + "(.*?)" + Cool.qfs ).matcher( version );
+            while( ma.find() ) {
+                fullfile += Cool.filesep + ma.group( 2 );
+            }
+
+            fullfile = fullfile.replace( "@@", "" );
+            file = new File( fullfile );
+
+            qualifiedFilename = fqname.replaceAll( "^(.*@@)(.*?)$", "$1" );
+            if( !qualifiedFilename.endsWith( "@@" ) ) {
+                qualifiedFilename += "@@";
+            }
+
+            String simple = version.contains( "@@" ) ? version.split( "@@" )[1] : version;
+            Matcher r = Pattern.compile( "^(.*?)" + Cool.qfsor + "(\\d+)(.*?)$" ).matcher( simple );
+            if( r.find() ) {
+                revision = Integer.parseInt( r.group( 2 ) );
+                if( revision == 1 ) {
+                    status = Version.Status.ADDED;
+                }
+
+                branch = r.group( 1 );
+                for( String b : branch.split( Cool.qfs ) ) {
+                    if( !b.isEmpty() ) {
+                        branches.add( b );
+                    }
+                }
+            }
+        }
+    }
+
+    private static void assertEquivalent( String name ) throws Exception {
+        Reference reference;
+        try {
+            reference = new Reference( name.trim() );
+        } catch( RuntimeException e ) {
+            try {
+                Version.get( name );
+                fail( "Should not accept " + name );
+            } catch( UnableToInitializeEntityException expected ) {
+                /* Neither accepts the name */
+            }
+            return;
+        }
+
+        Version v = Version.get( name );
+        assertThat( name, v.getShortname(), is( reference.shortname ) );
+        assertThat( name, v.getPVob() != null ? v.getPVob().getName() : null, is( reference.pvob ) );
+        assertThat( name, v.getVersion(), is( reference.version ) );
+        assertThat( name, v.getFile(), is( reference.file ) );
+        assertThat( name, v.getQualifiedFilename(), is( reference.qualifiedFilename ) );
+        assertThat( name, v.getBranch(), is( reference.branch ) );
+        assertThat( name, v.getRevision(), is( reference.revision ) );
+        assertThat( name, v.getStatus(), is( reference.status ) );
+
+        List<String> branches = new ArrayList<String>();
+        for( Branch b : v.getBranches() ) {
+            branches.add( b.getName() );
+        }
+        assertThat( name, branches, is( reference.branches ) );
+    }
+
+    @Test
+    public void testCorpus() throws Exception {
+        BufferedReader reader = new BufferedReader( new InputStreamReader( VersionParseTest.class.getClassLoader().getResourceAsStream( "versions.txt" ), "UTF-8" ) );
+        try {
+            String line;
+            while( ( line = reader.readLine() ) != null ) {
+                assertEquivalent( line );
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void testRandom() throws Exception {
+        String[] parts = { "/", "\\", "@@", "@", "main", "int", "1", "2", "42", ".", " ", "file.c", "ø" };
+        Random random = new Random( 4711 );
+        for( int i = 0 ; i < 20000 ; ++i ) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt( 12 );
+            for( int j = 0 ; j < length ; ++j ) {
+                sb.append( parts[random.nextInt( parts.length )] );
+            }
+            assertEquivalent( sb.toString() );
+        }
+    }
+
+    @Test
+    public void testSharedBranches() throws Exception {
+        String sep = Cool.filesep;
+        Version v1 = Version.get( sep + "vobs" + sep + "a.c@@" + sep + "main" + sep + "int" + sep + "3" );
+        Version v2 = Version.get( sep + "vobs" + sep + "b.c@@" + sep + "main" + sep + "int" + sep + "7" );
+
+        assertSame( v1.getBranches(), v2.getBranches() );
+        assertThat( v2.getUltimateBranch().getName(), is( "int" ) );
+    }
+}